@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+/**
+ * Interface implemented by hash providers with dedicated batch
+ * implementations of some hash functions, such as multi-buffer
+ * implementations that hash several messages at once. Batch support is
+ * reported separately from {@link #querySupport}, so that it does not affect
+ * how the provider is ranked for other kinds of hash functions.
+ */
+public interface BatchHashProvider extends HashProvider {
+
+    /**
+     * Returns whether this provider has a dedicated batch implementation of
+     * the hash function with the given parameters.
+     * 
+     * @param params the hash algorithm parameters
+     * @return true if {@link #getBatch} returns a dedicated batch
+     *         implementation for the parameters
+     */
+    boolean supportsBatch(HashParameters params);
+}
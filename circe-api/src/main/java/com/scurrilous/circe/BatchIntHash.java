@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental stateless integer hash function that can calculate the hashes
+ * of many separate records in a single operation. This amortizes per-call
+ * overhead, such as a native method transition, over a batch of small inputs.
+ * <p>
+ * Records are specified either by arrays of offsets and lengths, or by a
+ * starting index and a fixed stride, in which case each record is
+ * {@code stride} bytes long and immediately follows the previous one. For
+ * buffer inputs, offsets are absolute indexes, and the position and limit of
+ * the buffer are neither used nor modified, except that all records must lie
+ * below the limit.
+ */
+public interface BatchIntHash extends IncrementalIntHash {
+
+    /**
+     * Calculates the hash of each of the given ranges of the given input
+     * array.
+     * 
+     * @param input the input array
+     * @param offsets the starting index of each record
+     * @param lengths the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     * @throws IllegalArgumentException if {@code count} or any length is
+     *             negative
+     * @throws IndexOutOfBoundsException if {@code count} exceeds the length of
+     *             any of the offset, length, or output arrays, or any record
+     *             extends outside the input array
+     */
+    void calculateBatch(byte[] input, int[] offsets, int[] lengths, int[] output, int count);
+
+    /**
+     * Calculates the hash of each of the given number of consecutive
+     * fixed-length records in the given input array.
+     * 
+     * @param input the input array
+     * @param index the starting index of the first record
+     * @param stride the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     * @throws IllegalArgumentException if {@code stride} or {@code count} is
+     *             negative
+     * @throws IndexOutOfBoundsException if {@code count} exceeds the length of
+     *             the output array, or any record extends outside the input
+     *             array
+     */
+    void calculateBatch(byte[] input, int index, int stride, int[] output, int count);
+
+    /**
+     * Calculates the hash of each of the given ranges of the given input
+     * buffer.
+     * 
+     * @param input the input buffer
+     * @param offsets the absolute index of the start of each record
+     * @param lengths the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     * @throws IllegalArgumentException if {@code count} or any length is
+     *             negative
+     * @throws IndexOutOfBoundsException if {@code count} exceeds the length of
+     *             any of the offset, length, or output arrays, or any record
+     *             extends beyond the buffer limit
+     */
+    void calculateBatch(ByteBuffer input, int[] offsets, int[] lengths, int[] output, int count);
+
+    /**
+     * Calculates the hash of each of the given number of consecutive
+     * fixed-length records in the given input buffer.
+     * 
+     * @param input the input buffer
+     * @param index the absolute index of the start of the first record
+     * @param stride the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     * @throws IllegalArgumentException if {@code stride} or {@code count} is
+     *             negative
+     * @throws IndexOutOfBoundsException if {@code count} exceeds the length of
+     *             the output array, or any record extends beyond the buffer
+     *             limit
+     */
+    void calculateBatch(ByteBuffer input, int index, int stride, int[] output, int count);
+
+    /**
+     * Verifies the hash of each of the given ranges of the given input array
+     * against an expected value, stopping at the first mismatch.
+     * 
+     * @param input the input array
+     * @param offsets the starting index of each record
+     * @param lengths the length of each record
+     * @param expected the expected hash output of each record
+     * @param count the number of records
+     * @return the index of the first record whose hash does not match, or -1
+     *         if all records match
+     * @throws IllegalArgumentException if {@code count} or any length is
+     *             negative
+     * @throws IndexOutOfBoundsException if {@code count} exceeds the length of
+     *             any of the offset, length, or expected arrays, or any record
+     *             extends outside the input array
+     */
+    int verifyBatch(byte[] input, int[] offsets, int[] lengths, int[] expected, int count);
+
+    /**
+     * Verifies the hash of each of the given ranges of the given input buffer
+     * against an expected value, stopping at the first mismatch.
+     * 
+     * @param input the input buffer
+     * @param offsets the absolute index of the start of each record
+     * @param lengths the length of each record
+     * @param expected the expected hash output of each record
+     * @param count the number of records
+     * @return the index of the first record whose hash does not match, or -1
+     *         if all records match
+     * @throws IllegalArgumentException if {@code count} or any length is
+     *             negative
+     * @throws IndexOutOfBoundsException if {@code count} exceeds the length of
+     *             any of the offset, length, or expected arrays, or any record
+     *             extends beyond the buffer limit
+     */
+    int verifyBatch(ByteBuffer input, int[] offsets, int[] lengths, int[] expected, int count);
+}
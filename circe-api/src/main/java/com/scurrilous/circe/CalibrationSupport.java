@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Support for providers and the provider registry that calibrate their
+ * choices by timing candidate implementations on first use. Calibration
+ * results are stored in a properties file, keyed by a string that includes
+ * the {@linkplain #machineKey machine key}, so that later JVM starts on the
+ * same machine can skip calibration. Failure to read or write the file only
+ * disables this caching, so the methods of this class never throw
+ * {@link IOException} or {@link SecurityException}.
+ */
+public final class CalibrationSupport {
+
+    private static volatile long sink;
+
+    private CalibrationSupport() {
+    }
+
+    /**
+     * Returns the calibration file given by a system property. If the
+     * property is unset, the file is the given name in the {@code .circe}
+     * directory of the user's home directory.
+     * 
+     * @param property the name of the system property giving the path
+     * @param defaultName the file name used if the property is unset
+     * @return the calibration file, or null if the property is empty or
+     *         cannot be read
+     */
+    public static File cacheFile(String property, String defaultName) {
+        try {
+            final String path = System.getProperty(property);
+            if (path != null)
+                return path.isEmpty() ? null : new File(path);
+            return new File(System.getProperty("user.home"), ".circe" + File.separator +
+                    defaultName);
+        } catch (final SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a string identifying the processor, so that results calibrated
+     * on one machine are not used on another sharing the same home directory.
+     * 
+     * @return the processor architecture, count, and model name if known
+     */
+    public static String machineKey() {
+        String model = null;
+        try (final BufferedReader reader = new BufferedReader(new FileReader("/proc/cpuinfo"))) {
+            String line;
+            while (model == null && (line = reader.readLine()) != null) {
+                if (line.startsWith("model name")) {
+                    final int colon = line.indexOf(':');
+                    if (colon >= 0)
+                        model = line.substring(colon + 1).trim();
+                }
+            }
+        } catch (final IOException | SecurityException e) {
+            // fall back to the architecture and processor count
+        }
+        final StringBuilder sb = new StringBuilder();
+        try {
+            sb.append(System.getProperty("os.arch"));
+        } catch (final SecurityException e) {
+            sb.append("unknown");
+        }
+        sb.append('.').append(Runtime.getRuntime().availableProcessors());
+        if (model != null)
+            sb.append('.').append(model.replaceAll("\\s+", "_"));
+        return sb.toString();
+    }
+
+    /**
+     * Reads the calibration result with the given key from the given file.
+     * 
+     * @param file the calibration file
+     * @param key the key of the result
+     * @return the stored result, or null if absent or the file cannot be read
+     */
+    public static String load(File file, String key) {
+        final Properties props = read(file);
+        return props != null ? props.getProperty(key) : null;
+    }
+
+    /**
+     * Writes the calibration result with the given key to the given file,
+     * preserving the results stored under other keys. The file is replaced by
+     * renaming a temporary file into place, so that concurrent readers never
+     * see a partial file.
+     * 
+     * @param file the calibration file
+     * @param key the key of the result
+     * @param value the result
+     * @param comments a description of the results in the file
+     */
+    public static void store(File file, String key, String value, String comments) {
+        Properties props = read(file);
+        if (props == null)
+            props = new Properties();
+        props.setProperty(key, value);
+        try {
+            final File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null)
+                dir.mkdirs();
+            final File temp = File.createTempFile(file.getName(), ".tmp", dir);
+            try {
+                try (final OutputStream out = new FileOutputStream(temp)) {
+                    props.store(out, comments);
+                }
+                if (!temp.renameTo(file)) {
+                    file.delete();
+                    temp.renameTo(file);
+                }
+            } finally {
+                temp.delete();
+            }
+        } catch (final IOException | SecurityException e) {
+            // the calibrated result is still used by this JVM
+        }
+    }
+
+    private static Properties read(File file) {
+        final Properties props = new Properties();
+        try (final InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        } catch (final IOException | SecurityException e) {
+            return null;
+        }
+        return props;
+    }
+
+    /**
+     * Returns the shortest time taken in any of the given number of rounds to
+     * run the given probe repeatedly on inputs of the given length, totaling
+     * approximately the given number of bytes per round.
+     * 
+     * @param probe the operation to time
+     * @param input the input array, at least {@code length} bytes long
+     * @param length the length of each input
+     * @param bytes the number of bytes to process per round
+     * @param rounds the number of rounds
+     * @return the shortest round time in nanoseconds
+     */
+    public static long time(Probe probe, byte[] input, int length, int bytes, int rounds) {
+        final int calls = bytes / length;
+        long best = Long.MAX_VALUE;
+        long result = 0;
+        for (int round = 0; round < rounds; ++round) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < calls; ++i)
+                result += probe.run(input, length);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        // keeps the results live so that the calls are not optimized away
+        sink = result;
+        return best;
+    }
+
+    /**
+     * An operation timed by {@link CalibrationSupport#time}.
+     */
+    public abstract static class Probe {
+
+        /**
+         * Runs the operation once on the given input.
+         * 
+         * @param input the input array
+         * @param length the number of bytes of input to process
+         * @return a result of the operation, such as a hash value
+         */
+        public abstract long run(byte[] input, int length);
+    }
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+/**
+ * Incremental stateless integer hash function, such as a cyclic redundancy
+ * check, whose outputs for consecutive input sequences can be combined
+ * without access to the input itself.
+ * <p>
+ * Not every incremental hash function supports this operation, so it is
+ * provided by this separate interface rather than by
+ * {@link IncrementalIntHash}.
+ */
+public interface CombinableIntHash extends IncrementalIntHash {
+
+    /**
+     * Combines the outputs of this hash function for two consecutive input
+     * sequences into the output for their concatenation, without access to the
+     * input itself. Specifically, for any sequences M<sub>1</sub> and
+     * M<sub>2</sub>:
+     * 
+     * <pre>
+     * h(M<sub>1</sub> M<sub>2</sub>) = combine(h(M<sub>1</sub>), h(M<sub>2</sub>), |M<sub>2</sub>|)
+     * </pre>
+     * 
+     * This allows the parts of a large input to be hashed independently, such
+     * as in parallel or at different times, and then merged.
+     * 
+     * @param current the hash output for the first input sequence
+     * @param next the hash output for the second input sequence
+     * @param nextLength the length in bytes of the second input sequence
+     * @return the output of the hash function for the concatenated input
+     * @throws IllegalArgumentException if {@code nextLength} is negative
+     */
+    int combine(int current, int next, long nextLength);
+}
@@ -98,4 +98,17 @@ public interface HashProvider {
      *             given parameters
      */
     IncrementalLongHash getIncrementalLong(HashParameters params);
+
+    /**
+     * Requests a stateless hash function with the given parameters that can
+     * hash many independent messages in a single operation. If this provider
+     * has no specialized batch implementation, the returned function hashes
+     * each message in turn using a stateful hash function.
+     * 
+     * @param params the hash algorithm parameters
+     * @return a stateless batch hash function
+     * @throws UnsupportedOperationException if this provider cannot support the
+     *             given parameters
+     */
+    BatchHash getBatch(HashParameters params);
 }
@@ -16,40 +16,65 @@
 package com.scurrilous.circe;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.ServiceLoader;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
  * Static utility methods for discovering {@link HashProvider} instances.
+ * <p>
+ * Providers are registered in
+ * {@code META-INF/services/com.scurrilous.circe.HashProvider} files, as for
+ * {@link java.util.ServiceLoader}, but are not instantiated until a request
+ * could be served by them. Provider modules include an index, generated at
+ * build time, of the parameter types and algorithms each provider supports,
+ * so that requests for one kind of hash function do not load the providers
+ * (and their native libraries or other dependencies) for others.
+ * <p>
+ * The result of {@link #best(HashParameters, EnumSet)} is memoized for each
+ * combination of parameters and required flags, so repeated requests for the
+ * same hash function do not query every provider again. The cache holds at
+ * most the number of entries given by the system property
+ * {@code com.scurrilous.circe.HashProviders.cacheSize}, which defaults to 256;
+ * zero disables caching. Providers whose support changes after they are first
+ * queried should call {@link #clearCache}; resolutions already in progress
+ * when it is called are not cached.
+ * <p>
+ * By default, providers are ranked by their declared {@link HashSupport}
+ * flags. Setting the system property
+ * {@code com.scurrilous.circe.HashProviders.calibrate} to {@code true} instead
+ * ranks the candidates by throughput measured on first use, which accounts for
+ * native call overhead and processor differences that the flags cannot. The
+ * measurements are stored in the file given by the system property
+ * {@code com.scurrilous.circe.HashProviders.calibrationFile}, which defaults to
+ * {@code .circe/providers.properties} in the user's home directory, so later
+ * runs skip calibration.
  */
 public final class HashProviders {
 
-    static final Collection<HashProvider> ALL_PROVIDERS = getAllProviders();
+    private static final List<ProviderRegistry.Entry> PROVIDERS = ProviderRegistry
+            .load(Thread.currentThread().getContextClassLoader());
 
-    private static Collection<HashProvider> getAllProviders() {
-        final ServiceLoader<HashProvider> loader = ServiceLoader.load(HashProvider.class);
-        final LinkedList<HashProvider> providers = new LinkedList<>();
-        for (final HashProvider provider : loader)
-            providers.add(provider);
-        return Collections.unmodifiableList(new ArrayList<>(providers));
-    }
+    private static final ResolutionCache<ResolutionKey, HashProvider> BEST =
+            new ResolutionCache<>();
 
     private HashProviders() {
     }
 
     /**
-     * Returns an iterator over all known {@link HashProvider} instances.
+     * Returns an iterator over all known {@link HashProvider} instances. This
+     * method instantiates any providers not already in use.
      * 
      * @return an iterator over all HashProviders
      */
     public static Iterator<HashProvider> iterator() {
-        return ALL_PROVIDERS.iterator();
+        final List<HashProvider> providers = new ArrayList<>(PROVIDERS.size());
+        for (final ProviderRegistry.Entry entry : PROVIDERS)
+            providers.add(entry.provider());
+        return Collections.unmodifiableList(providers).iterator();
     }
 
     /**
@@ -77,9 +102,72 @@ public final class HashProviders {
      *             parameters
      */
     public static HashProvider best(HashParameters params, EnumSet<HashSupport> required) {
+        return resolve(params, required, -1);
+    }
+
+    /**
+     * Returns the best hash provider supporting at least the given flags for a
+     * hash function with the given parameters, when applied to inputs of about
+     * the given length. Unless calibration is enabled, this is the same as
+     * {@link #best(HashParameters, EnumSet)}; otherwise, it is the fastest
+     * provider measured at the nearest calibrated input size.
+     * 
+     * @param params the parameters defining the hash function
+     * @param required the required support flags for a provider to be
+     *            considered
+     * @param length the typical input length in bytes
+     * @return the best hash provider for the given parameters and length
+     * @throws UnsupportedOperationException if no provider supports the
+     *             parameters
+     */
+    public static HashProvider best(HashParameters params, EnumSet<HashSupport> required,
+            int length) {
+        return resolve(params, required,
+                ProviderCalibration.isEnabled() ? ProviderCalibration.sizeClass(length) : -1);
+    }
+
+    /**
+     * Returns the hash provider to use for batch implementations of a hash
+     * function with the given parameters. This is the first
+     * {@link BatchHashProvider} that supports batches for the parameters, if
+     * any; otherwise, it is the result of {@link #best(HashParameters)}.
+     * 
+     * @param params the parameters defining the hash function
+     * @return the best batch hash provider for the given parameters
+     * @throws UnsupportedOperationException if no provider supports the
+     *             parameters
+     */
+    public static HashProvider bestBatch(HashParameters params) {
+        for (final ProviderRegistry.Entry entry : PROVIDERS) {
+            if (!entry.accepts(params))
+                continue;
+            final HashProvider provider = entry.provider();
+            if (provider instanceof BatchHashProvider &&
+                    ((BatchHashProvider) provider).supportsBatch(params))
+                return provider;
+        }
+        return best(params);
+    }
+
+    private static HashProvider resolve(HashParameters params, EnumSet<HashSupport> required,
+            int sizeClass) {
+        final ResolutionKey key = new ResolutionKey(params, required, sizeClass);
+        final HashProvider cached = BEST.get(key);
+        if (cached != null)
+            return cached;
+        final int generation = BEST.generation();
+        return BEST.put(new ResolutionKey(params, EnumSet.copyOf(required), sizeClass),
+                ProviderCalibration.isEnabled() ? findFastest(params, required, sizeClass)
+                        : findBest(params, required), generation);
+    }
+
+    private static HashProvider findBest(HashParameters params, EnumSet<HashSupport> required) {
         HashProvider result = null;
         EnumSet<HashSupport> resultSupport = null;
-        for (final HashProvider provider : ALL_PROVIDERS) {
+        for (final ProviderRegistry.Entry entry : PROVIDERS) {
+            if (!entry.accepts(params))
+                continue;
+            final HashProvider provider = entry.provider();
             final EnumSet<HashSupport> support = provider.querySupport(params);
             if (support.containsAll(required) &&
                     (result == null || HashSupport.compare(support, resultSupport) < 0)) {
@@ -92,6 +180,32 @@ public final class HashProviders {
         return result;
     }
 
+    private static HashProvider findFastest(HashParameters params,
+            EnumSet<HashSupport> required, int sizeClass) {
+        final List<HashProvider> candidates = new ArrayList<>();
+        final List<EnumSet<HashSupport>> supports = new ArrayList<>();
+        for (final ProviderRegistry.Entry entry : PROVIDERS) {
+            if (!entry.accepts(params))
+                continue;
+            final HashProvider provider = entry.provider();
+            final EnumSet<HashSupport> support = provider.querySupport(params);
+            if (support.containsAll(required)) {
+                // keep candidates in order of declared support, for ties
+                int index = 0;
+                while (index < supports.size() &&
+                        HashSupport.compare(supports.get(index), support) <= 0)
+                    ++index;
+                candidates.add(index, provider);
+                supports.add(index, support);
+            }
+        }
+        if (candidates.isEmpty())
+            throw new UnsupportedOperationException();
+        if (candidates.size() == 1)
+            return candidates.get(0);
+        return ProviderCalibration.select(params, required, candidates, sizeClass);
+    }
+
     /**
      * Returns a map of hash providers supporting at least a stateful
      * implementation of a hash function with the given parameters.
@@ -115,11 +229,55 @@ public final class HashProviders {
             EnumSet<HashSupport> required) {
         final SortedMap<EnumSet<HashSupport>, HashProvider> result = new TreeMap<>(
                 new HashSupport.SetComparator());
-        for (final HashProvider provider : ALL_PROVIDERS) {
+        for (final ProviderRegistry.Entry entry : PROVIDERS) {
+            if (!entry.accepts(params))
+                continue;
+            final HashProvider provider = entry.provider();
             final EnumSet<HashSupport> support = provider.querySupport(params);
             if (support.containsAll(required))
                 result.put(support, provider);
         }
         return result;
     }
+
+    /**
+     * Discards all memoized provider resolutions, including the hash functions
+     * cached by {@link Hashes}. Providers should call this method when their
+     * level of support changes, such as when a native library finishes
+     * loading in the background.
+     */
+    public static void clearCache() {
+        BEST.clear();
+        ProviderCalibration.clear();
+        Hashes.clearCache();
+    }
+
+    private static final class ResolutionKey {
+
+        private final HashParameters params;
+        private final EnumSet<HashSupport> required;
+        private final int sizeClass;
+
+        ResolutionKey(HashParameters params, EnumSet<HashSupport> required, int sizeClass) {
+            this.params = params;
+            this.required = required;
+            this.sizeClass = sizeClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return (params.hashCode() * 31 + required.hashCode()) * 31 + sizeClass;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof ResolutionKey))
+                return false;
+            final ResolutionKey other = (ResolutionKey) obj;
+            return params.equals(other.params) && required.equals(other.required) &&
+                    sizeClass == other.sizeClass;
+        }
+    }
 }
@@ -31,9 +31,29 @@ import com.scurrilous.circe.StatelessLongHash;
  * method uses {@link HashProviders#best} to find the best provider for the
  * given parameters and hash interface, and then calls the corresponding method
  * on that provider.
+ * <p>
+ * The resolved hash functions are memoized for each set of parameters, so
+ * repeated requests cost a single concurrent map lookup. Stateless hash
+ * functions are returned directly from the cache, while stateful hash
+ * functions are created from a cached instance using
+ * {@link StatefulHash#createNew}. The cache size is limited as described for
+ * {@link HashProviders}.
  */
 public final class Hashes {
 
+    private static final ResolutionCache<HashParameters, StatefulHash> STATEFUL =
+            new ResolutionCache<>();
+    private static final ResolutionCache<HashParameters, StatelessIntHash> STATELESS_INT =
+            new ResolutionCache<>();
+    private static final ResolutionCache<HashParameters, StatelessLongHash> STATELESS_LONG =
+            new ResolutionCache<>();
+    private static final ResolutionCache<HashParameters, IncrementalIntHash> INCREMENTAL_INT =
+            new ResolutionCache<>();
+    private static final ResolutionCache<HashParameters, IncrementalLongHash> INCREMENTAL_LONG =
+            new ResolutionCache<>();
+    private static final ResolutionCache<HashParameters, BatchHash> BATCH =
+            new ResolutionCache<>();
+
     private Hashes() {
     }
 
@@ -46,7 +66,13 @@ public final class Hashes {
      *             parameters
      */
     public static StatefulHash createStateful(HashParameters params) {
-        return HashProviders.best(params).createStateful(params);
+        StatefulHash prototype = STATEFUL.get(params);
+        if (prototype == null) {
+            final int generation = STATEFUL.generation();
+            prototype = STATEFUL.put(params, HashProviders.best(params).createStateful(params),
+                    generation);
+        }
+        return prototype.createNew();
     }
 
     /**
@@ -61,8 +87,13 @@ public final class Hashes {
      *             parameters as a {@link StatelessIntHash}
      */
     public static StatelessIntHash getStatelessInt(HashParameters params) {
-        return HashProviders.best(params, EnumSet.of(HashSupport.INT_SIZED))
-                .getStatelessInt(params);
+        final StatelessIntHash hash = STATELESS_INT.get(params);
+        if (hash != null)
+            return hash;
+        final int generation = STATELESS_INT.generation();
+        return STATELESS_INT.put(params,
+                HashProviders.best(params, EnumSet.of(HashSupport.INT_SIZED))
+                        .getStatelessInt(params), generation);
     }
 
     /**
@@ -80,8 +111,13 @@ public final class Hashes {
      *             parameters as a {@link StatelessLongHash}
      */
     public static StatelessLongHash getStatelessLong(HashParameters params) {
-        return HashProviders.best(params, EnumSet.of(HashSupport.LONG_SIZED)).getStatelessLong(
-                params);
+        final StatelessLongHash hash = STATELESS_LONG.get(params);
+        if (hash != null)
+            return hash;
+        final int generation = STATELESS_LONG.generation();
+        return STATELESS_LONG.put(params,
+                HashProviders.best(params, EnumSet.of(HashSupport.LONG_SIZED))
+                        .getStatelessLong(params), generation);
     }
 
     /**
@@ -96,9 +132,13 @@ public final class Hashes {
      *             parameters as an {@link IncrementalIntHash}
      */
     public static IncrementalIntHash getIncrementalInt(HashParameters params) {
-        return HashProviders.best(params,
+        final IncrementalIntHash hash = INCREMENTAL_INT.get(params);
+        if (hash != null)
+            return hash;
+        final int generation = INCREMENTAL_INT.generation();
+        return INCREMENTAL_INT.put(params, HashProviders.best(params,
                 EnumSet.of(HashSupport.INT_SIZED, HashSupport.STATELESS_INCREMENTAL))
-                .getIncrementalInt(params);
+                .getIncrementalInt(params), generation);
     }
 
     /**
@@ -116,8 +156,38 @@ public final class Hashes {
      *             parameters as an {@link IncrementalLongHash}
      */
     public static IncrementalLongHash getIncrementalLong(HashParameters params) {
-        return HashProviders.best(params,
+        final IncrementalLongHash hash = INCREMENTAL_LONG.get(params);
+        if (hash != null)
+            return hash;
+        final int generation = INCREMENTAL_LONG.generation();
+        return INCREMENTAL_LONG.put(params, HashProviders.best(params,
                 EnumSet.of(HashSupport.LONG_SIZED, HashSupport.STATELESS_INCREMENTAL))
-                .getIncrementalLong(params);
+                .getIncrementalLong(params), generation);
+    }
+
+    /**
+     * Requests a stateless hash function with the given parameters that can
+     * hash many independent messages in a single operation.
+     * 
+     * @param params the hash algorithm parameters
+     * @return a stateless batch hash function
+     * @throws UnsupportedOperationException if no provider supports the
+     *             parameters
+     */
+    public static BatchHash getBatch(HashParameters params) {
+        final BatchHash hash = BATCH.get(params);
+        if (hash != null)
+            return hash;
+        final int generation = BATCH.generation();
+        return BATCH.put(params, HashProviders.bestBatch(params).getBatch(params), generation);
+    }
+
+    static void clearCache() {
+        STATEFUL.clear();
+        STATELESS_INT.clear();
+        STATELESS_LONG.clear();
+        INCREMENTAL_INT.clear();
+        INCREMENTAL_LONG.clear();
+        BATCH.clear();
     }
 }
@@ -0,0 +1,489 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scurrilous.circe.CalibrationSupport.Probe;
+
+/**
+ * Ranks the candidate providers for a hash function by measured throughput,
+ * rather than by their declared {@link HashSupport} flags. Declared flags do
+ * not account for JNI call overhead on short inputs or for instructions that
+ * are emulated or microcoded on a given processor, so calibration can be
+ * enabled by setting the system property
+ * {@code com.scurrilous.circe.HashProviders.calibrate} to {@code true}.
+ * Calibration times each candidate over a set of input size classes on first
+ * use; {@link HashProviders#best(HashParameters, EnumSet, int)} selects the
+ * fastest provider for the size class nearest the given input length, and
+ * {@link HashProviders#best(HashParameters, EnumSet)} selects the provider
+ * with the best throughput across all size classes relative to the fastest
+ * in each.
+ * <p>
+ * The measured throughputs are stored in a properties file keyed by
+ * processor, Java version, parameters, and required flags, so later JVM
+ * starts on the same machine skip calibration. The file is given by the
+ * system property {@code com.scurrilous.circe.HashProviders.calibrationFile},
+ * which defaults to {@code .circe/providers.properties} in the user's home
+ * directory; an empty value disables the file. Failure to read or write the
+ * file only disables caching. Parameters are recognized across JVM starts
+ * by the values of their fields. Parameters that do not override
+ * {@link Object#hashCode}, or that have fields other than primitives,
+ * strings, enums, primitive arrays, and nested parameters, are calibrated
+ * again in each JVM.
+ */
+final class ProviderCalibration {
+
+    /**
+     * The input lengths at which candidates are timed, one per size class.
+     */
+    static final int[] SIZE_CLASSES = { 16, 256, 4096, 65536 };
+
+    private static final int CALIBRATION_BYTES = 1 << 18;
+    private static final int CALIBRATION_ROUNDS = 5;
+
+    private static final String PROPERTY_PREFIX = HashProviders.class.getName();
+    private static final boolean ENABLED = calibrationEnabled();
+
+    private static final ConcurrentMap<String, Ranking> RANKINGS = new ConcurrentHashMap<>();
+
+    private static final Comparator<Field> FIELD_ORDER = new Comparator<Field>() {
+        @Override
+        public int compare(Field f1, Field f2) {
+            return f1.getName().compareTo(f2.getName());
+        }
+    };
+
+    private ProviderCalibration() {
+    }
+
+    /**
+     * Returns whether providers are ranked by calibration.
+     * 
+     * @return true if calibration is enabled
+     */
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    private static boolean calibrationEnabled() {
+        try {
+            return Boolean.getBoolean(PROPERTY_PREFIX + ".calibrate");
+        } catch (final SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the size class nearest to the given input length on a
+     * logarithmic scale.
+     * 
+     * @param length the typical input length in bytes
+     * @return an index into {@link #SIZE_CLASSES}
+     */
+    static int sizeClass(int length) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < SIZE_CLASSES.length; ++i) {
+            final double distance = Math.abs(Math.log((double) Math.max(length, 1) /
+                    SIZE_CLASSES[i]));
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the fastest of the given candidates, calibrating them if no
+     * ranking is cached for them in this JVM or in the calibration file.
+     * 
+     * @param params the parameters defining the hash function
+     * @param required the required support flags
+     * @param candidates the providers supporting the required flags, in
+     *            order of declared support
+     * @param sizeClass the size class to optimize, or -1 for all classes
+     * @return the fastest candidate
+     */
+    static HashProvider select(HashParameters params, EnumSet<HashSupport> required,
+            List<HashProvider> candidates, int sizeClass) {
+        final String key = key(params, required);
+        final String[] names = names(candidates);
+        Ranking ranking = key != null ? RANKINGS.get(key) : null;
+        if (ranking == null || !ranking.matches(names)) {
+            synchronized (ProviderCalibration.class) {
+                ranking = key != null ? RANKINGS.get(key) : null;
+                if (ranking == null || !ranking.matches(names)) {
+                    final File file = key != null ? cacheFile() : null;
+                    long[][] throughput = file != null ? load(file, key, names) : null;
+                    if (throughput == null) {
+                        throughput = calibrate(params, required, candidates);
+                        if (file != null)
+                            store(file, key, names, throughput);
+                    }
+                    ranking = new Ranking(names, throughput);
+                    if (key != null)
+                        RANKINGS.put(key, ranking);
+                }
+            }
+        }
+        return candidates.get(select(ranking.throughput, sizeClass));
+    }
+
+    /**
+     * Discards the rankings cached in this JVM, without affecting the
+     * calibration file.
+     */
+    static void clear() {
+        RANKINGS.clear();
+    }
+
+    private static File cacheFile() {
+        return CalibrationSupport.cacheFile(PROPERTY_PREFIX + ".calibrationFile",
+                "providers.properties");
+    }
+
+    private static String[] names(List<HashProvider> candidates) {
+        final String[] names = new String[candidates.size()];
+        for (int i = 0; i < names.length; ++i)
+            names[i] = candidates.get(i).getClass().getName();
+        return names;
+    }
+
+    /**
+     * Returns the key identifying a ranking in the calibration file, or null
+     * if the parameters cannot be recognized across JVM starts.
+     * 
+     * @param params the parameters defining the hash function
+     * @param required the required support flags
+     * @return the calibration key, or null
+     */
+    static String key(HashParameters params, EnumSet<HashSupport> required) {
+        try {
+            if (params.getClass().getMethod("hashCode").getDeclaringClass() == Object.class)
+                return null;
+        } catch (final NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder(machineKey()).append('/');
+        if (!describe(params, sb))
+            return null;
+        return sb.append('/').append(required).toString();
+    }
+
+    // describes a value by its content, which is the same in every JVM
+    private static boolean describe(Object value, StringBuilder sb) {
+        if (value == null || value instanceof Number || value instanceof Boolean ||
+                value instanceof Character || value instanceof String) {
+            sb.append(value);
+        } else if (value instanceof Enum) {
+            sb.append(((Enum<?>) value).name());
+        } else if (value.getClass().isArray() &&
+                value.getClass().getComponentType().isPrimitive()) {
+            sb.append('[');
+            for (int i = 0; i < Array.getLength(value); ++i) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(Array.get(value, i));
+            }
+            sb.append(']');
+        } else if (value instanceof HashParameters) {
+            sb.append(value.getClass().getName()).append('{');
+            boolean first = true;
+            for (Class<?> c = value.getClass(); c != Object.class; c = c.getSuperclass()) {
+                final Field[] fields = c.getDeclaredFields();
+                Arrays.sort(fields, FIELD_ORDER);
+                for (final Field field : fields) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic())
+                        continue;
+                    if (!first)
+                        sb.append(',');
+                    first = false;
+                    sb.append(field.getName()).append('=');
+                    final Object fieldValue;
+                    try {
+                        field.setAccessible(true);
+                        fieldValue = field.get(value);
+                    } catch (final IllegalAccessException | RuntimeException e) {
+                        // such as SecurityException, or inaccessible modules
+                        return false;
+                    }
+                    if (!describe(fieldValue, sb))
+                        return false;
+                }
+            }
+            sb.append('}');
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a string identifying the processor and Java version, so that
+     * results calibrated on one machine or JVM are not used on another sharing
+     * the same home directory.
+     * 
+     * @return the machine key
+     */
+    static String machineKey() {
+        String version;
+        try {
+            version = System.getProperty("java.version");
+        } catch (final SecurityException e) {
+            version = "unknown";
+        }
+        return CalibrationSupport.machineKey() + '.' + version;
+    }
+
+    /**
+     * Returns the index of the fastest candidate for the given size class.
+     * Without a size class, this is the candidate with the greatest geometric
+     * mean throughput relative to the fastest candidate in each class. Ties go
+     * to the earlier candidate.
+     * 
+     * @param throughput the throughput of each candidate in each size class
+     * @param sizeClass the size class to optimize, or -1 for all classes
+     * @return the index of the fastest candidate
+     */
+    static int select(long[][] throughput, int sizeClass) {
+        final int classes = SIZE_CLASSES.length;
+        final long[] fastest = new long[classes];
+        for (final long[] candidate : throughput)
+            for (int j = 0; j < classes; ++j)
+                fastest[j] = Math.max(fastest[j], candidate[j]);
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < throughput.length; ++i) {
+            double score;
+            if (sizeClass >= 0) {
+                score = throughput[i][sizeClass];
+            } else {
+                score = 0;
+                for (int j = 0; j < classes; ++j)
+                    if (fastest[j] > 0)
+                        score += Math.log((double) throughput[i][j] / fastest[j]);
+            }
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads the throughput of the given candidates from the given file.
+     * 
+     * @param file the calibration cache file
+     * @param key the calibration key
+     * @param names the class names of the candidates
+     * @return the cached throughput of each candidate in each size class, or
+     *         null if absent, invalid, or calibrated for other candidates
+     */
+    static long[][] load(File file, String key, String[] names) {
+        final String value = CalibrationSupport.load(file, key);
+        if (value == null)
+            return null;
+        final String[] entries = value.split(";");
+        if (entries.length != names.length)
+            return null;
+        final long[][] throughput = new long[names.length][];
+        try {
+            for (final String entry : entries) {
+                final int colon = entry.indexOf(':');
+                final int index = colon >= 0 ? indexOf(names, entry.substring(0, colon).trim())
+                        : -1;
+                if (index < 0 || throughput[index] != null)
+                    return null;
+                final String[] values = entry.substring(colon + 1).split(",");
+                if (values.length != SIZE_CLASSES.length)
+                    return null;
+                throughput[index] = new long[values.length];
+                for (int j = 0; j < values.length; ++j)
+                    throughput[index][j] = Long.parseLong(values[j].trim());
+            }
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+        return throughput;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; ++i)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Writes the throughput of the given candidates to the given file,
+     * preserving the rankings of other hash functions and machines.
+     * 
+     * @param file the calibration cache file
+     * @param key the calibration key
+     * @param names the class names of the candidates
+     * @param throughput the throughput of each candidate in each size class
+     */
+    static void store(File file, String key, String[] names, long[][] throughput) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.length; ++i) {
+            if (i > 0)
+                sb.append(';');
+            sb.append(names[i]).append(':');
+            for (int j = 0; j < throughput[i].length; ++j) {
+                if (j > 0)
+                    sb.append(',');
+                sb.append(throughput[i][j]);
+            }
+        }
+        CalibrationSupport.store(file, key, sb.toString(),
+                "Calibrated hash provider throughput in MB/s for input sizes " +
+                        sizeClassList());
+    }
+
+    private static String sizeClassList() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < SIZE_CLASSES.length; ++i) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(SIZE_CLASSES[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Measures the throughput of each candidate in each size class, using the
+     * kind of hash function implied by the required flags. A candidate that
+     * fails to provide or compute the hash function has zero throughput.
+     * 
+     * @param params the parameters defining the hash function
+     * @param required the required support flags
+     * @param candidates the providers to time
+     * @return the throughput in MB/s of each candidate in each size class
+     */
+    static long[][] calibrate(HashParameters params, EnumSet<HashSupport> required,
+            List<HashProvider> candidates) {
+        final byte[] input = new byte[SIZE_CLASSES[SIZE_CLASSES.length - 1]];
+        final Probe[] probes = new Probe[candidates.size()];
+        for (int i = 0; i < probes.length; ++i) {
+            try {
+                probes[i] = probe(hash(candidates.get(i), params, required));
+                // warm up each candidate before timing any of them
+                time(probes[i], input, SIZE_CLASSES[0], 1);
+                time(probes[i], input, input.length, 1);
+            } catch (final RuntimeException e) {
+                probes[i] = null;
+            }
+        }
+        final long[][] throughput = new long[probes.length][SIZE_CLASSES.length];
+        for (int i = 0; i < probes.length; ++i) {
+            if (probes[i] == null)
+                continue;
+            try {
+                for (int j = 0; j < SIZE_CLASSES.length; ++j) {
+                    final long nanos = time(probes[i], input, SIZE_CLASSES[j],
+                            CALIBRATION_ROUNDS);
+                    final long bytes = (long) (CALIBRATION_BYTES / SIZE_CLASSES[j]) *
+                            SIZE_CLASSES[j];
+                    throughput[i][j] = Math.max(1, bytes * 1000 / Math.max(nanos, 1));
+                }
+            } catch (final RuntimeException e) {
+                throughput[i] = new long[SIZE_CLASSES.length];
+            }
+        }
+        return throughput;
+    }
+
+    private static long time(Probe probe, byte[] input, int length, int rounds) {
+        return CalibrationSupport.time(probe, input, length, CALIBRATION_BYTES, rounds);
+    }
+
+    /**
+     * Returns the hash function of the given candidate to be timed, of the
+     * kind implied by the required flags.
+     * 
+     * @param provider the candidate provider
+     * @param params the parameters defining the hash function
+     * @param required the required support flags
+     * @return the hash function to time
+     * @throws UnsupportedOperationException if the candidate cannot provide
+     *             the hash function
+     */
+    static Hash hash(HashProvider provider, HashParameters params,
+            EnumSet<HashSupport> required) {
+        if (required.contains(HashSupport.INT_SIZED))
+            return provider.getStatelessInt(params);
+        if (required.contains(HashSupport.LONG_SIZED))
+            return provider.getStatelessLong(params);
+        return provider.createStateful(params);
+    }
+
+    private static Probe probe(Hash hash) {
+        if (hash instanceof StatelessIntHash) {
+            final StatelessIntHash intHash = (StatelessIntHash) hash;
+            return new Probe() {
+                @Override
+                public long run(byte[] input, int length) {
+                    return intHash.calculate(input, 0, length);
+                }
+            };
+        }
+        if (hash instanceof StatelessLongHash) {
+            final StatelessLongHash longHash = (StatelessLongHash) hash;
+            return new Probe() {
+                @Override
+                public long run(byte[] input, int length) {
+                    return longHash.calculate(input, 0, length);
+                }
+            };
+        }
+        final StatefulHash statefulHash = (StatefulHash) hash;
+        return new Probe() {
+            @Override
+            public long run(byte[] input, int length) {
+                statefulHash.reset();
+                statefulHash.update(input, 0, length);
+                return statefulHash.getLong();
+            }
+        };
+    }
+
+    private static final class Ranking {
+
+        final String[] names;
+        final long[][] throughput;
+
+        Ranking(String[] names, long[][] throughput) {
+            this.names = names;
+            this.throughput = throughput;
+        }
+
+        boolean matches(String[] other) {
+            return Arrays.equals(names, other);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.ServiceConfigurationError;
+import java.util.Set;
+
+/**
+ * Discovers the registered {@link HashProvider} classes without instantiating
+ * them. Provider class names are read from the
+ * {@code META-INF/services/com.scurrilous.circe.HashProvider} files on the
+ * class path, as {@link java.util.ServiceLoader} would, and the parameter
+ * types and algorithms each provider supports are read from the
+ * {@code META-INF/circe/providers.properties} index generated when the
+ * provider module was built. Each provider is instantiated the first time a
+ * request matches it; providers missing from the index match every request.
+ */
+final class ProviderRegistry {
+
+    static final String SERVICES_RESOURCE = "META-INF/services/" + HashProvider.class.getName();
+    static final String INDEX_RESOURCE = "META-INF/circe/providers.properties";
+
+    private ProviderRegistry() {
+    }
+
+    /**
+     * A registered provider class, which is instantiated on first use.
+     */
+    static final class Entry {
+
+        private final String className;
+        private final ClassLoader loader;
+        private final Set<String> parameters;
+        private final Set<String> algorithms;
+        private volatile HashProvider provider;
+
+        Entry(String className, ClassLoader loader, Set<String> parameters,
+                Set<String> algorithms) {
+            this.className = className;
+            this.loader = loader;
+            this.parameters = parameters;
+            this.algorithms = algorithms;
+        }
+
+        /**
+         * Returns whether the provider may support the given parameters,
+         * according to the index.
+         * 
+         * @param params the hash parameters
+         * @return false if the provider cannot support the parameters
+         */
+        boolean accepts(HashParameters params) {
+            if (parameters == null)
+                return true;
+            if (!algorithms.isEmpty() && !algorithms.contains(params.algorithm()))
+                return false;
+            return isInstance(params.getClass());
+        }
+
+        private boolean isInstance(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                if (parameters.contains(c.getName()))
+                    return true;
+                for (final Class<?> i : c.getInterfaces())
+                    if (isInstance(i))
+                        return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns the provider instance, creating it if necessary.
+         * 
+         * @return the provider
+         * @throws ServiceConfigurationError if the provider cannot be
+         *             instantiated
+         */
+        HashProvider provider() {
+            HashProvider result = provider;
+            if (result == null) {
+                synchronized (this) {
+                    result = provider;
+                    if (result == null)
+                        provider = result = instantiate();
+                }
+            }
+            return result;
+        }
+
+        private HashProvider instantiate() {
+            try {
+                return Class.forName(className, true, loader).asSubclass(HashProvider.class)
+                        .getConstructor().newInstance();
+            } catch (final ReflectiveOperationException | ClassCastException e) {
+                throw new ServiceConfigurationError(HashProvider.class.getName() +
+                        ": Provider " + className + " could not be instantiated", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the providers registered with the given class loader, in the
+     * order {@link java.util.ServiceLoader} would instantiate them.
+     * 
+     * @param loader the class loader used to find and load providers, or null
+     *            for the system class loader
+     * @return the registered providers
+     * @throws ServiceConfigurationError if a services file or index cannot be
+     *             read
+     */
+    static List<Entry> load(ClassLoader loader) {
+        if (loader == null)
+            loader = ClassLoader.getSystemClassLoader();
+        final Set<String> classNames = new LinkedHashSet<>();
+        final Properties index = new Properties();
+        try {
+            for (final URL url : resources(loader, SERVICES_RESOURCE))
+                readServices(url, classNames);
+            for (final URL url : resources(loader, INDEX_RESOURCE)) {
+                try (InputStream in = url.openStream()) {
+                    index.load(in);
+                }
+            }
+        } catch (final IOException e) {
+            throw new ServiceConfigurationError(HashProvider.class.getName() +
+                    ": Error reading provider configuration", e);
+        }
+
+        final List<Entry> result = new ArrayList<>(classNames.size());
+        for (final String className : classNames) {
+            final String parameters = index.getProperty(className + ".parameters");
+            if (parameters == null) {
+                result.add(new Entry(className, loader, null, null));
+            } else {
+                final String algorithms = index.getProperty(className + ".algorithms", "");
+                result.add(new Entry(className, loader, split(parameters), split(algorithms)));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static List<URL> resources(ClassLoader loader, String name) throws IOException {
+        return Collections.list(loader.getResources(name));
+    }
+
+    private static void readServices(URL url, Set<String> classNames) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(),
+                "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                if (comment >= 0)
+                    line = line.substring(0, comment);
+                line = line.trim();
+                if (!line.isEmpty())
+                    classNames.add(line);
+            }
+        }
+    }
+
+    private static Set<String> split(String list) {
+        if (list.isEmpty())
+            return Collections.emptySet();
+        return new HashSet<>(Arrays.asList(list.split(",")));
+    }
+}
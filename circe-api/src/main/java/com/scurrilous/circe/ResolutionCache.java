@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded concurrent map that memoizes the results of resolving hash
+ * parameters to providers or hash functions. Lookups are lock-free reads of a
+ * {@link ConcurrentHashMap}. When the cache is full, an arbitrary entry is
+ * evicted to make room for a new one, so applications that construct
+ * unlimited distinct parameters cannot exhaust memory.
+ * <p>
+ * Clearing the cache advances its generation. A value resolved before a clear
+ * may reflect the provider support that the clear discarded, such as the
+ * fallback chosen while a native library was still loading, so it is
+ * returned to the caller but not cached.
+ * <p>
+ * The maximum size of each cache is given by the system property
+ * {@code com.scurrilous.circe.HashProviders.cacheSize}, which defaults to 256;
+ * zero disables caching.
+ * 
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class ResolutionCache<K, V> {
+
+    private static final int DEFAULT_MAX_SIZE = 256;
+    private static final int MAX_SIZE = getMaxSize();
+
+    private static int getMaxSize() {
+        try {
+            return Integer.getInteger(HashProviders.class.getName() + ".cacheSize",
+                    DEFAULT_MAX_SIZE);
+        } catch (final SecurityException e) {
+            return DEFAULT_MAX_SIZE;
+        }
+    }
+
+    private final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final int maxSize;
+
+    ResolutionCache() {
+        this(MAX_SIZE);
+    }
+
+    ResolutionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value cached for the given key.
+     * 
+     * @param key the key
+     * @return the cached value, or null if none
+     */
+    V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Returns the current generation of this cache, which changes whenever it
+     * is cleared. Callers should read the generation before resolving a value
+     * to {@linkplain #put put}.
+     * 
+     * @return the current generation
+     */
+    int generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the given value for the given key, unless another thread has
+     * already cached a value for it, in which case that value is returned.
+     * The value is not cached if the cache has been cleared since the given
+     * generation.
+     * 
+     * @param key the key
+     * @param value the resolved value
+     * @param generation the {@linkplain #generation generation} read before
+     *            the value was resolved
+     * @return the value now cached for the key, or the given value if caching
+     *         is disabled or the value is stale
+     */
+    V put(K key, V value, int generation) {
+        if (maxSize <= 0 || generation != this.generation.get())
+            return value;
+        if (map.size() >= maxSize) {
+            final Iterator<K> iter = map.keySet().iterator();
+            if (iter.hasNext()) {
+                iter.next();
+                iter.remove();
+            }
+        }
+        final V existing = map.putIfAbsent(key, value);
+        if (existing != null)
+            return existing;
+        // a concurrent clear may have run before the value was added
+        if (generation != this.generation.get())
+            map.remove(key, value);
+        return value;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * 
+     * @return the cache size
+     */
+    int size() {
+        return map.size();
+    }
+
+    /**
+     * Discards all cached entries.
+     */
+    void clear() {
+        generation.incrementAndGet();
+        map.clear();
+    }
+}
@@ -35,6 +35,9 @@ import com.scurrilous.circe.impl.HashCache;
  * {@code com.scurrilous.circe.GuavaHashCache.cacheSpec}. If no specification is
  * provided, the default configuration is an initial capacity of 4, a
  * concurrency level of 1, and soft values.
+ * <p>
+ * If Guava is absent, {@link HashCacheLoader} uses the built-in
+ * {@link ConcurrentHashCache} instead, which holds strong references.
  */
 public class GuavaHashCache implements HashCache {
 
@@ -18,6 +18,8 @@ package com.scurrilous.circe.impl;
 import static com.scurrilous.circe.HashSupport.INT_SIZED;
 import static com.scurrilous.circe.HashSupport.NATIVE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.EnumSet;
@@ -28,7 +30,10 @@ import org.junit.Test;
 import com.scurrilous.circe.Hash;
 import com.scurrilous.circe.HashParameters;
 import com.scurrilous.circe.HashProvider;
+import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.IncrementalIntHash;
+import com.scurrilous.circe.StatefulHash;
+import com.scurrilous.circe.StatelessHash;
 import com.scurrilous.circe.crc.StandardCrcProvider;
 import com.scurrilous.circe.params.CrcParameters;
 
@@ -61,6 +66,39 @@ public class GuavaHashCacheTest {
         }
     }
 
+    private static class TestStatelessHash extends TestHash implements StatelessHash {
+
+        @Override
+        public StatefulHash createStateful() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class TestProvider extends AbstractHashProvider<TestParams> {
+
+        TestProvider() {
+            super(TestParams.class);
+        }
+
+        @Override
+        protected EnumSet<HashSupport> querySupportTyped(TestParams params) {
+            return EnumSet.of(INT_SIZED);
+        }
+
+        @Override
+        protected Hash get(TestParams params, EnumSet<HashSupport> required) {
+            return getCacheable(params, required);
+        }
+
+        @Override
+        protected StatelessHash createCacheable(TestParams params, EnumSet<HashSupport> required) {
+            return new TestStatelessHash();
+        }
+    }
+
+    private static class OtherTestProvider extends TestProvider {
+    }
+
     private class HashLoader implements Callable<Hash> {
 
         private final Hash loadValue;
@@ -98,4 +136,15 @@ public class GuavaHashCacheTest {
         final IncrementalIntHash i2 = provider.getIncrementalInt(CrcParameters.CRC16);
         assertTrue(i1 == i2);
     }
+
+    @Test
+    public void testProviderKey() {
+        final TestParams p = new TestParams();
+        final EnumSet<HashSupport> required = EnumSet.of(INT_SIZED);
+        final Hash h1 = new TestProvider().get(p, required);
+        final Hash h2 = new OtherTestProvider().get(p, required);
+        assertSame(h1, new TestProvider().get(p, required));
+        assertNotSame(h1, h2);
+        assertSame(h2, new OtherTestProvider().get(p, required));
+    }
 }
@@ -16,12 +16,19 @@
 package com.scurrilous.circe;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.math.BigInteger;
 import java.nio.charset.Charset;
 
 import org.junit.Test;
 
+import com.scurrilous.circe.params.MurmurHash3Parameters;
+import com.scurrilous.circe.params.MurmurHash3Variant;
+import com.scurrilous.circe.params.SimpleHashParameters;
+
 @SuppressWarnings("javadoc")
 public class CommonHashesTest {
 
@@ -114,4 +121,42 @@ public class CommonHashesTest {
                 "d9e6762dd1c8eaf6d61b3c6192fc408d4d6d5f1176d0c29169bc24e71c3f274ad27fcd5811b313d681f7e55ec02d73d499c95455b6b5bb503acf574fba8ffe85",
                 hashBytes(CommonHashes.sha512()));
     }
+
+    @Test
+    public void testStatelessCached() {
+        assertSame(CommonHashes.crc32(), CommonHashes.crc32());
+        assertSame(CommonHashes.murmur3_32(0x1234), CommonHashes.murmur3_32(0x1234));
+        assertSame(Hashes.getStatelessInt(new MurmurHash3Parameters(MurmurHash3Variant.X86_32)),
+                Hashes.getStatelessInt(new MurmurHash3Parameters(MurmurHash3Variant.X86_32)));
+    }
+
+    @Test
+    public void testStatefulNotShared() {
+        final StatefulHash h1 = CommonHashes.sha256();
+        final StatefulHash h2 = CommonHashes.sha256();
+        assertNotSame(h1, h2);
+        h1.update(DIGITS);
+        assertHexEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225",
+                hashBytes(h2));
+    }
+
+    @Test
+    public void testClearCache() {
+        final HashProvider provider = HashProviders.best(SimpleHashParameters.MD5);
+        HashProviders.clearCache();
+        assertSame(provider.getClass(), HashProviders.best(SimpleHashParameters.MD5).getClass());
+        assertHexEquals("25f9e794323b453885f5181f1b624d0b", hashBytes(CommonHashes.md5()));
+    }
+
+    @Test
+    public void testStaleResolutionNotCached() {
+        final ResolutionCache<String, String> cache = new ResolutionCache<>(4);
+        final int generation = cache.generation();
+        cache.clear();
+        assertEquals("stale", cache.put("key", "stale", generation));
+        assertNull(cache.get("key"));
+        assertEquals("fresh", cache.put("key", "fresh", cache.generation()));
+        assertEquals("fresh", cache.get("key"));
+        assertEquals("fresh", cache.put("key", "other", cache.generation()));
+    }
 }
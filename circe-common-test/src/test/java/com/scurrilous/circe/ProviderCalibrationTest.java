@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.scurrilous.circe.crc.StandardCrcProvider;
+import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.AbstractStatelessIntHash;
+import com.scurrilous.circe.params.CrcParameters;
+import com.scurrilous.circe.params.MurmurHash3Parameters;
+import com.scurrilous.circe.params.MurmurHash3Variant;
+import com.scurrilous.circe.params.SimpleHashParameters;
+
+@SuppressWarnings("javadoc")
+public class ProviderCalibrationTest {
+
+    private static final EnumSet<HashSupport> STATEFUL = EnumSet.of(HashSupport.STATEFUL);
+
+    // caches a stateless hash for the same parameters as StandardCrcProvider
+    private static final class TestCrcProvider extends AbstractHashProvider<CrcParameters> {
+
+        TestCrcProvider() {
+            super(CrcParameters.class);
+        }
+
+        @Override
+        protected EnumSet<HashSupport> querySupportTyped(CrcParameters params) {
+            return EnumSet.of(HashSupport.INT_SIZED);
+        }
+
+        @Override
+        protected Hash get(CrcParameters params, EnumSet<HashSupport> required) {
+            return getCacheable(params, required);
+        }
+
+        @Override
+        protected StatelessHash createCacheable(final CrcParameters params,
+                EnumSet<HashSupport> required) {
+            return new AbstractStatelessIntHash() {
+                @Override
+                public String algorithm() {
+                    return params.algorithm();
+                }
+
+                @Override
+                public int length() {
+                    return 4;
+                }
+
+                @Override
+                public StatefulIntHash createStateful() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                protected int calculateUnchecked(byte[] input, int index, int length) {
+                    return 0;
+                }
+            };
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSizeClass() {
+        assertEquals(0, ProviderCalibration.sizeClass(0));
+        assertEquals(0, ProviderCalibration.sizeClass(16));
+        assertEquals(1, ProviderCalibration.sizeClass(100));
+        assertEquals(2, ProviderCalibration.sizeClass(4096));
+        assertEquals(3, ProviderCalibration.sizeClass(1 << 20));
+    }
+
+    @Test
+    public void testSelect() {
+        final long[][] throughput = { { 100, 200, 300, 400 }, { 50, 400, 600, 100 } };
+        assertEquals(0, ProviderCalibration.select(throughput, 0));
+        assertEquals(1, ProviderCalibration.select(throughput, 1));
+        assertEquals(1, ProviderCalibration.select(throughput, 2));
+        assertEquals(0, ProviderCalibration.select(throughput, 3));
+        assertEquals(0, ProviderCalibration.select(throughput, -1));
+        assertEquals(0, ProviderCalibration.select(new long[][] { { 1, 1, 1, 1 },
+                { 1, 1, 1, 1 } }, -1));
+    }
+
+    @Test
+    public void testKey() {
+        final String key = ProviderCalibration.key(CrcParameters.CRC32, STATEFUL);
+        assertNotNull(key);
+        assertTrue(key.startsWith(ProviderCalibration.machineKey()));
+        assertEquals(key, ProviderCalibration.key(new CrcParameters("CRC-32", 32, 0x04c11db7,
+                ~0, ~0, true), STATEFUL));
+        assertNull(ProviderCalibration.key(new HashParameters() {
+            @Override
+            public String algorithm() {
+                return "TEST";
+            }
+        }, STATEFUL));
+    }
+
+    @Test
+    public void testKeyDescribesFields() {
+        // enums have identity hash codes, so the key must not depend on them
+        final String key = ProviderCalibration.key(new MurmurHash3Parameters(
+                MurmurHash3Variant.X86_32, 42), STATEFUL);
+        assertNotNull(key);
+        assertTrue(key, key.contains(MurmurHash3Parameters.class.getName() +
+                "{seed=42,variant=X86_32}"));
+        assertEquals(key, ProviderCalibration.key(new MurmurHash3Parameters(
+                MurmurHash3Variant.X86_32, 42), STATEFUL));
+        assertNotEquals(key, ProviderCalibration.key(new MurmurHash3Parameters(
+                MurmurHash3Variant.X64_128, 42), STATEFUL));
+    }
+
+    @Test
+    public void testStoreAndLoad() throws IOException {
+        final File file = new File(folder.getRoot(), "providers.properties");
+        final String[] names = { "a.Provider", "b.Provider" };
+        final long[][] throughput = { { 1, 2, 3, 4 }, { 5, 6, 7, 8 } };
+        assertNull(ProviderCalibration.load(file, "key", names));
+        ProviderCalibration.store(file, "key", names, throughput);
+        ProviderCalibration.store(file, "other", names, new long[][] { { 0, 0, 0, 0 },
+                { 0, 0, 0, 0 } });
+
+        final long[][] loaded = ProviderCalibration.load(file, "key", names);
+        assertNotNull(loaded);
+        assertArrayEquals(throughput[0], loaded[0]);
+        assertArrayEquals(throughput[1], loaded[1]);
+
+        final long[][] reordered = ProviderCalibration.load(file, "key", new String[] {
+                "b.Provider", "a.Provider" });
+        assertNotNull(reordered);
+        assertArrayEquals(throughput[1], reordered[0]);
+        assertArrayEquals(throughput[0], reordered[1]);
+
+        assertNull(ProviderCalibration.load(file, "key", new String[] { "a.Provider" }));
+        assertNull(ProviderCalibration.load(file, "key", new String[] { "a.Provider",
+                "c.Provider" }));
+    }
+
+    @Test
+    public void testCalibrate() {
+        final HashProvider crc = HashProviders.best(CrcParameters.CRC32);
+        final HashProvider digest = HashProviders.best(SimpleHashParameters.MD5);
+        assertNotSame(crc, digest);
+        final long[][] throughput = ProviderCalibration.calibrate(CrcParameters.CRC32, STATEFUL,
+                Arrays.asList(crc, digest));
+        for (int j = 0; j < ProviderCalibration.SIZE_CLASSES.length; ++j) {
+            assertTrue(throughput[0][j] > 0);
+            // the digest provider does not support CRCs
+            assertEquals(0, throughput[1][j]);
+        }
+        assertEquals(0, ProviderCalibration.select(throughput, -1));
+    }
+
+    @Test
+    public void testCandidatesDistinct() {
+        // this module registers a hash cache, which is shared by providers
+        final EnumSet<HashSupport> required = EnumSet.of(HashSupport.INT_SIZED);
+        final Hash standard = ProviderCalibration.hash(new StandardCrcProvider(),
+                CrcParameters.CRC32C, required);
+        final Hash test = ProviderCalibration.hash(new TestCrcProvider(), CrcParameters.CRC32C,
+                required);
+        assertNotSame(standard, test);
+        assertSame(standard, ProviderCalibration.hash(new StandardCrcProvider(),
+                CrcParameters.CRC32C, required));
+    }
+}
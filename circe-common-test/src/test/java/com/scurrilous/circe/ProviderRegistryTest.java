@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.scurrilous.circe.params.CrcParameters;
+import com.scurrilous.circe.params.MurmurHash3Parameters;
+import com.scurrilous.circe.params.MurmurHash3Variant;
+import com.scurrilous.circe.params.SimpleHashParameters;
+import com.scurrilous.circe.params.SipHash24Parameters;
+
+@SuppressWarnings("javadoc")
+public class ProviderRegistryTest {
+
+    private static ProviderRegistry.Entry find(String className) {
+        final List<ProviderRegistry.Entry> entries = ProviderRegistry.load(
+                ProviderRegistryTest.class.getClassLoader());
+        for (final ProviderRegistry.Entry entry : entries)
+            if (entry.provider().getClass().getName().equals(className))
+                return entry;
+        return null;
+    }
+
+    @Test
+    public void testIndexedTypes() {
+        final ProviderRegistry.Entry guava = find("com.scurrilous.circe.guava.GuavaHashProvider");
+        assertNotNull(guava);
+        assertTrue(guava.accepts(new MurmurHash3Parameters(MurmurHash3Variant.X86_32)));
+        assertTrue(guava.accepts(new SipHash24Parameters()));
+        assertFalse(guava.accepts(CrcParameters.CRC32));
+        assertFalse(guava.accepts(SimpleHashParameters.MD5));
+
+        final ProviderRegistry.Entry crc = find("com.scurrilous.circe.crc.StandardCrcProvider");
+        assertNotNull(crc);
+        assertTrue(crc.accepts(CrcParameters.CRC32));
+        assertTrue(crc.accepts(new CrcParameters("CRC-16/CUSTOM", 16, 0x8005, 0, 0, true)));
+        assertFalse(crc.accepts(SimpleHashParameters.MD5));
+    }
+
+    @Test
+    public void testIndexedAnyType() {
+        final ProviderRegistry.Entry digest = find(
+                "com.scurrilous.circe.digest.DigestHashProvider");
+        assertNotNull(digest);
+        assertTrue(digest.accepts(SimpleHashParameters.SHA256));
+        assertTrue(digest.accepts(CrcParameters.CRC32));
+    }
+
+    @Test
+    public void testProviderShared() {
+        final ProviderRegistry.Entry entry = find("com.scurrilous.circe.digest.DigestHashProvider");
+        assertSame(entry.provider(), entry.provider());
+    }
+
+    @Test
+    public void testBest() {
+        assertEquals("com.scurrilous.circe.guava.GuavaHashProvider",
+                HashProviders.best(new SipHash24Parameters(1, 2)).getClass().getName());
+    }
+}
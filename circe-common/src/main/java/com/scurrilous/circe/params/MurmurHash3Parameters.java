@@ -70,4 +70,19 @@ public final class MurmurHash3Parameters implements HashParameters {
     public String algorithm() {
         return variant.algorithm();
     }
+
+    @Override
+    public int hashCode() {
+        return variant.ordinal() * 31 + seed;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (obj == null || obj.getClass() != MurmurHash3Parameters.class)
+            return false;
+        final MurmurHash3Parameters other = (MurmurHash3Parameters) obj;
+        return variant == other.variant && seed == other.seed;
+    }
 }
@@ -66,4 +66,20 @@ public final class SipHash24Parameters implements HashParameters {
     public String algorithm() {
         return "SipHash-2-4";
     }
+
+    @Override
+    public int hashCode() {
+        final long seed = seedLow * 31 + seedHigh;
+        return (int) (seed ^ (seed >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (obj == null || obj.getClass() != SipHash24Parameters.class)
+            return false;
+        final SipHash24Parameters other = (SipHash24Parameters) obj;
+        return seedLow == other.seedLow && seedHigh == other.seedHigh;
+    }
 }
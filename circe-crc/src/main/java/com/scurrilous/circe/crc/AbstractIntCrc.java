@@ -15,17 +15,21 @@
  ******************************************************************************/
 package com.scurrilous.circe.crc;
 
+import java.nio.ByteBuffer;
+
+import com.scurrilous.circe.CombinableIntHash;
 import com.scurrilous.circe.impl.AbstractIncrementalIntHash;
 
 /**
  * Base implementation of int-width CRC functions.
  */
-abstract class AbstractIntCrc extends AbstractIncrementalIntHash {
+abstract class AbstractIntCrc extends AbstractIncrementalIntHash implements CombinableIntHash {
 
     private final String algorithm;
     protected final int bitWidth;
     private final int initial;
     private final int xorOut;
+    private volatile CrcCombiner combiner;
 
     AbstractIntCrc(String algorithm, int bitWidth, int initial, int xorOut) {
         if (bitWidth < 1 || bitWidth > 32)
@@ -56,8 +60,41 @@ abstract class AbstractIntCrc extends AbstractIncrementalIntHash {
         return resumeRaw(current ^ xorOut, input, index, length) ^ xorOut;
     }
 
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer input, int index, int length) {
+        return resumeRaw(current ^ xorOut, input, index, length) ^ xorOut;
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        return UnsafeAccess.isSupported();
+    }
+
+    @Override
+    public int resume(int current, long address, long length) {
+        if (!supportsUnsafe())
+            throw new UnsupportedOperationException();
+        return resumeRaw(current ^ xorOut, address, length) ^ xorOut;
+    }
+
+    @Override
+    public int combine(int current, int next, long nextLength) {
+        if (nextLength < 0)
+            throw new IllegalArgumentException();
+        CrcCombiner c = combiner;
+        if (c == null)
+            combiner = c = new CrcCombiner(CrcShift.zeroByteMatrix(this));
+        // the raw CRC is linear in its register, so crc(A || B) =
+        // shift(crc(A) ^ crc(empty), |B|) ^ crc(B)
+        return (int) c.shift(current ^ initial(), nextLength) ^ next;
+    }
+
     protected abstract int resumeRaw(int crc, byte[] input, int index, int length);
 
+    protected abstract int resumeRaw(int crc, ByteBuffer input, int index, int length);
+
+    protected abstract int resumeRaw(int crc, long address, long length);
+
     protected final int reflect(int value) {
         return Integer.reverse(value) >>> (32 - bitWidth);
     }
@@ -15,17 +15,21 @@
  ******************************************************************************/
 package com.scurrilous.circe.crc;
 
+import java.nio.ByteBuffer;
+
+import com.scurrilous.circe.CombinableLongHash;
 import com.scurrilous.circe.impl.AbstractIncrementalLongHash;
 
 /**
  * Base implementation of long-width CRC functions.
  */
-abstract class AbstractLongCrc extends AbstractIncrementalLongHash {
+abstract class AbstractLongCrc extends AbstractIncrementalLongHash implements CombinableLongHash {
 
     private final String algorithm;
     protected final int bitWidth;
     private final long initial;
     private final long xorOut;
+    private volatile CrcCombiner combiner;
 
     AbstractLongCrc(String algorithm, int bitWidth, long initial, long xorOut) {
         if (bitWidth < 1 || bitWidth > 64)
@@ -56,8 +60,41 @@ abstract class AbstractLongCrc extends AbstractIncrementalLongHash {
         return resumeRaw(current ^ xorOut, input, index, length) ^ xorOut;
     }
 
+    @Override
+    protected long resumeUnchecked(long current, ByteBuffer input, int index, int length) {
+        return resumeRaw(current ^ xorOut, input, index, length) ^ xorOut;
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        return UnsafeAccess.isSupported();
+    }
+
+    @Override
+    public long resume(long current, long address, long length) {
+        if (!supportsUnsafe())
+            throw new UnsupportedOperationException();
+        return resumeRaw(current ^ xorOut, address, length) ^ xorOut;
+    }
+
+    @Override
+    public long combine(long current, long next, long nextLength) {
+        if (nextLength < 0)
+            throw new IllegalArgumentException();
+        CrcCombiner c = combiner;
+        if (c == null)
+            combiner = c = new CrcCombiner(CrcShift.zeroByteMatrix(this));
+        // the raw CRC is linear in its register, so crc(A || B) =
+        // shift(crc(A) ^ crc(empty), |B|) ^ crc(B)
+        return c.shift(current ^ initial(), nextLength) ^ next;
+    }
+
     protected abstract long resumeRaw(long crc, byte[] input, int index, int length);
 
+    protected abstract long resumeRaw(long crc, ByteBuffer input, int index, int length);
+
+    protected abstract long resumeRaw(long crc, long address, long length);
+
     protected final long reflect(long value) {
         return Long.reverse(value) >>> (64 - bitWidth);
     }
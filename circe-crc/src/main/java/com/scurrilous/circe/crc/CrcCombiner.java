@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+/**
+ * Combines the CRCs of consecutive inputs by shifting the CRC of the first
+ * input by the length of the second. The shift operators for each power-of-two
+ * length are computed once by repeated squaring of the zero-byte operator, so
+ * that shifting by an arbitrary length requires only one GF(2) matrix-vector
+ * multiplication per set bit of the length.
+ */
+final class CrcCombiner {
+
+    private final long[][] powers = new long[63][];
+
+    /**
+     * Constructs a combiner for the given zero-byte operator.
+     * 
+     * @param zeroByte the zero-byte operator matrix
+     * @see CrcShift#zeroByteMatrix
+     */
+    CrcCombiner(long[] zeroByte) {
+        powers[0] = zeroByte;
+        for (int k = 1; k < powers.length; ++k)
+            powers[k] = Gf2.multiply(powers[k - 1], powers[k - 1]);
+    }
+
+    /**
+     * Appends the given number of zero bytes to a raw CRC register.
+     * 
+     * @param crc the raw CRC register
+     * @param length the non-negative number of zero bytes
+     * @return the shifted CRC register
+     */
+    long shift(long crc, long length) {
+        for (int k = 0; length != 0; ++k, length >>>= 1)
+            if ((length & 1) != 0)
+                crc = Gf2.multiply(powers[k], crc);
+        return crc;
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+/**
+ * Applies the linear operator that appends a fixed number of zero bytes to a
+ * raw (not inverted) CRC register. The operator is evaluated using one lookup
+ * table per byte of CRC width, each indexed by the corresponding byte of the
+ * register. Shifting a CRC by the length of a following input allows CRCs of
+ * independently processed inputs to be combined:
+ * 
+ * <pre>
+ * raw(crc, A || B) = shift(raw(crc, A), |B|) ^ raw(0, B)
+ * </pre>
+ */
+final class CrcShift {
+
+    private final int bytes;
+    private final long[] table;
+
+    /**
+     * Constructs a shift operator from its GF(2) matrix representation.
+     * 
+     * @param matrix a matrix whose order is the CRC width
+     */
+    CrcShift(long[] matrix) {
+        bytes = (matrix.length + 7) / 8;
+        table = new long[bytes * 256];
+        for (int k = 0; k < bytes; ++k)
+            for (int i = 0; i < 256; ++i)
+                table[k * 256 + i] = Gf2.multiply(matrix, (long) i << (k * 8));
+    }
+
+    /**
+     * Returns the zero-byte operator for the given CRC, which is the matrix
+     * whose columns are the raw CRC of a single zero byte resumed from each
+     * single-bit register value.
+     * 
+     * @param crc the CRC function
+     * @return a new matrix representing the operator for one zero byte
+     */
+    static long[] zeroByteMatrix(AbstractIntCrc crc) {
+        final long[] result = new long[crc.bitWidth];
+        final byte[] zero = new byte[1];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = crc.resumeRaw(1 << i, zero, 0, 1) & 0xffffffffL;
+        return result;
+    }
+
+    /**
+     * Returns the zero-byte operator for the given CRC, which is the matrix
+     * whose columns are the raw CRC of a single zero byte resumed from each
+     * single-bit register value.
+     * 
+     * @param crc the CRC function
+     * @return a new matrix representing the operator for one zero byte
+     */
+    static long[] zeroByteMatrix(AbstractLongCrc crc) {
+        final long[] result = new long[crc.bitWidth];
+        final byte[] zero = new byte[1];
+        for (int i = 0; i < result.length; ++i)
+            result[i] = crc.resumeRaw(1L << i, zero, 0, 1);
+        return result;
+    }
+
+    /**
+     * Returns the operator that appends the given number of zero bytes.
+     * 
+     * @param zeroByte the zero-byte operator matrix
+     * @param length the number of zero bytes
+     * @return a new shift operator
+     */
+    static CrcShift forLength(long[] zeroByte, long length) {
+        return new CrcShift(Gf2.pow(zeroByte, length));
+    }
+
+    /**
+     * Applies this operator to a raw int-width CRC register.
+     * 
+     * @param crc the raw CRC register
+     * @return the shifted CRC register
+     */
+    int apply(int crc) {
+        final long[] t = table;
+        int result = (int) t[crc & 0xff];
+        for (int k = 1; k < bytes; ++k)
+            result ^= (int) t[k * 256 + ((crc >>> (k * 8)) & 0xff)];
+        return result;
+    }
+
+    /**
+     * Applies this operator to a raw long-width CRC register.
+     * 
+     * @param crc the raw CRC register
+     * @return the shifted CRC register
+     */
+    long apply(long crc) {
+        final long[] t = table;
+        long result = t[(int) crc & 0xff];
+        for (int k = 1; k < bytes; ++k)
+            result ^= t[k * 256 + ((int) (crc >>> (k * 8)) & 0xff)];
+        return result;
+    }
+}
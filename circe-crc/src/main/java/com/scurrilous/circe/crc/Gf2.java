@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+/**
+ * Provides operations on square bit matrices over GF(2), which are used to
+ * manipulate the linear operators underlying CRC calculation. A matrix of
+ * order N is represented as an array of N columns, where bit {@code i} of each
+ * column is the element in row {@code i}. Matrices of up to order 64 are
+ * supported.
+ */
+final class Gf2 {
+
+    private Gf2() {
+    }
+
+    /**
+     * Returns the identity matrix of the given order.
+     * 
+     * @param n the order of the matrix
+     * @return a new identity matrix
+     */
+    static long[] identity(int n) {
+        final long[] result = new long[n];
+        for (int i = 0; i < n; ++i)
+            result[i] = 1L << i;
+        return result;
+    }
+
+    /**
+     * Multiplies matrix A by column vector B. Since addition corresponds to
+     * XOR and multiplication to AND, the product is the XOR of the columns of
+     * A selected by the set bits of B. Bits of B beyond the order of A are
+     * ignored.
+     * 
+     * @param a a matrix
+     * @param b a column vector
+     * @return the product AB
+     */
+    static long multiply(long[] a, long b) {
+        long result = 0;
+        for (int i = 0; b != 0 && i < a.length; ++i, b >>>= 1)
+            result ^= a[i] & -(b & 1);
+        return result;
+    }
+
+    /**
+     * Multiplies matrix A by matrix B of the same order.
+     * 
+     * @param a a matrix
+     * @param b a matrix
+     * @return a new matrix containing the product AB
+     */
+    static long[] multiply(long[] a, long[] b) {
+        final long[] result = new long[b.length];
+        for (int i = 0; i < b.length; ++i)
+            result[i] = multiply(a, b[i]);
+        return result;
+    }
+
+    /**
+     * Raises a matrix to the given power by repeated squaring.
+     * 
+     * @param a a matrix
+     * @param n a non-negative exponent
+     * @return a new matrix containing A to the power n
+     */
+    static long[] pow(long[] a, long n) {
+        if (n < 0)
+            throw new IllegalArgumentException();
+        long[] result = identity(a.length);
+        long[] square = a;
+        while (n != 0) {
+            if ((n & 1) != 0)
+                result = multiply(result, square);
+            if ((n >>>= 1) != 0)
+                square = multiply(square, square);
+        }
+        return result;
+    }
+
+    /**
+     * Inverts a matrix using Gauss-Jordan elimination on its columns. Column
+     * operations correspond to multiplication on the right by elementary
+     * matrices, so applying the same operations to the identity matrix that
+     * reduce A to the identity yields the inverse of A.
+     * 
+     * @param a a matrix
+     * @return a new matrix containing the inverse of A
+     * @throws IllegalArgumentException if the matrix is singular
+     */
+    static long[] invert(long[] a) {
+        final int n = a.length;
+        final long[] work = a.clone();
+        final long[] result = identity(n);
+        for (int r = 0; r < n; ++r) {
+            final long bit = 1L << r;
+            int pivot = r;
+            while (pivot < n && (work[pivot] & bit) == 0)
+                ++pivot;
+            if (pivot == n)
+                throw new IllegalArgumentException("singular matrix");
+            swap(work, r, pivot);
+            swap(result, r, pivot);
+            for (int c = 0; c < n; ++c) {
+                if (c != r && (work[c] & bit) != 0) {
+                    work[c] ^= work[r];
+                    result[c] ^= result[r];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        final long temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.util.EnumSet;
+import java.util.zip.Checksum;
+
+import com.scurrilous.circe.Hash;
+import com.scurrilous.circe.HashSupport;
+import com.scurrilous.circe.StatelessHash;
+import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
+import com.scurrilous.circe.params.CrcParameters;
+
+/**
+ * Provides CRC-32C using {@code java.util.zip.CRC32C}, when supported by the
+ * runtime (Java 9 and later). The JVM intrinsifies this class on x86 and
+ * AArch64, which provides hardware-accelerated CRC-32C without a native
+ * library.
+ * <p>
+ * The JDK class computes only 32-bit incremental CRCs, so this provider does
+ * not report {@link HashSupport#LONG_SIZED} support, and long-sized
+ * incremental CRC-32C is left to other providers.
+ */
+@ProviderIndex(parameters = CrcParameters.class)
+public final class JavaCrc32CProvider extends AbstractHashProvider<CrcParameters> {
+
+    private static final Class<? extends Checksum> CRC32C_CLASS = findCrc32C();
+    private static final boolean HARDWARE_ARCH = isHardwareArch();
+
+    private static Class<? extends Checksum> findCrc32C() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class);
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static boolean isHardwareArch() {
+        String arch;
+        try {
+            arch = System.getProperty("os.arch");
+        } catch (final SecurityException e) {
+            arch = null;
+        }
+        return "amd64".equals(arch) || "x86_64".equals(arch) || "aarch64".equals(arch);
+    }
+
+    /**
+     * Returns whether {@code java.util.zip.CRC32C} is available in the current
+     * runtime.
+     * 
+     * @return true if this provider supports CRC-32C
+     */
+    public static boolean isSupported() {
+        return CRC32C_CLASS != null;
+    }
+
+    /**
+     * Constructs a new {@link JavaCrc32CProvider}.
+     */
+    public JavaCrc32CProvider() {
+        super(CrcParameters.class);
+    }
+
+    @Override
+    protected EnumSet<HashSupport> querySupportTyped(CrcParameters params) {
+        if (!params.equals(CrcParameters.CRC32C) || !isSupported())
+            return EnumSet.noneOf(HashSupport.class);
+        final EnumSet<HashSupport> result = EnumSet.of(HashSupport.STATEFUL,
+                HashSupport.INCREMENTAL, HashSupport.STATELESS_INCREMENTAL,
+                HashSupport.INT_SIZED);
+        if (UnsafeAccess.isSupported())
+            result.add(HashSupport.UNSAFE_INCREMENTAL);
+        if (HARDWARE_ARCH) {
+            result.add(HashSupport.HARDWARE);
+            result.add(HashSupport.HARDWARE_INCREMENTAL);
+        }
+        return result;
+    }
+
+    @Override
+    protected Hash get(CrcParameters params, EnumSet<HashSupport> required) {
+        if (params.equals(CrcParameters.CRC32C) && isSupported())
+            return getCacheable(params, required);
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected StatelessHash createCacheable(CrcParameters params, EnumSet<HashSupport> required) {
+        final SlicedReflectedIntCrc fallback = new SlicedReflectedIntCrc(params.algorithm(),
+                params.bitWidth(), (int) params.polynomial(), (int) params.initial(),
+                (int) params.xorOut(), 8);
+        return new JavaIncrementalCrc(CRC32C_CLASS, fallback);
+    }
+}
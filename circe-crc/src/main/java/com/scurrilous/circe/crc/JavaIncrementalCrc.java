@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+import com.scurrilous.circe.CombinableIntHash;
+import com.scurrilous.circe.impl.AbstractIncrementalIntHash;
+
+/**
+ * Implements a reflected 32-bit CRC with an all-ones initial value and output
+ * XOR, such as CRC-32 or CRC-32C, as an incremental stateless hash function
+ * using a JDK {@link Checksum} class. These classes are typically intrinsified
+ * by the JVM to use hardware carry-less multiplication or CRC instructions.
+ * <p>
+ * Since a {@link Checksum} can only start from the initial CRC state, resuming
+ * from another CRC value is performed by first updating it with a 4-byte seed
+ * that brings its register to the desired state. The seed is computed by
+ * applying the inverse of the 4-zero-byte shift operator to the desired
+ * register value.
+ * <p>
+ * Direct buffers are passed to the {@code update(ByteBuffer)} method of the
+ * checksum class, if it has one. Unsafe memory access and combining are
+ * delegated to a pure Java implementation of the same CRC.
+ */
+final class JavaIncrementalCrc extends AbstractIncrementalIntHash implements CombinableIntHash {
+
+    private final Class<? extends Checksum> checksumClass;
+    private final MethodHandle updateBuffer;
+    private final AbstractIntCrc fallback;
+    private final CrcShift seedShift;
+
+    private final ThreadLocal<Checksum> checksums = new ThreadLocal<Checksum>() {
+        @Override
+        protected Checksum initialValue() {
+            try {
+                return checksumClass.newInstance();
+            } catch (final ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    /**
+     * Constructs a new {@link JavaIncrementalCrc}.
+     * 
+     * @param checksumClass the JDK checksum class, which must have a public
+     *            no-argument constructor
+     * @param fallback a pure Java implementation of the same CRC
+     */
+    JavaIncrementalCrc(Class<? extends Checksum> checksumClass, AbstractIntCrc fallback) {
+        this.checksumClass = checksumClass;
+        this.updateBuffer = findUpdateBuffer(checksumClass);
+        this.fallback = fallback;
+        final long[] shift4 = Gf2.pow(CrcShift.zeroByteMatrix(fallback), 4);
+        seedShift = new CrcShift(Gf2.invert(shift4));
+    }
+
+    private static MethodHandle findUpdateBuffer(Class<? extends Checksum> checksumClass) {
+        try {
+            return MethodHandles
+                    .publicLookup()
+                    .findVirtual(checksumClass, "update",
+                            MethodType.methodType(void.class, ByteBuffer.class))
+                    .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String algorithm() {
+        return fallback.algorithm();
+    }
+
+    @Override
+    public int length() {
+        return 4;
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        return fallback.supportsUnsafe();
+    }
+
+    @Override
+    public int resume(int current, long address, long length) {
+        return fallback.resume(current, address, length);
+    }
+
+    @Override
+    public int combine(int current, int next, long nextLength) {
+        return fallback.combine(current, next, nextLength);
+    }
+
+    @Override
+    protected int initial() {
+        return 0;
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, byte[] input, int index, int length) {
+        final Checksum checksum = seeded(current);
+        checksum.update(input, index, length);
+        return (int) checksum.getValue();
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer input, int index, int length) {
+        if (updateBuffer == null)
+            return fallback.resumeUnchecked(current, input, index, length);
+        final ByteBuffer range = input.duplicate();
+        range.limit(index + length).position(index);
+        final Checksum checksum = seeded(current);
+        try {
+            updateBuffer.invokeExact(checksum, range);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return (int) checksum.getValue();
+    }
+
+    private Checksum seeded(int current) {
+        final Checksum checksum = checksums.get();
+        checksum.reset();
+        if (current != 0) {
+            // the checksum value is the inverted register, which starts at ~0;
+            // updating with the 4 bytes of w yields a register of
+            // shift4(~0 ^ w), so w = ~0 ^ shift4^-1(~current)
+            final int seed = ~seedShift.apply(~current);
+            checksum.update(seed);
+            checksum.update(seed >>> 8);
+            checksum.update(seed >>> 16);
+            checksum.update(seed >>> 24);
+        }
+        return checksum;
+    }
+}
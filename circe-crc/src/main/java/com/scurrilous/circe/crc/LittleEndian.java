@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Static utility methods for reading little-endian values from byte arrays and
+ * buffers.
+ */
+final class LittleEndian {
+
+    private LittleEndian() {
+    }
+
+    /**
+     * Returns the little-endian {@code long} at the given index of the given
+     * array. The index is not checked.
+     * 
+     * @param input the input array
+     * @param index the index of the least significant byte
+     * @return the 8 bytes at the given index as a little-endian long
+     */
+    static long getLong(byte[] input, int index) {
+        return (input[index] & 0xffL) | (input[index + 1] & 0xffL) << 8 |
+                (input[index + 2] & 0xffL) << 16 | (input[index + 3] & 0xffL) << 24 |
+                (input[index + 4] & 0xffL) << 32 | (input[index + 5] & 0xffL) << 40 |
+                (input[index + 6] & 0xffL) << 48 | (input[index + 7] & 0xffL) << 56;
+    }
+
+    /**
+     * Returns the little-endian {@code long} at the given absolute index of the
+     * given buffer, regardless of the byte order of the buffer. The index is
+     * checked by the buffer, and the buffer position is not modified.
+     * 
+     * @param input the input buffer
+     * @param index the index of the least significant byte
+     * @return the 8 bytes at the given index as a little-endian long
+     */
+    static long getLong(ByteBuffer input, int index) {
+        final long value = input.getLong(index);
+        return input.order() == ByteOrder.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+    }
+}
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.scurrilous.circe.crc;
 
+import java.nio.ByteBuffer;
+
 /**
  * Implements a "normal" MSB-first byte-width CRC function using a lookup table.
  */
@@ -43,4 +45,20 @@ final class NormalByteCrc extends AbstractIntCrc {
             crc = table[(crc << (8 - bitWidth)) ^ (input[index + i] & 0xff)] & 0xff;
         return crc;
     }
+
+    @Override
+    protected int resumeRaw(int crc, ByteBuffer input, int index, int length) {
+        for (int i = 0; i < length; ++i)
+            crc = table[(crc << (8 - bitWidth)) ^ (input.get(index + i) & 0xff)] & 0xff;
+        return crc;
+    }
+
+    @Override
+    protected int resumeRaw(int crc, long address, long length) {
+        for (long i = 0; i < length; ++i) {
+            final int b = UnsafeAccess.getByte(address + i) & 0xff;
+            crc = table[(crc << (8 - bitWidth)) ^ b] & 0xff;
+        }
+        return crc;
+    }
 }
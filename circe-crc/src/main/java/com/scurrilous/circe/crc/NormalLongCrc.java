@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.scurrilous.circe.crc;
 
+import java.nio.ByteBuffer;
+
 /**
  * Implements a "normal" MSB-first long-width CRC function using a lookup table.
  * Does not support bit-widths less than 8.
@@ -45,4 +47,21 @@ final class NormalLongCrc extends AbstractLongCrc {
             crc = table[(int) ((crc >>> (bitWidth - 8)) ^ input[index + i]) & 0xff] ^ (crc << 8);
         return crc & widthMask;
     }
+
+    @Override
+    protected long resumeRaw(long crc, ByteBuffer input, int index, int length) {
+        for (int i = 0; i < length; ++i)
+            crc = table[(int) ((crc >>> (bitWidth - 8)) ^ input.get(index + i)) & 0xff] ^
+                    (crc << 8);
+        return crc & widthMask;
+    }
+
+    @Override
+    protected long resumeRaw(long crc, long address, long length) {
+        for (long i = 0; i < length; ++i) {
+            final byte b = UnsafeAccess.getByte(address + i);
+            crc = table[(int) ((crc >>> (bitWidth - 8)) ^ b) & 0xff] ^ (crc << 8);
+        }
+        return crc & widthMask;
+    }
 }
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.scurrilous.circe.crc;
 
+import java.nio.ByteBuffer;
+
 /**
  * Implements a "reflected" LSB-first int-width CRC function using a lookup
  * table.
@@ -46,4 +48,18 @@ final class ReflectedIntCrc extends AbstractIntCrc {
             crc = table[(crc ^ input[index + i]) & 0xff] ^ (crc >>> 8);
         return crc;
     }
+
+    @Override
+    protected int resumeRaw(int crc, ByteBuffer input, int index, int length) {
+        for (int i = 0; i < length; ++i)
+            crc = table[(crc ^ input.get(index + i)) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
+
+    @Override
+    protected int resumeRaw(int crc, long address, long length) {
+        for (long i = 0; i < length; ++i)
+            crc = table[(crc ^ UnsafeAccess.getByte(address + i)) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
 }
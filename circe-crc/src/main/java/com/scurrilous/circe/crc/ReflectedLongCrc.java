@@ -15,6 +15,8 @@
  ******************************************************************************/
 package com.scurrilous.circe.crc;
 
+import java.nio.ByteBuffer;
+
 /**
  * Implements a "reflected" LSB-first long-width CRC function using a lookup
  * table.
@@ -46,4 +48,18 @@ final class ReflectedLongCrc extends AbstractLongCrc {
             crc = table[(int) (crc ^ input[index + i]) & 0xff] ^ (crc >>> 8);
         return crc;
     }
+
+    @Override
+    protected long resumeRaw(long crc, ByteBuffer input, int index, int length) {
+        for (int i = 0; i < length; ++i)
+            crc = table[(int) (crc ^ input.get(index + i)) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
+
+    @Override
+    protected long resumeRaw(long crc, long address, long length) {
+        for (long i = 0; i < length; ++i)
+            crc = table[(int) (crc ^ UnsafeAccess.getByte(address + i)) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
 }
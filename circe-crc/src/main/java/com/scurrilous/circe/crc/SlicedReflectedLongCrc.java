@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implements a "reflected" LSB-first long-width CRC function using the
+ * slicing-by-8 or slicing-by-16 algorithm. Input is consumed as little-endian
+ * 64-bit words, with each byte of a word indexing its own derived lookup
+ * table, so that 8 or 16 table lookups can proceed in parallel per iteration.
+ * <p>
+ * Large inputs are additionally split into blocks of three equal-length
+ * streams, which are processed in an interleaved fashion to expose
+ * instruction-level parallelism across their independent dependency chains.
+ * The stream CRCs are then merged using a precomputed shift operator.
+ */
+final class SlicedReflectedLongCrc extends AbstractLongCrc {
+
+    private static final int STREAM_LENGTH = 256;
+
+    private final int slices;
+    private final long[] table;
+    private final CrcShift streamShift;
+
+    SlicedReflectedLongCrc(String algorithm, int width, long poly, long init, long xorOut,
+            int slices) {
+        super(algorithm, width, init, xorOut);
+        if (slices != 8 && slices != 16)
+            throw new IllegalArgumentException("invalid slice count");
+        this.slices = slices;
+
+        // table[k * 256 + i] is the CRC of byte i followed by k zero bytes
+        table = new long[slices * 256];
+        poly = reflect(poly);
+        for (int i = 0; i < 256; ++i) {
+            long crc = i;
+            for (int j = 0; j < 8; ++j)
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ poly : crc >>> 1;
+            table[i] = crc;
+        }
+        for (int k = 256; k < table.length; ++k) {
+            final long crc = table[k - 256];
+            table[k] = table[(int) crc & 0xff] ^ (crc >>> 8);
+        }
+        streamShift = CrcShift.forLength(CrcShift.zeroByteMatrix(this), STREAM_LENGTH);
+    }
+
+    @Override
+    protected long initial() {
+        return reflect(super.initial());
+    }
+
+    @Override
+    protected long resumeRaw(long crc, byte[] input, int index, int length) {
+        final int end = index + length;
+        for (; end - index >= 3 * STREAM_LENGTH; index += 3 * STREAM_LENGTH)
+            crc = updateStreams(crc, input, index);
+        if (slices == 16) {
+            for (; end - index >= 16; index += 16)
+                crc = update16(crc, LittleEndian.getLong(input, index),
+                        LittleEndian.getLong(input, index + 8));
+        }
+        for (; end - index >= 8; index += 8)
+            crc = update8(crc, LittleEndian.getLong(input, index));
+        for (; index < end; ++index)
+            crc = table[(int) (crc ^ input[index]) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
+
+    @Override
+    protected long resumeRaw(long crc, ByteBuffer input, int index, int length) {
+        final int end = index + length;
+        for (; end - index >= 3 * STREAM_LENGTH; index += 3 * STREAM_LENGTH)
+            crc = updateStreams(crc, input, index);
+        if (slices == 16) {
+            for (; end - index >= 16; index += 16)
+                crc = update16(crc, LittleEndian.getLong(input, index),
+                        LittleEndian.getLong(input, index + 8));
+        }
+        for (; end - index >= 8; index += 8)
+            crc = update8(crc, LittleEndian.getLong(input, index));
+        for (; index < end; ++index)
+            crc = table[(int) (crc ^ input.get(index)) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
+
+    @Override
+    protected long resumeRaw(long crc, long address, long length) {
+        final long end = address + length;
+        for (; end - address >= 3 * STREAM_LENGTH; address += 3 * STREAM_LENGTH)
+            crc = updateStreams(crc, address);
+        if (slices == 16) {
+            for (; end - address >= 16; address += 16)
+                crc = update16(crc, UnsafeAccess.getLong(address),
+                        UnsafeAccess.getLong(address + 8));
+        }
+        for (; end - address >= 8; address += 8)
+            crc = update8(crc, UnsafeAccess.getLong(address));
+        for (; address < end; ++address)
+            crc = table[(int) (crc ^ UnsafeAccess.getByte(address)) & 0xff] ^ (crc >>> 8);
+        return crc;
+    }
+
+    private long updateStreams(long crc0, byte[] input, int index) {
+        long crc1 = 0;
+        long crc2 = 0;
+        final int end = index + STREAM_LENGTH;
+        for (; index < end; index += 8) {
+            crc0 = update8(crc0, LittleEndian.getLong(input, index));
+            crc1 = update8(crc1, LittleEndian.getLong(input, index + STREAM_LENGTH));
+            crc2 = update8(crc2, LittleEndian.getLong(input, index + 2 * STREAM_LENGTH));
+        }
+        return streamShift.apply(streamShift.apply(crc0) ^ crc1) ^ crc2;
+    }
+
+    private long updateStreams(long crc0, ByteBuffer input, int index) {
+        long crc1 = 0;
+        long crc2 = 0;
+        final int end = index + STREAM_LENGTH;
+        for (; index < end; index += 8) {
+            crc0 = update8(crc0, LittleEndian.getLong(input, index));
+            crc1 = update8(crc1, LittleEndian.getLong(input, index + STREAM_LENGTH));
+            crc2 = update8(crc2, LittleEndian.getLong(input, index + 2 * STREAM_LENGTH));
+        }
+        return streamShift.apply(streamShift.apply(crc0) ^ crc1) ^ crc2;
+    }
+
+    private long updateStreams(long crc0, long address) {
+        long crc1 = 0;
+        long crc2 = 0;
+        final long end = address + STREAM_LENGTH;
+        for (; address < end; address += 8) {
+            crc0 = update8(crc0, UnsafeAccess.getLong(address));
+            crc1 = update8(crc1, UnsafeAccess.getLong(address + STREAM_LENGTH));
+            crc2 = update8(crc2, UnsafeAccess.getLong(address + 2 * STREAM_LENGTH));
+        }
+        return streamShift.apply(streamShift.apply(crc0) ^ crc1) ^ crc2;
+    }
+
+    private long update8(long crc, long word) {
+        final long[] t = table;
+        final long x = word ^ crc;
+        final int lo = (int) x;
+        final int hi = (int) (x >>> 32);
+        return t[0x700 + (lo & 0xff)] ^ t[0x600 + ((lo >>> 8) & 0xff)] ^
+                t[0x500 + ((lo >>> 16) & 0xff)] ^ t[0x400 + (lo >>> 24)] ^
+                t[0x300 + (hi & 0xff)] ^ t[0x200 + ((hi >>> 8) & 0xff)] ^
+                t[0x100 + ((hi >>> 16) & 0xff)] ^ t[hi >>> 24];
+    }
+
+    private long update16(long crc, long word0, long word1) {
+        final long[] t = table;
+        final long x = word0 ^ crc;
+        final int w0 = (int) x;
+        final int w1 = (int) (x >>> 32);
+        final int w2 = (int) word1;
+        final int w3 = (int) (word1 >>> 32);
+        return t[0xf00 + (w0 & 0xff)] ^ t[0xe00 + ((w0 >>> 8) & 0xff)] ^
+                t[0xd00 + ((w0 >>> 16) & 0xff)] ^ t[0xc00 + (w0 >>> 24)] ^
+                t[0xb00 + (w1 & 0xff)] ^ t[0xa00 + ((w1 >>> 8) & 0xff)] ^
+                t[0x900 + ((w1 >>> 16) & 0xff)] ^ t[0x800 + (w1 >>> 24)] ^
+                t[0x700 + (w2 & 0xff)] ^ t[0x600 + ((w2 >>> 8) & 0xff)] ^
+                t[0x500 + ((w2 >>> 16) & 0xff)] ^ t[0x400 + (w2 >>> 24)] ^
+                t[0x300 + (w3 & 0xff)] ^ t[0x200 + ((w3 >>> 8) & 0xff)] ^
+                t[0x100 + ((w3 >>> 16) & 0xff)] ^ t[w3 >>> 24];
+    }
+}
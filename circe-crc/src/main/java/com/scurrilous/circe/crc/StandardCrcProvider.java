@@ -16,18 +16,46 @@
 package com.scurrilous.circe.crc;
 
 import java.util.EnumSet;
+import java.util.zip.CRC32;
 
 import com.scurrilous.circe.Hash;
 import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.StatelessHash;
 import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
 import com.scurrilous.circe.params.CrcParameters;
 
 /**
  * Provides pure Java and JDK-supplied CRC implementations.
+ * <p>
+ * CRC-32 is implemented using {@link java.util.zip.CRC32}, which is typically
+ * hardware-accelerated by the JVM, for both stateful and incremental use.
+ * <p>
+ * Pure Java CRCs are implemented using the slicing-by-8 algorithm by default.
+ * The number of bytes processed per iteration can be selected using the system
+ * property {@code com.scurrilous.circe.crc.StandardCrcProvider.slices}, which
+ * may be 16 (for slicing-by-16, which uses twice the table memory), 8, or 1
+ * (for the original byte-at-a-time implementations).
  */
+@ProviderIndex(parameters = CrcParameters.class)
 public final class StandardCrcProvider extends AbstractHashProvider<CrcParameters> {
 
+    private static final int SLICES = getSlices();
+
+    private static int getSlices() {
+        String slices;
+        try {
+            slices = System.getProperty(StandardCrcProvider.class.getName() + ".slices");
+        } catch (final SecurityException e) {
+            slices = null;
+        }
+        if ("1".equals(slices))
+            return 1;
+        if ("16".equals(slices))
+            return 16;
+        return 8;
+    }
+
     /**
      * Constructs a new {@link StandardCrcProvider}.
      */
@@ -41,6 +69,8 @@ public final class StandardCrcProvider extends AbstractHashProvider<CrcParameter
                 HashSupport.INCREMENTAL, HashSupport.STATELESS_INCREMENTAL, HashSupport.LONG_SIZED);
         if (params.bitWidth() <= 32)
             result.add(HashSupport.INT_SIZED);
+        if (UnsafeAccess.isSupported())
+            result.add(HashSupport.UNSAFE_INCREMENTAL);
         if (params.equals(CrcParameters.CRC32))
             result.add(HashSupport.NATIVE);
         return result;
@@ -62,21 +92,43 @@ public final class StandardCrcProvider extends AbstractHashProvider<CrcParameter
         if (bitWidth > 32 || (required.contains(HashSupport.LONG_SIZED) && bitWidth >= 8)) {
             if (required.contains(HashSupport.INT_SIZED))
                 throw new UnsupportedOperationException();
+            if (SLICES > 1) {
+                if (params.reflected())
+                    return new SlicedReflectedLongCrc(params.algorithm(), bitWidth,
+                            params.polynomial(), params.initial(), params.xorOut(), SLICES);
+                return new SlicedNormalLongCrc(params.algorithm(), bitWidth, params.polynomial(),
+                        params.initial(), params.xorOut(), SLICES);
+            }
             if (params.reflected())
                 return new ReflectedLongCrc(params.algorithm(), bitWidth, params.polynomial(),
                         params.initial(), params.xorOut());
             else
                 return new NormalLongCrc(params.algorithm(), bitWidth, params.polynomial(),
                         params.initial(), params.xorOut());
+        } else if (params.equals(CrcParameters.CRC32)) {
+            return new JavaIncrementalCrc(CRC32.class, createIntCrc(params));
         } else {
+            return createIntCrc(params);
+        }
+    }
+
+    private static AbstractIntCrc createIntCrc(CrcParameters params) {
+        final int bitWidth = params.bitWidth();
+        if (SLICES > 1) {
             if (params.reflected())
-                return new ReflectedIntCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
-                        (int) params.initial(), (int) params.xorOut());
-            else if (bitWidth > 8)
-                return new NormalIntCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
-                        (int) params.initial(), (int) params.xorOut());
-            return new NormalByteCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
-                    (int) params.initial(), (int) params.xorOut());
+                return new SlicedReflectedIntCrc(params.algorithm(), bitWidth,
+                        (int) params.polynomial(), (int) params.initial(), (int) params.xorOut(),
+                        SLICES);
+            return new SlicedNormalIntCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
+                    (int) params.initial(), (int) params.xorOut(), SLICES);
         }
+        if (params.reflected())
+            return new ReflectedIntCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
+                    (int) params.initial(), (int) params.xorOut());
+        else if (bitWidth > 8)
+            return new NormalIntCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
+                    (int) params.initial(), (int) params.xorOut());
+        return new NormalByteCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
+                (int) params.initial(), (int) params.xorOut());
     }
 }
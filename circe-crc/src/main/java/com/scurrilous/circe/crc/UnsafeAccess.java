@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteOrder;
+
+import com.scurrilous.circe.impl.NativeMemoryAccessLoader;
+
+/**
+ * Provides little-endian reads from native memory addresses using the
+ * {@link com.scurrilous.circe.impl.NativeMemoryAccess} service, if it is
+ * available. The service is provided by the optional
+ * {@code circe-direct-access} module, which keeps proprietary JDK APIs out of
+ * this module. Addresses are not checked in any way.
+ */
+final class UnsafeAccess {
+
+    private static final boolean SUPPORTED = NativeMemoryAccessLoader.isSupported();
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    private UnsafeAccess() {
+    }
+
+    /**
+     * Returns whether unsafe memory access is supported by this JVM.
+     * 
+     * @return true if the other methods of this class may be called
+     */
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Returns the byte at the given address.
+     * 
+     * @param address the native memory address
+     * @return the byte at the given address
+     */
+    static byte getByte(long address) {
+        return NativeMemoryAccessLoader.getByte(address);
+    }
+
+    /**
+     * Returns the little-endian {@code long} at the given address, which need
+     * not be aligned.
+     * 
+     * @param address the address of the least significant byte
+     * @return the 8 bytes at the given address as a little-endian long
+     */
+    static long getLong(long address) {
+        final long value = NativeMemoryAccessLoader.getLong(address);
+        return BIG_ENDIAN ? Long.reverseBytes(value) : value;
+    }
+}
@@ -22,12 +22,15 @@ import static com.scurrilous.circe.HashSupport.LONG_SIZED;
 import static com.scurrilous.circe.HashSupport.NATIVE;
 import static com.scurrilous.circe.HashSupport.STATEFUL;
 import static com.scurrilous.circe.HashSupport.STATELESS_INCREMENTAL;
+import static com.scurrilous.circe.HashSupport.UNSAFE_INCREMENTAL;
 import static com.scurrilous.circe.params.CrcParameters.CRC32;
+import static com.scurrilous.circe.params.CrcParameters.CRC32C;
 import static com.scurrilous.circe.params.CrcParameters.CRC64;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.Charset;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
@@ -36,6 +39,7 @@ import java.util.SortedMap;
 import org.junit.Test;
 
 import com.scurrilous.circe.HashProvider;
+import com.scurrilous.circe.Hashes;
 import com.scurrilous.circe.HashProviders;
 import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.IncrementalLongHash;
@@ -48,6 +52,8 @@ public class CRCProvidersTest {
         final Iterator<HashProvider> i = HashProviders.iterator();
         assertTrue(i.hasNext());
         assertTrue(i.next() instanceof StandardCrcProvider);
+        assertTrue(i.hasNext());
+        assertTrue(i.next() instanceof JavaCrc32CProvider);
         assertFalse(i.hasNext());
     }
 
@@ -64,8 +70,8 @@ public class CRCProvidersTest {
         final SortedMap<EnumSet<HashSupport>, HashProvider> map = HashProviders.search(CRC32);
         assertEquals(1, map.size());
         final Entry<EnumSet<HashSupport>, HashProvider> entry = map.entrySet().iterator().next();
-        assertEquals(EnumSet.of(NATIVE, STATELESS_INCREMENTAL, INCREMENTAL, INT_SIZED, LONG_SIZED,
-                STATEFUL), entry.getKey());
+        assertEquals(EnumSet.of(NATIVE, UNSAFE_INCREMENTAL, STATELESS_INCREMENTAL, INCREMENTAL,
+                INT_SIZED, LONG_SIZED, STATEFUL), entry.getKey());
         assertTrue(entry.getValue() instanceof StandardCrcProvider);
     }
 
@@ -74,8 +80,8 @@ public class CRCProvidersTest {
         final SortedMap<EnumSet<HashSupport>, HashProvider> map = HashProviders.search(CRC64);
         assertEquals(1, map.size());
         final Entry<EnumSet<HashSupport>, HashProvider> entry = map.entrySet().iterator().next();
-        assertEquals(EnumSet.of(STATELESS_INCREMENTAL, INCREMENTAL, LONG_SIZED, STATEFUL),
-                entry.getKey());
+        assertEquals(EnumSet.of(UNSAFE_INCREMENTAL, STATELESS_INCREMENTAL, INCREMENTAL,
+                LONG_SIZED, STATEFUL), entry.getKey());
         assertTrue(entry.getValue() instanceof StandardCrcProvider);
     }
 
@@ -85,4 +91,24 @@ public class CRCProvidersTest {
         assertTrue(HashProviders.search(CRC64, EnumSet.of(NATIVE)).isEmpty());
         assertTrue(HashProviders.search(CRC32, EnumSet.of(HARDWARE)).isEmpty());
     }
+
+    @Test
+    public void testIncrementalLongCRC32C() {
+        final IncrementalLongHash hash = Hashes.getIncrementalLong(CRC32C);
+        assertEquals(0xe3069283L, hash.calculate("123456789".getBytes(Charset.forName("ASCII"))));
+        if (JavaCrc32CProvider.isSupported())
+            assertFalse(new JavaCrc32CProvider().querySupport(CRC32C).contains(LONG_SIZED));
+    }
+
+    @Test
+    public void testSearchCRCParametersCRC32C() {
+        final SortedMap<EnumSet<HashSupport>, HashProvider> map = HashProviders.search(CRC32C);
+        if (JavaCrc32CProvider.isSupported()) {
+            assertEquals(2, map.size());
+            assertTrue(map.values().iterator().next() instanceof JavaCrc32CProvider);
+        } else {
+            assertEquals(1, map.size());
+            assertTrue(map.values().iterator().next() instanceof StandardCrcProvider);
+        }
+    }
 }
@@ -25,11 +25,17 @@ import static com.scurrilous.circe.params.CrcParameters.CRC32_POSIX;
 import static com.scurrilous.circe.params.CrcParameters.CRC64;
 import static com.scurrilous.circe.params.CrcParameters.CRC64_XZ;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Random;
 
 import org.junit.Test;
 
+import com.scurrilous.circe.CombinableIntHash;
+import com.scurrilous.circe.CombinableLongHash;
 import com.scurrilous.circe.HashProvider;
 import com.scurrilous.circe.IncrementalIntHash;
 import com.scurrilous.circe.IncrementalLongHash;
@@ -127,6 +133,40 @@ public class CRCTest {
         assertEquals(0xcbf43926, PROVIDER.getStatelessInt(CRC32).calculate(DIGITS));
     }
 
+    @Test
+    public void testCRC32Incremental() {
+        final IncrementalIntHash hash = PROVIDER.getIncrementalInt(CRC32);
+        assertTrue(hash instanceof JavaIncrementalCrc);
+        testIncremental(hash);
+        testResumeMatches(hash, CRC32);
+    }
+
+    @Test
+    public void testJavaCRC32C() {
+        assumeTrue(JavaCrc32CProvider.isSupported());
+        final IncrementalIntHash hash = new JavaCrc32CProvider().getIncrementalInt(CRC32C);
+        assertTrue(hash instanceof JavaIncrementalCrc);
+        assertEquals(0xe3069283, hash.calculate(DIGITS));
+        testIncremental(hash);
+        testResumeMatches(hash, CRC32C);
+    }
+
+    private static void testResumeMatches(IncrementalIntHash hash, CrcParameters params) {
+        final IncrementalIntHash reference = new ReflectedIntCrc(params.algorithm(), 32,
+                (int) params.polynomial(), (int) params.initial(), (int) params.xorOut());
+        final Random random = new Random(1);
+        final byte[] data = new byte[1000];
+        random.nextBytes(data);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        for (int i = 0; i < 100; ++i) {
+            final int current = random.nextInt();
+            final int expected = reference.resume(current, data);
+            assertEquals(expected, hash.resume(current, data));
+            assertEquals(expected, hash.resume(current, direct.duplicate()));
+        }
+    }
+
     @Test
     public void testBZIP2() {
         assertEquals(0xfc891918, PROVIDER.getIncrementalInt(CRC32_BZIP2).calculate(DIGITS));
@@ -201,4 +241,41 @@ public class CRCTest {
         final long incrementalChecksum = hash.resume(dataChecksum, data.getBytes(ASCII));
         assertEquals(combinedChecksum, incrementalChecksum);
     }
+
+    @Test
+    public void testCombine() {
+        final CrcParameters CRC5_USB = new CrcParameters("CRC-5/USB", 5, 0x05, 0x1f, 0x1f, true);
+        final CrcParameters CRC24 = new CrcParameters("CRC-24", 24, 0x864cfb, 0xb704ce, 0, false);
+        for (final CrcParameters params : new CrcParameters[] { CRC5_USB, CRC16, CRC24, CRC32,
+                CRC32C, CRC32_BZIP2, CRC32_POSIX })
+            testCombine((CombinableIntHash) PROVIDER.getIncrementalInt(params));
+        for (final CrcParameters params : new CrcParameters[] { CRC32C, CRC64, CRC64_XZ })
+            testCombineLong((CombinableLongHash) PROVIDER.getIncrementalLong(params));
+    }
+
+    private void testCombine(CombinableIntHash hash) {
+        final byte[] data = new byte[3000];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte) (i * 31);
+        final int expected = hash.calculate(data);
+        for (final int split : new int[] { 0, 1, 9, 1000, 2999, 3000 }) {
+            final int first = hash.calculate(data, 0, split);
+            final int second = hash.calculate(data, split, data.length - split);
+            assertEquals(hash.algorithm(), expected,
+                    hash.combine(first, second, data.length - split));
+        }
+    }
+
+    private void testCombineLong(CombinableLongHash hash) {
+        final byte[] data = new byte[3000];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte) (i * 31);
+        final long expected = hash.calculate(data);
+        for (final int split : new int[] { 0, 1, 9, 1000, 2999, 3000 }) {
+            final long first = hash.calculate(data, 0, split);
+            final long second = hash.calculate(data, split, data.length - split);
+            assertEquals(hash.algorithm(), expected,
+                    hash.combine(first, second, data.length - split));
+        }
+    }
 }
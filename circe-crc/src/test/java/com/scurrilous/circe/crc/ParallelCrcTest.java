@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static com.scurrilous.circe.params.CrcParameters.CRC32C;
+import static com.scurrilous.circe.params.CrcParameters.CRC64_XZ;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.scurrilous.circe.CombinableIntHash;
+import com.scurrilous.circe.CombinableLongHash;
+import com.scurrilous.circe.impl.ParallelIncrementalIntHash;
+import com.scurrilous.circe.impl.ParallelIncrementalLongHash;
+
+/**
+ * Verifies that parallel evaluation of CRCs produces the same results as
+ * sequential evaluation.
+ */
+@SuppressWarnings("javadoc")
+public class ParallelCrcTest {
+
+    private static final StandardCrcProvider PROVIDER = new StandardCrcProvider();
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    private static final int SLICE_LENGTH = 1000;
+    private static final int[] LENGTHS = { 0, 1, 1999, 2000, 2001, 7777, 20000 };
+
+    private static final byte[] DATA = new byte[20010];
+
+    static {
+        new Random(1).nextBytes(DATA);
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void testInt() {
+        final CombinableIntHash crc = (CombinableIntHash) PROVIDER.getIncrementalInt(CRC32C);
+        final ParallelIncrementalIntHash parallel = new ParallelIncrementalIntHash(crc, POOL,
+                SLICE_LENGTH);
+        for (final int length : LENGTHS) {
+            final int expected = crc.calculate(DATA, 5, length);
+            assertEquals(expected, parallel.calculate(DATA, 5, length));
+            assertEquals(crc.resume(expected, DATA, 0, length),
+                    parallel.resume(expected, DATA, 0, length));
+            assertEquals(expected, parallel.calculate(ByteBuffer.wrap(DATA, 5, length)));
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(length + 5);
+            direct.put(DATA, 0, length + 5).position(5);
+            assertEquals(expected, parallel.calculate(direct));
+            assertEquals(direct.limit(), direct.position());
+
+            final ByteBuffer[] buffers = { ByteBuffer.wrap(DATA, 0, 5),
+                    ByteBuffer.wrap(DATA, 5, length) };
+            assertEquals(crc.calculate(DATA, 0, length + 5),
+                    parallel.resume(crc.calculate(DATA, 0, 0), buffers, 0, 2));
+            assertEquals(buffers[1].limit(), buffers[1].position());
+        }
+        assertEquals(crc.calculate(DATA), parallel.combine(crc.calculate(DATA, 0, 7777),
+                crc.calculate(DATA, 7777, DATA.length - 7777), DATA.length - 7777));
+    }
+
+    @Test
+    public void testLong() {
+        final CombinableLongHash crc = (CombinableLongHash) PROVIDER.getIncrementalLong(CRC64_XZ);
+        final ParallelIncrementalLongHash parallel = new ParallelIncrementalLongHash(crc, POOL,
+                SLICE_LENGTH);
+        for (final int length : LENGTHS) {
+            final long expected = crc.calculate(DATA, 5, length);
+            assertEquals(expected, parallel.calculate(DATA, 5, length));
+            assertEquals(crc.resume(expected, DATA, 0, length),
+                    parallel.resume(expected, DATA, 0, length));
+            assertEquals(expected, parallel.calculate(ByteBuffer.wrap(DATA, 5, length)));
+
+            final ByteBuffer readOnly = ByteBuffer.wrap(DATA, 5, length).asReadOnlyBuffer();
+            assertEquals(expected, parallel.calculate(readOnly));
+            assertEquals(readOnly.limit(), readOnly.position());
+
+            final ByteBuffer[] buffers = { ByteBuffer.wrap(DATA, 0, 5),
+                    ByteBuffer.wrap(DATA, 5, length) };
+            assertEquals(crc.calculate(DATA, 0, length + 5),
+                    parallel.resume(crc.calculate(DATA, 0, 0), buffers, 0, 2));
+            assertEquals(buffers[1].limit(), buffers[1].position());
+        }
+        assertEquals(crc.calculate(DATA), parallel.combine(crc.calculate(DATA, 0, 7777),
+                crc.calculate(DATA, 7777, DATA.length - 7777), DATA.length - 7777));
+    }
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static com.scurrilous.circe.params.CrcParameters.CRC32;
+import static com.scurrilous.circe.params.CrcParameters.CRC32C;
+import static com.scurrilous.circe.params.CrcParameters.CRC64_XZ;
+import static org.junit.Assume.assumeNotNull;
+
+import org.junit.Test;
+
+import com.scurrilous.circe.IncrementalIntHash;
+import com.scurrilous.circe.IncrementalLongHash;
+
+/**
+ * Compares the throughput of the byte-at-a-time and sliced pure Java CRC
+ * implementations, along with the JDK-based CRC-32. Only runs when the
+ * {@code SpeedTest.mode} system property is set, since it takes several
+ * seconds and produces no assertions.
+ */
+@SuppressWarnings("javadoc")
+public class SlicedCrcSpeedTest {
+
+    private static final int MB = 1024 * 1024;
+    private static final int[] LENGTHS = { 64, 1024, 64 * 1024, MB };
+    private static final int TOTAL = 64 * MB;
+    private static final int REPETITIONS = 3;
+
+    private static final byte[] DATA = new byte[MB];
+
+    static {
+        for (int i = 0; i < DATA.length; ++i)
+            DATA[i] = (byte) i;
+    }
+
+    private interface Tester {
+        long run(int len);
+    }
+
+    private static void test(String label, Tester tester) {
+        System.out.format("%s:%n", label);
+        for (final int len : LENGTHS) {
+            long bestNanos = 0;
+            for (int rep = 0; rep < REPETITIONS; ++rep) {
+                final long start = System.nanoTime();
+                tester.run(len);
+                final long nanos = System.nanoTime() - start;
+                if (rep == 0 || nanos < bestNanos)
+                    bestNanos = nanos;
+            }
+            final float rate = (float) TOTAL / MB / (bestNanos / 1e9f);
+            System.out.format("  %d: rate = %g MB/s%n", len, rate);
+        }
+    }
+
+    private static void test(String label, final IncrementalIntHash hash) {
+        test(label, new Tester() {
+            @Override
+            public long run(int len) {
+                int crc = 0;
+                for (int i = 0; i < TOTAL / len; ++i)
+                    crc ^= hash.calculate(DATA, 0, len);
+                return crc;
+            }
+        });
+    }
+
+    private static void test(String label, final IncrementalLongHash hash) {
+        test(label, new Tester() {
+            @Override
+            public long run(int len) {
+                long crc = 0;
+                for (int i = 0; i < TOTAL / len; ++i)
+                    crc ^= hash.calculate(DATA, 0, len);
+                return crc;
+            }
+        });
+    }
+
+    @Test
+    public void test() {
+        assumeNotNull(System.getProperty("SpeedTest.mode"));
+
+        test("Byte-wise CRC-64/XZ", new ReflectedLongCrc(CRC64_XZ.algorithm(),
+                CRC64_XZ.bitWidth(), CRC64_XZ.polynomial(), CRC64_XZ.initial(),
+                CRC64_XZ.xorOut()));
+        for (final int slices : new int[] { 8, 16 })
+            test("Slicing-by-" + slices + " CRC-64/XZ", new SlicedReflectedLongCrc(
+                    CRC64_XZ.algorithm(), CRC64_XZ.bitWidth(), CRC64_XZ.polynomial(),
+                    CRC64_XZ.initial(), CRC64_XZ.xorOut(), slices));
+
+        test("Byte-wise CRC-32C", new ReflectedIntCrc(CRC32C.algorithm(), CRC32C.bitWidth(),
+                (int) CRC32C.polynomial(), (int) CRC32C.initial(), (int) CRC32C.xorOut()));
+        for (final int slices : new int[] { 8, 16 })
+            test("Slicing-by-" + slices + " CRC-32C", new SlicedReflectedIntCrc(
+                    CRC32C.algorithm(), CRC32C.bitWidth(), (int) CRC32C.polynomial(),
+                    (int) CRC32C.initial(), (int) CRC32C.xorOut(), slices));
+
+        test("JDK CRC-32", new StandardCrcProvider().getIncrementalInt(CRC32));
+    }
+}
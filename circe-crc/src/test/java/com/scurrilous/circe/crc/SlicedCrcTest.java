@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.scurrilous.circe.impl.DirectByteBufferAccessLoader;
+import com.scurrilous.circe.params.CrcParameters;
+
+/**
+ * Verifies that the slicing CRC implementations match the byte-at-a-time
+ * implementations for a variety of widths, input lengths, and alignments,
+ * including inputs large enough to be processed as interleaved streams.
+ */
+@SuppressWarnings("javadoc")
+public class SlicedCrcTest {
+
+    private static final CrcParameters[] PARAMS = {
+            new CrcParameters("CRC-3/ROHC", 3, 0x3, 0x7, 0, true),
+            new CrcParameters("CRC-5/EPC", 5, 0x09, 0x09, 0, false),
+            new CrcParameters("CRC-8", 8, 0x07, 0, 0, false),
+            new CrcParameters("CRC-10", 10, 0x233, 0, 0, false),
+            new CrcParameters("CRC-24", 24, 0x864cfb, 0xb704ce, 0, false),
+            CrcParameters.CRC16, CrcParameters.CRC16_XMODEM, CrcParameters.CRC32,
+            CrcParameters.CRC32_BZIP2, CrcParameters.CRC32C, CrcParameters.CRC32_POSIX };
+
+    private static final CrcParameters[] LONG_PARAMS = {
+            new CrcParameters("CRC-40/GSM", 40, 0x0004820009L, 0, 0xffffffffffL, false),
+            new CrcParameters("CRC-64/GO-ISO", 64, 0x1b, ~0L, ~0L, true), CrcParameters.CRC16,
+            CrcParameters.CRC32, CrcParameters.CRC32_BZIP2, CrcParameters.CRC64,
+            CrcParameters.CRC64_XZ };
+
+    // lengths around multiples of the interleaved stream block size
+    private static final int[] LARGE_LENGTHS = { 767, 768, 769, 1000, 1536, 1543, 2311, 4000 };
+
+    private static final byte[] DATA = new byte[4096];
+
+    private static final ByteBuffer DIRECT = ByteBuffer.allocateDirect(DATA.length);
+    // zero if the direct buffer access service is unavailable
+    private static final long ADDRESS = DirectByteBufferAccessLoader.getAddress(DIRECT);
+
+    static {
+        new Random(1).nextBytes(DATA);
+        DIRECT.put(DATA);
+    }
+
+    private static ByteBuffer direct(int index, int length, ByteOrder order) {
+        final ByteBuffer result = DIRECT.duplicate().order(order);
+        result.limit(index + length).position(index);
+        return result;
+    }
+
+    private static AbstractIntCrc byteWise(CrcParameters params) {
+        final int width = params.bitWidth();
+        final int poly = (int) params.polynomial();
+        final int init = (int) params.initial();
+        final int xorOut = (int) params.xorOut();
+        if (params.reflected())
+            return new ReflectedIntCrc(params.algorithm(), width, poly, init, xorOut);
+        if (width > 8)
+            return new NormalIntCrc(params.algorithm(), width, poly, init, xorOut);
+        return new NormalByteCrc(params.algorithm(), width, poly, init, xorOut);
+    }
+
+    private static AbstractIntCrc sliced(CrcParameters params, int slices) {
+        final int width = params.bitWidth();
+        final int poly = (int) params.polynomial();
+        final int init = (int) params.initial();
+        final int xorOut = (int) params.xorOut();
+        if (params.reflected())
+            return new SlicedReflectedIntCrc(params.algorithm(), width, poly, init, xorOut, slices);
+        return new SlicedNormalIntCrc(params.algorithm(), width, poly, init, xorOut, slices);
+    }
+
+    private static void testSlices(int slices) {
+        for (final CrcParameters params : PARAMS) {
+            final AbstractIntCrc expected = byteWise(params);
+            final AbstractIntCrc actual = sliced(params, slices);
+            for (int index = 0; index < 8; ++index) {
+                for (int length = 0; length <= 80; ++length)
+                    assertEquals(params.algorithm(), expected.calculate(DATA, index, length),
+                            actual.calculate(DATA, index, length));
+                for (final int length : LARGE_LENGTHS)
+                    assertEquals(params.algorithm(), expected.calculate(DATA, index, length),
+                            actual.calculate(DATA, index, length));
+            }
+            assertEquals(params.algorithm(), expected.calculate(DATA), actual.calculate(DATA));
+            for (final int length : LARGE_LENGTHS) {
+                final int crc = expected.calculate(DATA, 3, length);
+                assertEquals(params.algorithm(), crc,
+                        actual.calculate(direct(3, length, ByteOrder.BIG_ENDIAN)));
+                assertEquals(params.algorithm(), crc,
+                        actual.calculate(direct(3, length, ByteOrder.LITTLE_ENDIAN)));
+                assertEquals(params.algorithm(), crc,
+                        expected.calculate(direct(3, length, ByteOrder.BIG_ENDIAN)));
+                if (ADDRESS != 0) {
+                    assertEquals(params.algorithm(), crc, actual.calculate(ADDRESS + 3, length));
+                    assertEquals(params.algorithm(), crc,
+                            expected.calculate(ADDRESS + 3, length));
+                }
+            }
+            final int partial = actual.calculate(DATA, 0, 13);
+            assertEquals(params.algorithm(), expected.calculate(DATA),
+                    actual.resume(partial, DATA, 13, DATA.length - 13));
+        }
+    }
+
+    private static AbstractLongCrc byteWiseLong(CrcParameters params) {
+        if (params.reflected())
+            return new ReflectedLongCrc(params.algorithm(), params.bitWidth(),
+                    params.polynomial(), params.initial(), params.xorOut());
+        return new NormalLongCrc(params.algorithm(), params.bitWidth(), params.polynomial(),
+                params.initial(), params.xorOut());
+    }
+
+    private static AbstractLongCrc slicedLong(CrcParameters params, int slices) {
+        if (params.reflected())
+            return new SlicedReflectedLongCrc(params.algorithm(), params.bitWidth(),
+                    params.polynomial(), params.initial(), params.xorOut(), slices);
+        return new SlicedNormalLongCrc(params.algorithm(), params.bitWidth(),
+                params.polynomial(), params.initial(), params.xorOut(), slices);
+    }
+
+    private static void testLongSlices(int slices) {
+        for (final CrcParameters params : LONG_PARAMS) {
+            final AbstractLongCrc expected = byteWiseLong(params);
+            final AbstractLongCrc actual = slicedLong(params, slices);
+            for (int index = 0; index < 8; ++index) {
+                for (int length = 0; length <= 80; ++length)
+                    assertEquals(params.algorithm(), expected.calculate(DATA, index, length),
+                            actual.calculate(DATA, index, length));
+                for (final int length : LARGE_LENGTHS)
+                    assertEquals(params.algorithm(), expected.calculate(DATA, index, length),
+                            actual.calculate(DATA, index, length));
+            }
+            assertEquals(params.algorithm(), expected.calculate(DATA), actual.calculate(DATA));
+            for (final int length : LARGE_LENGTHS) {
+                final long crc = expected.calculate(DATA, 3, length);
+                assertEquals(params.algorithm(), crc,
+                        actual.calculate(direct(3, length, ByteOrder.BIG_ENDIAN)));
+                assertEquals(params.algorithm(), crc,
+                        actual.calculate(direct(3, length, ByteOrder.LITTLE_ENDIAN)));
+                assertEquals(params.algorithm(), crc,
+                        expected.calculate(direct(3, length, ByteOrder.BIG_ENDIAN)));
+                if (ADDRESS != 0) {
+                    assertEquals(params.algorithm(), crc, actual.calculate(ADDRESS + 3, length));
+                    assertEquals(params.algorithm(), crc,
+                            expected.calculate(ADDRESS + 3, length));
+                }
+            }
+            final long partial = actual.calculate(DATA, 0, 13);
+            assertEquals(params.algorithm(), expected.calculate(DATA),
+                    actual.resume(partial, DATA, 13, DATA.length - 13));
+        }
+    }
+
+    @Test
+    public void testSlicingBy8() {
+        testSlices(8);
+    }
+
+    @Test
+    public void testSlicingBy16() {
+        testSlices(16);
+    }
+
+    @Test
+    public void testLongSlicingBy8() {
+        testLongSlices(8);
+    }
+
+    @Test
+    public void testLongSlicingBy16() {
+        testLongSlices(16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSlices() {
+        sliced(CrcParameters.CRC32, 4);
+    }
+}
@@ -28,6 +28,18 @@
 //#define CRC32C_DEBUG
 #define CRC32C_PCLMULQDQ
 
+// AVX-512 VPCLMULQDQ requires GCC 8, Clang 6, or Visual Studio 2019
+#if defined(__clang__) ? __clang_major__ >= 6 : \
+    defined(_MSC_VER) ? _MSC_VER >= 1920 : __GNUC__ >= 8
+# define CRC32C_VPCLMULQDQ
+# include <immintrin.h>
+# ifdef _MSC_VER
+#  define CRC32C_TARGET_VPCLMULQDQ
+# else
+#  define CRC32C_TARGET_VPCLMULQDQ __attribute__((target("avx512f,vpclmulqdq")))
+# endif
+#endif
+
 #ifdef CRC32C_DEBUG
 # include <stdio.h>
 # define DEBUG_PRINTF1(fmt, v1) printf(fmt, v1)
@@ -44,26 +56,70 @@
 static bool initialized = false;
 static bool has_sse42 = false;
 static bool has_pclmulqdq = false;
+static bool has_vpclmulqdq = false;
+
+static void make_combine_powers();
+#ifdef CRC32C_VPCLMULQDQ
+static void make_fold_constants();
+#endif
 
 bool crc32c_initialize() {
     if (!initialized) {
         const uint32_t cpuid_ecx_sse42 = (1 << 20);
         const uint32_t cpuid_ecx_pclmulqdq = (1 << 1);
+        const uint32_t cpuid_ecx_osxsave = (1 << 27);
+        const uint32_t cpuid7_ebx_avx512f = (1 << 16);
+        const uint32_t cpuid7_ecx_vpclmulqdq = (1 << 10);
+        // XMM, YMM, opmask, ZMM0-15 upper halves, and ZMM16-31 state
+        const uint32_t xcr0_avx512 = 0xe6;
 
+        bool has_osxsave = false;
+        bool has_avx512f = false;
+        uint32_t xcr0 = 0;
 #ifdef _MSC_VER
         int CPUInfo[4] = {};
         __cpuid(CPUInfo, 1);
         has_sse42 = (CPUInfo[2] & cpuid_ecx_sse42) != 0;
         has_pclmulqdq = (CPUInfo[2] & cpuid_ecx_pclmulqdq) != 0;
+        has_osxsave = (CPUInfo[2] & cpuid_ecx_osxsave) != 0;
+        __cpuid(CPUInfo, 0);
+        if (CPUInfo[0] >= 7) {
+            __cpuidex(CPUInfo, 7, 0);
+            has_avx512f = (CPUInfo[1] & cpuid7_ebx_avx512f) != 0;
+            has_vpclmulqdq = (CPUInfo[2] & cpuid7_ecx_vpclmulqdq) != 0;
+        }
+        if (has_osxsave)
+            xcr0 = (uint32_t) _xgetbv(0);
 #else
         unsigned int eax, ebx, ecx, edx;
         if (__get_cpuid(1, &eax, &ebx, &ecx, &edx)) {
             has_sse42 = (ecx & cpuid_ecx_sse42) != 0;
             has_pclmulqdq = (ecx & cpuid_ecx_pclmulqdq) != 0;
+            has_osxsave = (ecx & cpuid_ecx_osxsave) != 0;
+        }
+        if (__get_cpuid_max(0, 0) >= 7) {
+            __cpuid_count(7, 0, eax, ebx, ecx, edx);
+            has_avx512f = (ebx & cpuid7_ebx_avx512f) != 0;
+            has_vpclmulqdq = (ecx & cpuid7_ecx_vpclmulqdq) != 0;
+        }
+        if (has_osxsave) {
+            __asm__ ("xgetbv" : "=a" (eax), "=d" (edx) : "c" (0));
+            xcr0 = eax;
         }
+#endif
+        // the OS must also save the AVX-512 register state
+        has_vpclmulqdq = has_vpclmulqdq && has_avx512f && has_sse42 &&
+            (xcr0 & xcr0_avx512) == xcr0_avx512;
+#ifdef CRC32C_VPCLMULQDQ
+        if (has_vpclmulqdq)
+            make_fold_constants();
+#else
+        has_vpclmulqdq = false;
 #endif
         DEBUG_PRINTF1("has_sse42 = %d\n", has_sse42);
         DEBUG_PRINTF1("has_pclmulqdq = %d\n", has_pclmulqdq);
+        DEBUG_PRINTF1("has_vpclmulqdq = %d\n", has_vpclmulqdq);
+        make_combine_powers();
         initialized = true;
     }
     return has_sse42;
@@ -71,6 +127,29 @@ bool crc32c_initialize() {
 
 #include "gf2.hpp"
 
+// combine_powers[k] is the operator that appends 2^k zero bytes to a CRC
+static bitmatrix<32, 32> combine_powers[64];
+
+static void make_combine_powers() {
+    bitmatrix<32, 32> op;
+    op.lower_shift();
+    op[0] = 0x82f63b78; // reversed CRC-32C polynomial
+    pow(combine_powers[0], op, 8);
+    for (unsigned int k = 1; k < 64; ++k)
+        sqr(combine_powers[k], combine_powers[k - 1]);
+}
+
+uint32_t crc32c_combine(uint32_t crc1, uint32_t crc2, uint64_t len2) {
+    // the inverted initial value and final XOR cancel out, leaving only the
+    // shifted first CRC: crc(A || B) = shift(crc(A), |B|) ^ crc(B)
+    uint32_t crc = crc1;
+    for (unsigned int k = 0; len2; ++k, len2 >>= 1) {
+        if (len2 & 1)
+            crc = (const bitvector<32>) mul(combine_powers[k], bitvector<32>(crc));
+    }
+    return crc ^ crc2;
+}
+
 chunk_config::chunk_config(size_t words, const chunk_config* next) : words(words), next(next) {
     assert(words > 0);
     assert(!next || next->words < words);
@@ -133,6 +212,115 @@ static uint32_t crc32c_chunk(uint32_t crc, const void *buf, const chunk_config&
     return crc;
 }
 
+#ifdef CRC32C_VPCLMULQDQ
+
+// bytes folded per iteration by four 512-bit accumulators
+#define FOLD_BLOCK_BYTES 256
+
+// minimum length for which folding beats the three-stream CRC instruction loop
+#define FOLD_MIN_BYTES 768
+
+// Each 128-bit lane holds 128 bits of the message, with the first bit in the
+// least significant position, as in the reflected CRC. A lane whose low and
+// high quadwords are H and L represents H * x^64 + L (with each quadword
+// reflected), so moving it D bits forward multiplies by x^D. Since a carry-less
+// multiply of reflected operands yields the reflected product shifted by one,
+// this is done by multiplying H by x^(64+D-1) mod P and L by x^(D-1) mod P, which
+// are stored in the low and high quadwords of the fold constant.
+static uint64_t fold_256_constant[2]; // 2048 bits, for each accumulator lane
+static uint64_t fold_64_constant[2]; // 512 bits, to merge the accumulators
+static uint64_t fold_48_constant[2]; // 384 bits, to merge lane 0
+static uint64_t fold_32_constant[2]; // 256 bits, to merge lane 1
+static uint64_t fold_16_constant[2]; // 128 bits, to merge lane 2
+
+// returns x^n mod P, reflected into the high 32 bits of a quadword
+static uint64_t xpow_mod(size_t n) {
+    uint32_t r = 0x80000000; // x^0
+    for (size_t i = 0; i < n; ++i)
+        r = (r >> 1) ^ ((r & 1) ? 0x82f63b78 : 0); // reversed CRC-32C polynomial
+    return (uint64_t) r << 32;
+}
+
+static void make_fold_constant(size_t bytes, uint64_t k[2]) {
+    const size_t bits = bytes * 8;
+    k[0] = xpow_mod(bits + 63);
+    k[1] = xpow_mod(bits - 1);
+}
+
+static void make_fold_constants() {
+    make_fold_constant(256, fold_256_constant);
+    make_fold_constant(64, fold_64_constant);
+    make_fold_constant(48, fold_48_constant);
+    make_fold_constant(32, fold_32_constant);
+    make_fold_constant(16, fold_16_constant);
+}
+
+CRC32C_TARGET_VPCLMULQDQ
+static inline __m512i broadcast_512(const uint64_t k[2]) {
+    const int64_t lo = (int64_t) k[0], hi = (int64_t) k[1];
+    return _mm512_set_epi64(hi, lo, hi, lo, hi, lo, hi, lo);
+}
+
+CRC32C_TARGET_VPCLMULQDQ
+static inline __m512i fold_512(__m512i x, __m512i k, __m512i next) {
+    const __m512i lo = _mm512_clmulepi64_epi128(x, k, 0x00);
+    const __m512i hi = _mm512_clmulepi64_epi128(x, k, 0x11);
+    return _mm512_ternarylogic_epi64(lo, hi, next, 0x96); // lo ^ hi ^ next
+}
+
+CRC32C_TARGET_VPCLMULQDQ
+static inline __m128i fold_128(__m128i x, __m128i k, __m128i next) {
+    const __m128i lo = _mm_clmulepi64_si128(x, k, 0x00);
+    const __m128i hi = _mm_clmulepi64_si128(x, k, 0x11);
+    return _mm_xor_si128(_mm_xor_si128(lo, hi), next);
+}
+
+// folds blocks of 256 bytes using 512-bit carry-less multiplication, then
+// reduces the remaining 128 bits using the CRC instruction
+CRC32C_TARGET_VPCLMULQDQ
+static uint32_t crc32c_fold(uint32_t crc, const void *buf, size_t blocks) {
+    DEBUG_PRINTF3("  crc32c_fold(crc = 0x%08x, buf = %p, blocks = " SIZE_T_FORMAT ")", crc, buf, blocks);
+    assert(blocks > 0);
+
+    const __m512i *pz = (const __m512i*) buf;
+    // the CRC register is equivalent to XORing it into the first 32 message bits
+    __m512i x0 = _mm512_xor_si512(_mm512_loadu_si512(pz),
+        _mm512_set_epi64(0, 0, 0, 0, 0, 0, 0, (int64_t) crc));
+    __m512i x1 = _mm512_loadu_si512(pz + 1);
+    __m512i x2 = _mm512_loadu_si512(pz + 2);
+    __m512i x3 = _mm512_loadu_si512(pz + 3);
+    pz += 4;
+
+    const __m512i k256 = broadcast_512(fold_256_constant);
+    for (size_t i = 1; i < blocks; ++i, pz += 4) {
+        x0 = fold_512(x0, k256, _mm512_loadu_si512(pz));
+        x1 = fold_512(x1, k256, _mm512_loadu_si512(pz + 1));
+        x2 = fold_512(x2, k256, _mm512_loadu_si512(pz + 2));
+        x3 = fold_512(x3, k256, _mm512_loadu_si512(pz + 3));
+    }
+
+    const __m512i k64 = broadcast_512(fold_64_constant);
+    x1 = fold_512(x0, k64, x1);
+    x2 = fold_512(x1, k64, x2);
+    x3 = fold_512(x2, k64, x3);
+
+    __m128i lanes[4];
+    _mm512_storeu_si512(lanes, x3);
+    __m128i x = lanes[3];
+    x = fold_128(lanes[0], _mm_loadu_si128((const __m128i*) fold_48_constant), x);
+    x = fold_128(lanes[1], _mm_loadu_si128((const __m128i*) fold_32_constant), x);
+    x = fold_128(lanes[2], _mm_loadu_si128((const __m128i*) fold_16_constant), x);
+
+    uint64_t crc64 = _mm_crc32_u64(0, (uint64_t) _mm_cvtsi128_si64(x));
+    crc64 = _mm_crc32_u64(crc64, (uint64_t) _mm_extract_epi64(x, 1));
+    crc = (uint32_t) crc64;
+
+    DEBUG_PRINTF1(" = 0x%08x\n", crc);
+    return crc;
+}
+
+#endif
+
 static uint32_t crc32c_words(uint32_t crc, const void *buf, size_t count) {
     DEBUG_PRINTF3("  crc32c_words(crc = 0x%08x, buf = %p, count = " SIZE_T_FORMAT ")", crc, buf, count);
 
@@ -181,10 +369,8 @@ static uint32_t crc32c_bytes(uint32_t crc, const void *buf, size_t count) {
     return crc;
 }
 
-uint32_t crc32c(uint32_t init, const void *buf, size_t len, const chunk_config* config) {
-    DEBUG_PRINTF3("crc32c(init = 0x%08x, buf = %p, len = " SIZE_T_FORMAT ")\n", init, buf, len);
-
-    uint32_t crc = ~init;
+// updates the raw (non-inverted) CRC register with the given buffer
+static uint32_t crc32c_update(uint32_t crc, const void *buf, size_t len, const chunk_config* config) {
     const char *pc = (const char*) buf;
     if (len >= 24) {
         if ((uintptr_t) pc & 7) {
@@ -193,6 +379,14 @@ uint32_t crc32c(uint32_t init, const void *buf, size_t len, const chunk_config*
             pc += unaligned;
             len -= unaligned;
         }
+#ifdef CRC32C_VPCLMULQDQ
+        if (has_vpclmulqdq && len >= FOLD_MIN_BYTES) {
+            const size_t blocks = len / FOLD_BLOCK_BYTES;
+            crc = crc32c_fold(crc, pc, blocks);
+            pc += blocks * FOLD_BLOCK_BYTES;
+            len -= blocks * FOLD_BLOCK_BYTES;
+        }
+#endif
         size_t words = len / 8;
         while (config) {
             while (words >= config->words) {
@@ -210,6 +404,25 @@ uint32_t crc32c(uint32_t init, const void *buf, size_t len, const chunk_config*
     }
     if (len)
         crc = crc32c_bytes(crc, pc, len);
+    return crc;
+}
+
+uint32_t crc32c(uint32_t init, const void *buf, size_t len, const chunk_config* config) {
+    DEBUG_PRINTF3("crc32c(init = 0x%08x, buf = %p, len = " SIZE_T_FORMAT ")\n", init, buf, len);
+
+    uint32_t crc = ~crc32c_update(~init, buf, len, config);
+
+    DEBUG_PRINTF1("crc = 0x%08x\n", crc);
+    return crc;
+}
+
+uint32_t crc32c_gather(uint32_t init, const void *const *bufs, const size_t *lens, size_t count,
+                       const chunk_config* config) {
+    DEBUG_PRINTF2("crc32c_gather(init = 0x%08x, count = " SIZE_T_FORMAT ")\n", init, count);
+
+    uint32_t crc = ~init;
+    for (size_t i = 0; i < count; ++i)
+        crc = crc32c_update(crc, bufs[i], lens[i], config);
     crc = ~crc;
 
     DEBUG_PRINTF1("crc = 0x%08x\n", crc);
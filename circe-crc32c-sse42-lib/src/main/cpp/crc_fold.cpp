@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include "crc_fold.hpp"
+
+#include <assert.h>
+#include <tmmintrin.h> // SSSE3
+#include <smmintrin.h> // SSE4.1
+#include <wmmintrin.h> // PCLMUL
+
+#ifdef _MSC_VER
+# include <intrin.h>
+#else
+# include <cpuid.h>
+#endif
+
+// bytes folded per iteration by eight 128-bit accumulators
+#define FOLD_BLOCK_BYTES 128
+
+// minimum length for which folding beats the byte-wise table
+#define FOLD_MIN_BYTES 256
+
+static bool initialized = false;
+static bool has_fold = false;
+
+bool crc_fold_initialize() {
+    if (!initialized) {
+        const uint32_t cpuid_ecx_pclmulqdq = (1 << 1);
+        const uint32_t cpuid_ecx_ssse3 = (1 << 9);
+        const uint32_t cpuid_ecx_sse41 = (1 << 19);
+        const uint32_t required = cpuid_ecx_pclmulqdq | cpuid_ecx_ssse3 | cpuid_ecx_sse41;
+
+#ifdef _MSC_VER
+        int CPUInfo[4] = {};
+        __cpuid(CPUInfo, 1);
+        has_fold = ((uint32_t) CPUInfo[2] & required) == required;
+#else
+        unsigned int eax, ebx, ecx, edx;
+        if (__get_cpuid(1, &eax, &ebx, &ecx, &edx))
+            has_fold = (ecx & required) == required;
+#endif
+        initialized = true;
+    }
+    return has_fold;
+}
+
+static uint64_t reverse64(uint64_t x) {
+    x = ((x >> 1) & 0x5555555555555555ULL) | ((x & 0x5555555555555555ULL) << 1);
+    x = ((x >> 2) & 0x3333333333333333ULL) | ((x & 0x3333333333333333ULL) << 2);
+    x = ((x >> 4) & 0x0f0f0f0f0f0f0f0fULL) | ((x & 0x0f0f0f0f0f0f0f0fULL) << 4);
+    x = ((x >> 8) & 0x00ff00ff00ff00ffULL) | ((x & 0x00ff00ff00ff00ffULL) << 8);
+    x = ((x >> 16) & 0x0000ffff0000ffffULL) | ((x & 0x0000ffff0000ffffULL) << 16);
+    return (x >> 32) | (x << 32);
+}
+
+crc_fold_config::crc_fold_config(unsigned int width, uint64_t poly, bool reflected) :
+    width(width), reflected(reflected), poly(poly) {
+    assert(width > 0 && width <= 64);
+    if (reflected) {
+        // table for a right-aligned reflected register
+        const uint64_t rpoly = reverse64(poly) >> (64 - width);
+        for (unsigned int i = 0; i < 256; ++i) {
+            uint64_t crc = i;
+            for (int j = 0; j < 8; ++j)
+                crc = (crc & 1) ? (crc >> 1) ^ rpoly : crc >> 1;
+            table[i] = crc;
+        }
+    } else {
+        // table for a left-aligned normal register
+        const uint64_t shpoly = poly << (64 - width);
+        for (unsigned int i = 0; i < 256; ++i) {
+            uint64_t crc = (uint64_t) i << 56;
+            for (int j = 0; j < 8; ++j)
+                crc = (crc >> 63) ? (crc << 1) ^ shpoly : crc << 1;
+            table[i] = crc;
+        }
+    }
+    make_fold_constant(FOLD_BLOCK_BYTES, fold_128);
+    make_fold_constant(16, fold_16);
+}
+
+// returns x^n mod P, with bit i corresponding to x^i
+uint64_t crc_fold_config::xpow_mod(size_t n) const {
+    const uint64_t top = (uint64_t) 1 << (width - 1);
+    const uint64_t mask = top | (top - 1);
+    uint64_t r = 1;
+    for (size_t i = 0; i < n; ++i)
+        r = (r & top) ? ((r << 1) & mask) ^ poly : r << 1;
+    return r;
+}
+
+// A 128-bit lane holding the high and low 64-bit halves H and L of the input
+// represents H * x^64 + L, so moving it D bits forward is done by multiplying
+// H by x^(64+D) mod P and L by x^D mod P. In the reflected domain, the
+// quadwords are stored in reverse order, bit-reversed, and the exponents are
+// reduced by one, since a carry-less multiply of reflected operands yields the
+// reflected product shifted by one. Either way, the constant for the half in
+// the low quadword of the lane is stored in the low quadword.
+void crc_fold_config::make_fold_constant(size_t bytes, uint64_t k[2]) const {
+    const size_t bits = bytes * 8;
+    if (reflected) {
+        k[0] = reverse64(xpow_mod(bits + 63));
+        k[1] = reverse64(xpow_mod(bits - 1));
+    } else {
+        k[0] = xpow_mod(bits);
+        k[1] = xpow_mod(bits + 64);
+    }
+}
+
+uint64_t crc_fold_config::update_bytes(uint64_t crc, const uint8_t *buf, size_t len) const {
+    if (reflected) {
+        for (size_t i = 0; i < len; ++i)
+            crc = table[(crc ^ buf[i]) & 0xff] ^ (crc >> 8);
+        return crc;
+    }
+    crc <<= 64 - width;
+    for (size_t i = 0; i < len; ++i)
+        crc = table[(crc >> 56) ^ buf[i]] ^ (crc << 8);
+    return crc >> (64 - width);
+}
+
+// loads 16 bytes of input so that the first input bit is least significant in
+// the reflected domain, or most significant in the normal domain
+template <bool R>
+static inline __m128i load_lane(const uint8_t *buf) {
+    const __m128i x = _mm_loadu_si128((const __m128i*) buf);
+    return R ? x : _mm_shuffle_epi8(x, _mm_set_epi8(0, 1, 2, 3, 4, 5, 6, 7,
+        8, 9, 10, 11, 12, 13, 14, 15));
+}
+
+static inline __m128i fold_lane(__m128i x, __m128i k, __m128i next) {
+    const __m128i lo = _mm_clmulepi64_si128(x, k, 0x00);
+    const __m128i hi = _mm_clmulepi64_si128(x, k, 0x11);
+    return _mm_xor_si128(_mm_xor_si128(lo, hi), next);
+}
+
+// folds all complete 16-byte lanes of the input, advancing the buffer pointer
+// and decrementing the length accordingly
+template <bool R>
+uint64_t crc_fold_config::fold(uint64_t crc, const uint8_t *&buf, size_t &len) const {
+    assert(len >= FOLD_BLOCK_BYTES);
+
+    __m128i x[8];
+    for (int i = 0; i < 8; ++i)
+        x[i] = load_lane<R>(buf + i * 16);
+    // the CRC register is equivalent to XORing it into the first input bits
+    if (R)
+        x[0] = _mm_xor_si128(x[0], _mm_set_epi64x(0, (int64_t) crc));
+    else
+        x[0] = _mm_xor_si128(x[0], _mm_set_epi64x((int64_t) (crc << (64 - width)), 0));
+    buf += FOLD_BLOCK_BYTES;
+    len -= FOLD_BLOCK_BYTES;
+
+    const __m128i k128 = _mm_loadu_si128((const __m128i*) fold_128);
+    for (; len >= FOLD_BLOCK_BYTES; buf += FOLD_BLOCK_BYTES, len -= FOLD_BLOCK_BYTES) {
+        for (int i = 0; i < 8; ++i)
+            x[i] = fold_lane(x[i], k128, load_lane<R>(buf + i * 16));
+    }
+
+    const __m128i k16 = _mm_loadu_si128((const __m128i*) fold_16);
+    __m128i acc = x[0];
+    for (int i = 1; i < 8; ++i)
+        acc = fold_lane(acc, k16, x[i]);
+    for (; len >= 16; buf += 16, len -= 16)
+        acc = fold_lane(acc, k16, load_lane<R>(buf));
+
+    // the remaining lane is reduced using the table, in input byte order
+    uint8_t last[16];
+    _mm_storeu_si128((__m128i*) last, R ? acc : _mm_shuffle_epi8(acc, _mm_set_epi8(0, 1, 2,
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15)));
+    return update_bytes(0, last, 16);
+}
+
+uint64_t crc_fold_config::update(uint64_t crc, const void *buf, size_t len) const {
+    const uint8_t *pc = (const uint8_t*) buf;
+    if (len >= FOLD_MIN_BYTES && has_fold)
+        crc = reflected ? fold<true>(crc, pc, len) : fold<false>(crc, pc, len);
+    return update_bytes(crc, pc, len);
+}
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include "sha256_mb.hpp"
+
+#include <assert.h>
+#include <string.h>
+#include <emmintrin.h> // SSE2
+#include <immintrin.h> // AVX2
+
+#ifdef _MSC_VER
+# include <intrin.h>
+# define SHA256_TARGET_AVX2
+#else
+# include <cpuid.h>
+# define SHA256_TARGET_AVX2 __attribute__((target("avx2")))
+#endif
+
+static bool initialized = false;
+static bool has_avx2 = false;
+
+bool sha256_mb_initialize() {
+    if (!initialized) {
+        const uint32_t cpuid_ecx_osxsave = (1 << 27);
+        const uint32_t cpuid_ecx_avx = (1 << 28);
+        const uint32_t cpuid7_ebx_avx2 = (1 << 5);
+        // XMM and YMM state
+        const uint32_t xcr0_avx = 0x6;
+
+        bool has_avx = false;
+        uint32_t xcr0 = 0;
+#ifdef _MSC_VER
+        int CPUInfo[4] = {};
+        __cpuid(CPUInfo, 1);
+        has_avx = ((uint32_t) CPUInfo[2] & (cpuid_ecx_osxsave | cpuid_ecx_avx)) ==
+            (cpuid_ecx_osxsave | cpuid_ecx_avx);
+        __cpuid(CPUInfo, 0);
+        if (CPUInfo[0] >= 7) {
+            __cpuidex(CPUInfo, 7, 0);
+            has_avx2 = (CPUInfo[1] & cpuid7_ebx_avx2) != 0;
+        }
+        if (has_avx)
+            xcr0 = (uint32_t) _xgetbv(0);
+#else
+        unsigned int eax, ebx, ecx, edx;
+        if (__get_cpuid(1, &eax, &ebx, &ecx, &edx))
+            has_avx = (ecx & (cpuid_ecx_osxsave | cpuid_ecx_avx)) ==
+                (cpuid_ecx_osxsave | cpuid_ecx_avx);
+        if (__get_cpuid_max(0, 0) >= 7) {
+            __cpuid_count(7, 0, eax, ebx, ecx, edx);
+            has_avx2 = (ebx & cpuid7_ebx_avx2) != 0;
+        }
+        if (has_avx) {
+            __asm__ ("xgetbv" : "=a" (eax), "=d" (edx) : "c" (0));
+            xcr0 = eax;
+        }
+#endif
+        // the OS must also save the YMM register state
+        has_avx2 = has_avx2 && has_avx && (xcr0 & xcr0_avx) == xcr0_avx;
+        initialized = true;
+    }
+    // SSE2 is part of the x86-64 baseline
+    return true;
+}
+
+size_t sha256_mb_lanes() {
+    return has_avx2 ? 8 : 4;
+}
+
+static const uint32_t sha256_k[64] = {
+    0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+    0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+    0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+    0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+    0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+    0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+    0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+    0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2,
+};
+
+static const uint32_t sha256_iv[8] = {
+    0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19,
+};
+
+// loads 16 bytes from each of 4 lanes as big-endian words, transposed so that
+// w[i] holds word i of every lane
+static inline void transpose_sse2(__m128i *w, const uint8_t *const *blocks, int offset) {
+    __m128i r[4];
+    for (int j = 0; j < 4; ++j) {
+        __m128i x = _mm_loadu_si128((const __m128i*) (blocks[j] + offset));
+        // swap the 16-bit halves of each word, then the bytes of each half
+        x = _mm_shufflehi_epi16(_mm_shufflelo_epi16(x, 0xb1), 0xb1);
+        r[j] = _mm_or_si128(_mm_slli_epi16(x, 8), _mm_srli_epi16(x, 8));
+    }
+    const __m128i t0 = _mm_unpacklo_epi32(r[0], r[1]);
+    const __m128i t1 = _mm_unpackhi_epi32(r[0], r[1]);
+    const __m128i t2 = _mm_unpacklo_epi32(r[2], r[3]);
+    const __m128i t3 = _mm_unpackhi_epi32(r[2], r[3]);
+    w[0] = _mm_unpacklo_epi64(t0, t2);
+    w[1] = _mm_unpackhi_epi64(t0, t2);
+    w[2] = _mm_unpacklo_epi64(t1, t3);
+    w[3] = _mm_unpackhi_epi64(t1, t3);
+}
+
+static inline void load_words_sse2(__m128i *w, const uint8_t *const *blocks) {
+    for (int i = 0; i < 4; ++i)
+        transpose_sse2(w + i * 4, blocks, i * 16);
+}
+
+// loads 32 bytes from each of 8 lanes as big-endian words, transposed so that
+// w[i] holds word i of every lane
+SHA256_TARGET_AVX2
+static inline void transpose_avx2(__m256i *w, const uint8_t *const *blocks, int offset) {
+    const __m256i bswap = _mm256_set_epi8(
+        12, 13, 14, 15, 8, 9, 10, 11, 4, 5, 6, 7, 0, 1, 2, 3,
+        12, 13, 14, 15, 8, 9, 10, 11, 4, 5, 6, 7, 0, 1, 2, 3);
+    __m256i r[8];
+    for (int j = 0; j < 8; ++j)
+        r[j] = _mm256_shuffle_epi8(_mm256_loadu_si256((const __m256i*) (blocks[j] + offset)),
+                                   bswap);
+    // within each 128-bit half, gather words 0-3 (low half) or 4-7 (high half)
+    __m256i u[8];
+    for (int k = 0; k < 8; k += 4) {
+        const __m256i t0 = _mm256_unpacklo_epi32(r[k], r[k + 1]);
+        const __m256i t1 = _mm256_unpackhi_epi32(r[k], r[k + 1]);
+        const __m256i t2 = _mm256_unpacklo_epi32(r[k + 2], r[k + 3]);
+        const __m256i t3 = _mm256_unpackhi_epi32(r[k + 2], r[k + 3]);
+        u[k] = _mm256_unpacklo_epi64(t0, t2);
+        u[k + 1] = _mm256_unpackhi_epi64(t0, t2);
+        u[k + 2] = _mm256_unpacklo_epi64(t1, t3);
+        u[k + 3] = _mm256_unpackhi_epi64(t1, t3);
+    }
+    for (int i = 0; i < 4; ++i) {
+        w[i] = _mm256_permute2x128_si256(u[i], u[i + 4], 0x20);
+        w[i + 4] = _mm256_permute2x128_si256(u[i], u[i + 4], 0x31);
+    }
+}
+
+SHA256_TARGET_AVX2
+static inline void load_words_avx2(__m256i *w, const uint8_t *const *blocks) {
+    transpose_avx2(w, blocks, 0);
+    transpose_avx2(w + 8, blocks, 32);
+}
+
+// SSE2, 4 lanes
+
+#define SHA256_MB_NAME(x) x##_sse2
+#define SHA256_MB_TARGET
+#define SHA256_MB_LANES 4
+#define V __m128i
+#define V_LOAD(p) _mm_loadu_si128((const __m128i*) (p))
+#define V_STORE(p, x) _mm_storeu_si128((__m128i*) (p), x)
+#define V_SET1(x) _mm_set1_epi32((int) (x))
+#define V_ADD(x, y) _mm_add_epi32(x, y)
+#define V_XOR(x, y) _mm_xor_si128(x, y)
+#define V_AND(x, y) _mm_and_si128(x, y)
+#define V_ANDNOT(x, y) _mm_andnot_si128(x, y)
+#define V_OR(x, y) _mm_or_si128(x, y)
+#define V_SRL(x, n) _mm_srli_epi32(x, n)
+#define V_SLL(x, n) _mm_slli_epi32(x, n)
+#define V_LOAD_WORDS(w, blocks) load_words_sse2(w, blocks)
+#include "sha256_mb_lanes.hpp"
+#undef SHA256_MB_NAME
+#undef SHA256_MB_TARGET
+#undef SHA256_MB_LANES
+#undef V
+#undef V_LOAD
+#undef V_STORE
+#undef V_SET1
+#undef V_ADD
+#undef V_XOR
+#undef V_AND
+#undef V_ANDNOT
+#undef V_OR
+#undef V_SRL
+#undef V_SLL
+#undef V_LOAD_WORDS
+
+// AVX2, 8 lanes
+
+#define SHA256_MB_NAME(x) x##_avx2
+#define SHA256_MB_TARGET SHA256_TARGET_AVX2
+#define SHA256_MB_LANES 8
+#define V __m256i
+#define V_LOAD(p) _mm256_loadu_si256((const __m256i*) (p))
+#define V_STORE(p, x) _mm256_storeu_si256((__m256i*) (p), x)
+#define V_SET1(x) _mm256_set1_epi32((int) (x))
+#define V_ADD(x, y) _mm256_add_epi32(x, y)
+#define V_XOR(x, y) _mm256_xor_si256(x, y)
+#define V_AND(x, y) _mm256_and_si256(x, y)
+#define V_ANDNOT(x, y) _mm256_andnot_si256(x, y)
+#define V_OR(x, y) _mm256_or_si256(x, y)
+#define V_SRL(x, n) _mm256_srli_epi32(x, n)
+#define V_SLL(x, n) _mm256_slli_epi32(x, n)
+#define V_LOAD_WORDS(w, blocks) load_words_avx2(w, blocks)
+#include "sha256_mb_lanes.hpp"
+#undef SHA256_MB_NAME
+#undef SHA256_MB_TARGET
+#undef SHA256_MB_LANES
+#undef V
+#undef V_LOAD
+#undef V_STORE
+#undef V_SET1
+#undef V_ADD
+#undef V_XOR
+#undef V_AND
+#undef V_ANDNOT
+#undef V_OR
+#undef V_SRL
+#undef V_SLL
+#undef V_LOAD_WORDS
+
+// progress of one lane through its current message
+struct sha256_lane {
+    const uint8_t *body;   // next full block of the message
+    size_t body_blocks;    // full blocks remaining in the message
+    size_t tail_blocks;    // padded final blocks remaining
+    size_t tail_offset;    // offset of the next padded block in tail
+    size_t msg;            // index of the message
+    bool active;
+    uint8_t tail[128];     // final partial block, padding, and length
+
+    void start(size_t index, const uint8_t *buf, size_t len) {
+        const size_t rem = len & 63;
+        body = buf;
+        body_blocks = len >> 6;
+        tail_blocks = rem + 9 <= 64 ? 1 : 2;
+        tail_offset = 0;
+        msg = index;
+        active = true;
+        memset(tail, 0, sizeof(tail));
+        if (rem)
+            memcpy(tail, buf + len - rem, rem);
+        tail[rem] = 0x80;
+        const uint64_t bits = (uint64_t) len << 3;
+        uint8_t *end = tail + tail_blocks * 64;
+        for (int i = 1; i <= 8; ++i)
+            end[-i] = (uint8_t) (bits >> ((i - 1) * 8));
+    }
+
+    const uint8_t *block() const {
+        return body_blocks ? body : tail + tail_offset;
+    }
+
+    // returns true if the message is finished
+    bool advance() {
+        if (body_blocks) {
+            body += 64;
+            --body_blocks;
+            return false;
+        }
+        tail_offset += 64;
+        return --tail_blocks == 0;
+    }
+};
+
+typedef void (*sha256_compress_fn)(uint32_t *state, const uint8_t *const *blocks);
+
+void sha256_mb(const uint8_t *const *msgs, const size_t *lens, size_t count, uint8_t *digests,
+               size_t lanes) {
+    assert(lanes == 4 || (lanes == 8 && has_avx2));
+    static const uint8_t idle_block[64] = { 0 };
+    const sha256_compress_fn compress = lanes == 8 ? compress_avx2 : compress_sse2;
+
+    uint32_t state[8 * 8];
+    sha256_lane lane[8];
+    const uint8_t *blocks[8];
+    for (size_t j = 0; j < lanes; ++j)
+        lane[j].active = false;
+
+    size_t next = 0, active = 0;
+    for (;;) {
+        // refill idle lanes
+        for (size_t j = 0; j < lanes && next < count; ++j) {
+            if (!lane[j].active) {
+                lane[j].start(next, msgs[next], lens[next]);
+                for (int i = 0; i < 8; ++i)
+                    state[i * lanes + j] = sha256_iv[i];
+                ++next;
+                ++active;
+            }
+        }
+        if (!active)
+            break;
+
+        // idle lanes hash a dummy block, whose result is ignored
+        for (size_t j = 0; j < lanes; ++j)
+            blocks[j] = lane[j].active ? lane[j].block() : idle_block;
+        compress(state, blocks);
+
+        for (size_t j = 0; j < lanes; ++j) {
+            if (lane[j].active && lane[j].advance()) {
+                uint8_t *out = digests + lane[j].msg * 32;
+                for (int i = 0; i < 8; ++i) {
+                    const uint32_t x = state[i * lanes + j];
+                    out[i * 4] = (uint8_t) (x >> 24);
+                    out[i * 4 + 1] = (uint8_t) (x >> 16);
+                    out[i * 4 + 2] = (uint8_t) (x >> 8);
+                    out[i * 4 + 3] = (uint8_t) x;
+                }
+                lane[j].active = false;
+                --active;
+            }
+        }
+    }
+}
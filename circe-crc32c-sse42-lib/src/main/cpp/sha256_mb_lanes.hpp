@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+// SHA-256 compression of one 64-byte block in each SIMD lane. This file is
+// included once per instruction set, without an include guard, after
+// defining the following macros:
+//
+//   SHA256_MB_NAME(x)   - the name of a function for this instruction set
+//   SHA256_MB_TARGET    - the target attribute for this instruction set
+//   SHA256_MB_LANES     - the number of 32-bit lanes in a vector
+//   V                   - the vector type
+//   V_LOAD, V_STORE     - unaligned vector load and store
+//   V_SET1              - broadcasts a 32-bit value
+//   V_ADD, V_XOR, V_AND, V_ANDNOT, V_OR - lane-wise operations
+//   V_SRL, V_SLL        - lane-wise shifts by a constant count
+//   V_LOAD_WORDS(w, blocks) - transposes the big-endian words of each lane's
+//                         block into w[0..15]
+
+#define V_ROR(x, n) V_OR(V_SRL(x, n), V_SLL(x, 32 - (n)))
+#define W(i) w[(i) & 15]
+#define SCHEDULE(i) (W(i) = V_ADD(V_ADD(W(i), W((i) - 7)), V_ADD( \
+    V_XOR(V_XOR(V_ROR(W((i) - 15), 7), V_ROR(W((i) - 15), 18)), V_SRL(W((i) - 15), 3)), \
+    V_XOR(V_XOR(V_ROR(W((i) - 2), 17), V_ROR(W((i) - 2), 19)), V_SRL(W((i) - 2), 10)))))
+#define ROUND(a, b, c, d, e, f, g, h, i, wi) do { \
+        const V t1 = V_ADD(V_ADD(V_ADD(h, V_XOR(V_XOR(V_ROR(e, 6), V_ROR(e, 11)), V_ROR(e, 25))), \
+            V_ADD(V_XOR(V_AND(e, f), V_ANDNOT(e, g)), V_SET1(sha256_k[i]))), wi); \
+        const V t2 = V_ADD(V_XOR(V_XOR(V_ROR(a, 2), V_ROR(a, 13)), V_ROR(a, 22)), \
+            V_OR(V_AND(a, b), V_AND(c, V_OR(a, b)))); \
+        d = V_ADD(d, t1); \
+        h = V_ADD(t1, t2); \
+    } while (0)
+#define ROUNDS8(i, WI) do { \
+        ROUND(a, b, c, d, e, f, g, h, (i) + 0, WI((i) + 0)); \
+        ROUND(h, a, b, c, d, e, f, g, (i) + 1, WI((i) + 1)); \
+        ROUND(g, h, a, b, c, d, e, f, (i) + 2, WI((i) + 2)); \
+        ROUND(f, g, h, a, b, c, d, e, (i) + 3, WI((i) + 3)); \
+        ROUND(e, f, g, h, a, b, c, d, (i) + 4, WI((i) + 4)); \
+        ROUND(d, e, f, g, h, a, b, c, (i) + 5, WI((i) + 5)); \
+        ROUND(c, d, e, f, g, h, a, b, (i) + 6, WI((i) + 6)); \
+        ROUND(b, c, d, e, f, g, h, a, (i) + 7, WI((i) + 7)); \
+    } while (0)
+
+// state holds word i of lane j at state[i * SHA256_MB_LANES + j]
+SHA256_MB_TARGET
+static void SHA256_MB_NAME(compress)(uint32_t *state, const uint8_t *const *blocks) {
+    V w[16];
+    V_LOAD_WORDS(w, blocks);
+
+    V a = V_LOAD(state + 0 * SHA256_MB_LANES);
+    V b = V_LOAD(state + 1 * SHA256_MB_LANES);
+    V c = V_LOAD(state + 2 * SHA256_MB_LANES);
+    V d = V_LOAD(state + 3 * SHA256_MB_LANES);
+    V e = V_LOAD(state + 4 * SHA256_MB_LANES);
+    V f = V_LOAD(state + 5 * SHA256_MB_LANES);
+    V g = V_LOAD(state + 6 * SHA256_MB_LANES);
+    V h = V_LOAD(state + 7 * SHA256_MB_LANES);
+
+    ROUNDS8(0, W);
+    ROUNDS8(8, W);
+    for (int i = 16; i < 64; i += 16) {
+        ROUNDS8(i, SCHEDULE);
+        ROUNDS8(i + 8, SCHEDULE);
+    }
+
+    V_STORE(state + 0 * SHA256_MB_LANES, V_ADD(a, V_LOAD(state + 0 * SHA256_MB_LANES)));
+    V_STORE(state + 1 * SHA256_MB_LANES, V_ADD(b, V_LOAD(state + 1 * SHA256_MB_LANES)));
+    V_STORE(state + 2 * SHA256_MB_LANES, V_ADD(c, V_LOAD(state + 2 * SHA256_MB_LANES)));
+    V_STORE(state + 3 * SHA256_MB_LANES, V_ADD(d, V_LOAD(state + 3 * SHA256_MB_LANES)));
+    V_STORE(state + 4 * SHA256_MB_LANES, V_ADD(e, V_LOAD(state + 4 * SHA256_MB_LANES)));
+    V_STORE(state + 5 * SHA256_MB_LANES, V_ADD(f, V_LOAD(state + 5 * SHA256_MB_LANES)));
+    V_STORE(state + 6 * SHA256_MB_LANES, V_ADD(g, V_LOAD(state + 6 * SHA256_MB_LANES)));
+    V_STORE(state + 7 * SHA256_MB_LANES, V_ADD(h, V_LOAD(state + 7 * SHA256_MB_LANES)));
+}
+
+#undef ROUNDS8
+#undef ROUND
+#undef SCHEDULE
+#undef W
+#undef V_ROR
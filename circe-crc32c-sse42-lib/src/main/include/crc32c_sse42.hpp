@@ -38,3 +38,9 @@ private:
 };
 
 uint32_t crc32c(uint32_t init, const void *buf, size_t len, const chunk_config* config);
+
+// computes the CRC of the concatenation of count buffers
+uint32_t crc32c_gather(uint32_t init, const void *const *bufs, const size_t *lens, size_t count,
+                       const chunk_config* config);
+
+uint32_t crc32c_combine(uint32_t crc1, uint32_t crc2, uint64_t len2);
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include "int_types.h"
+
+bool crc_fold_initialize();
+
+// Configuration for a CRC of any width up to 64 bits, computed by folding
+// 128-bit lanes of input using carry-less multiplication. Register values are
+// right-aligned; for reflected CRCs, the register is also reflected.
+class crc_fold_config {
+public:
+    const unsigned int width;
+    const bool reflected;
+
+    crc_fold_config(unsigned int width, uint64_t poly, bool reflected);
+
+    uint64_t update(uint64_t crc, const void *buf, size_t len) const;
+
+private:
+    uint64_t poly;
+    uint64_t table[256];
+    uint64_t fold_128[2];
+    uint64_t fold_16[2];
+
+    crc_fold_config& operator=(const crc_fold_config&);
+
+    uint64_t xpow_mod(size_t n) const;
+    void make_fold_constant(size_t bytes, uint64_t k[2]) const;
+    uint64_t update_bytes(uint64_t crc, const uint8_t *buf, size_t len) const;
+    template <bool R> uint64_t fold(uint64_t crc, const uint8_t *&buf, size_t &len) const;
+};
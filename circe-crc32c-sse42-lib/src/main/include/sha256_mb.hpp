@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include "int_types.h"
+
+// Multi-buffer SHA-256, which hashes independent messages in the SIMD lanes
+// of SSE2 (4 lanes) or AVX2 (8 lanes) registers. Each lane is refilled with
+// the next message as soon as its current message is finished.
+
+bool sha256_mb_initialize();
+
+// returns the widest supported lane count: 8 with AVX2, otherwise 4
+size_t sha256_mb_lanes();
+
+// hashes count messages using the given lane count (4, or 8 if supported),
+// writing their 32-byte digests consecutively to digests
+void sha256_mb(const uint8_t *const *msgs, const size_t *lens, size_t count, uint8_t *digests,
+               size_t lanes);
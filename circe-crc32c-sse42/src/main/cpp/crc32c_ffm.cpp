@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include <jni.h>
+#include "crc32c_sse42.hpp"
+
+// unmangled entry point for foreign function (java.lang.foreign) downcalls;
+// the configuration is the address returned by Sse42Crc32C.allocConfig, or 0
+extern "C"
+JNIEXPORT uint32_t circe_crc32c(uint32_t init, const void *buf, size_t len, int64_t config) {
+    return crc32c(init, buf, len, (const chunk_config*) (intptr_t) config);
+}
@@ -15,6 +15,7 @@
  ******************************************************************************/
 #include "com_scurrilous_circe_crc_Sse42Crc32C.h"
 #include "crc32c_sse42.hpp"
+#include <cstddef>
 #include <new>
 
 extern "C"
@@ -47,6 +48,193 @@ JNIEXPORT jint JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeUnsafe
     return (jint) crc32c((uint32_t) current, (const void *) address, (size_t) length, (const chunk_config*) config);
 }
 
+enum { gather_stack_count = 64 };
+
+static void throw_new(JNIEnv *env, const char *name, const char *message) {
+    jclass cls = env->FindClass(name);
+    if (cls)
+        env->ThrowNew(cls, message);
+}
+
+// returns the address of a direct buffer, or throws and returns null
+static const char *direct_address(JNIEnv *env, jobject buffer) {
+    const char *address = (const char *) env->GetDirectBufferAddress(buffer);
+    if (!address)
+        throw_new(env, "java/lang/UnsupportedOperationException",
+            "direct buffer address unavailable");
+    return address;
+}
+
+extern "C"
+JNIEXPORT jint JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeDirectBuffers
+(JNIEnv *env, jclass, jint current, jobjectArray input, jint offset, jintArray positions,
+ jintArray lengths, jint count, jlong config) {
+    const void *stack_bufs[gather_stack_count];
+    size_t stack_lens[gather_stack_count];
+    const void **bufs = stack_bufs;
+    size_t *lens = stack_lens;
+    if (count > gather_stack_count) {
+        bufs = new (std::nothrow) const void*[count];
+        lens = new (std::nothrow) size_t[count];
+        if (!bufs || !lens) {
+            delete[] bufs;
+            delete[] lens;
+            throw_new(env, "java/lang/OutOfMemoryError", "gather arrays");
+            return 0;
+        }
+    }
+    jint *pos = env->GetIntArrayElements(positions, 0);
+    jint *len = pos ? env->GetIntArrayElements(lengths, 0) : 0;
+    bool ok = pos && len;
+    if (!ok && !env->ExceptionCheck())
+        throw_new(env, "java/lang/OutOfMemoryError", "gather positions");
+    for (jint i = 0; ok && i < count; ++i) {
+        jobject buffer = env->GetObjectArrayElement(input, offset + i);
+        const char *address = direct_address(env, buffer);
+        env->DeleteLocalRef(buffer);
+        if (!address) {
+            ok = false;
+        } else {
+            bufs[i] = address + pos[i];
+            lens[i] = (size_t) len[i];
+        }
+    }
+    if (len)
+        env->ReleaseIntArrayElements(lengths, len, JNI_ABORT);
+    if (pos)
+        env->ReleaseIntArrayElements(positions, pos, JNI_ABORT);
+    jint crc = ok ? (jint) crc32c_gather((uint32_t) current, bufs, lens, (size_t) count,
+        (const chunk_config*) config) : 0;
+    if (bufs != stack_bufs) {
+        delete[] bufs;
+        delete[] lens;
+    }
+    return crc;
+}
+
+// calculates or verifies the CRC of each record; returns the index of the
+// first mismatch when verifying, or -1
+static jint crc32c_batch(const char *buf, const jint *offsets, const jint *lengths, jint *crcs,
+                         jint start, jint count, bool verify, const chunk_config* config) {
+    for (jint i = start; i < start + count; ++i) {
+        const jint crc = (jint) crc32c(0, buf + offsets[i], (size_t) lengths[i], config);
+        if (!verify)
+            crcs[i] = crc;
+        else if (crcs[i] != crc)
+            return i;
+    }
+    return -1;
+}
+
+static void crc32c_strided(const char *buf, jint stride, jint *crcs, jint count,
+                           const chunk_config* config) {
+    for (jint i = 0; i < count; ++i, buf += stride)
+        crcs[i] = (jint) crc32c(0, buf, (size_t) stride, config);
+}
+
+// batches copy their record arrays in blocks of this many records, rather
+// than pinning them, so that hashing large records does not block garbage
+// collection; array inputs are pinned only while hashing a block, and the
+// Java caller limits each call to one slice of the input
+enum { batch_block_count = 256 };
+
+extern "C"
+JNIEXPORT jint JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeArrayBatch
+(JNIEnv *env, jclass, jbyteArray input, jint base, jintArray offsets, jintArray lengths,
+ jintArray crcs, jint start, jint count, jboolean verify, jlong config) {
+    jint offs[batch_block_count];
+    jint lens[batch_block_count];
+    jint out[batch_block_count];
+    const jint end = start + count;
+    for (jint block = start; block < end; block += batch_block_count) {
+        const jint n = end - block < batch_block_count ? end - block : batch_block_count;
+        env->GetIntArrayRegion(offsets, block, n, offs);
+        env->GetIntArrayRegion(lengths, block, n, lens);
+        if (verify)
+            env->GetIntArrayRegion(crcs, block, n, out);
+        if (env->ExceptionCheck())
+            return -1;
+        const char *buf = (const char *) env->GetPrimitiveArrayCritical(input, 0);
+        if (!buf)
+            return -1; // OutOfMemoryError pending
+        const jint result = crc32c_batch(buf + base, offs, lens, out, 0, n,
+            verify != JNI_FALSE, (const chunk_config*) config);
+        env->ReleasePrimitiveArrayCritical(input, (void*) buf, JNI_ABORT);
+        if (result >= 0)
+            return block + result;
+        if (!verify)
+            env->SetIntArrayRegion(crcs, block, n, out);
+    }
+    return -1;
+}
+
+extern "C"
+JNIEXPORT void JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeArrayStrided
+(JNIEnv *env, jclass, jbyteArray input, jint index, jint stride, jintArray output, jint start,
+ jint count, jlong config) {
+    jint out[batch_block_count];
+    for (jint block = 0; block < count; block += batch_block_count) {
+        const jint n = count - block < batch_block_count ? count - block : batch_block_count;
+        const char *buf = (const char *) env->GetPrimitiveArrayCritical(input, 0);
+        if (!buf)
+            return; // OutOfMemoryError pending
+        crc32c_strided(buf + index + (ptrdiff_t) block * stride, stride, out, n,
+            (const chunk_config*) config);
+        env->ReleasePrimitiveArrayCritical(input, (void*) buf, JNI_ABORT);
+        env->SetIntArrayRegion(output, start + block, n, out);
+    }
+}
+
+extern "C"
+JNIEXPORT jint JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeDirectBufferBatch
+(JNIEnv *env, jclass, jobject input, jintArray offsets, jintArray lengths, jintArray crcs,
+ jint count, jboolean verify, jlong config) {
+    const char *address = direct_address(env, input);
+    if (!address)
+        return -1;
+    jint offs[batch_block_count];
+    jint lens[batch_block_count];
+    jint out[batch_block_count];
+    for (jint start = 0; start < count; start += batch_block_count) {
+        const jint n = count - start < batch_block_count ? count - start : batch_block_count;
+        env->GetIntArrayRegion(offsets, start, n, offs);
+        env->GetIntArrayRegion(lengths, start, n, lens);
+        if (verify)
+            env->GetIntArrayRegion(crcs, start, n, out);
+        if (env->ExceptionCheck())
+            return -1;
+        const jint result = crc32c_batch(address, offs, lens, out, 0, n, verify != JNI_FALSE,
+            (const chunk_config*) config);
+        if (result >= 0)
+            return start + result;
+        if (!verify)
+            env->SetIntArrayRegion(crcs, start, n, out);
+    }
+    return -1;
+}
+
+extern "C"
+JNIEXPORT void JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeDirectBufferStrided
+(JNIEnv *env, jclass, jobject input, jint index, jint stride, jintArray output, jint count,
+ jlong config) {
+    const char *address = direct_address(env, input);
+    if (!address)
+        return;
+    jint out[batch_block_count];
+    for (jint start = 0; start < count; start += batch_block_count) {
+        const jint n = count - start < batch_block_count ? count - start : batch_block_count;
+        crc32c_strided(address + index + (ptrdiff_t) start * stride, stride, out, n,
+            (const chunk_config*) config);
+        env->SetIntArrayRegion(output, start, n, out);
+    }
+}
+
+extern "C"
+JNIEXPORT jint JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_nativeCombine
+(JNIEnv *, jclass, jint current, jint next, jlong nextLength) {
+    return (jint) crc32c_combine((uint32_t) current, (uint32_t) next, (uint64_t) nextLength);
+}
+
 extern "C"
 JNIEXPORT jlong JNICALL Java_com_scurrilous_circe_crc_Sse42Crc32C_allocConfig
   (JNIEnv *env, jclass, jintArray chunkWords) {
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include "com_scurrilous_circe_crc_PclmulCrc.h"
+#include "crc_fold.hpp"
+#include <new>
+
+extern "C"
+JNIEXPORT jboolean JNICALL Java_com_scurrilous_circe_crc_PclmulCrc_nativeSupported
+(JNIEnv *, jclass) {
+    return crc_fold_initialize();
+}
+
+extern "C"
+JNIEXPORT jlong JNICALL Java_com_scurrilous_circe_crc_PclmulCrc_nativeArray
+(JNIEnv *env, jclass, jlong current, jbyteArray input, jint index, jint length, jlong config) {
+    const char *buf = (const char *) env->GetPrimitiveArrayCritical(input, 0);
+    const crc_fold_config* cfg = (const crc_fold_config*) config;
+    jlong crc = (jlong) cfg->update((uint64_t) current, buf + index, (size_t) length);
+    env->ReleasePrimitiveArrayCritical(input, (void*) buf, JNI_ABORT);
+    return crc;
+}
+
+extern "C"
+JNIEXPORT jlong JNICALL Java_com_scurrilous_circe_crc_PclmulCrc_nativeDirectBuffer
+(JNIEnv *env, jclass, jlong current, jobject input, jint index, jint length, jlong config) {
+    const char *address = (const char *) env->GetDirectBufferAddress(input);
+    if (!address)
+        return 0;
+    const crc_fold_config* cfg = (const crc_fold_config*) config;
+    return (jlong) cfg->update((uint64_t) current, address + index, (size_t) length);
+}
+
+extern "C"
+JNIEXPORT jlong JNICALL Java_com_scurrilous_circe_crc_PclmulCrc_nativeUnsafe
+(JNIEnv *, jclass, jlong current, jlong address, jlong length, jlong config) {
+    const crc_fold_config* cfg = (const crc_fold_config*) config;
+    return (jlong) cfg->update((uint64_t) current, (const void *) address, (size_t) length);
+}
+
+extern "C"
+JNIEXPORT jlong JNICALL Java_com_scurrilous_circe_crc_PclmulCrc_allocConfig
+(JNIEnv *, jclass, jint width, jlong poly, jboolean reflected) {
+    if (width < 1 || width > 64)
+        return 0;
+    return (jlong) new(std::nothrow) crc_fold_config((unsigned int) width, (uint64_t) poly,
+        reflected != JNI_FALSE);
+}
+
+extern "C"
+JNIEXPORT void JNICALL Java_com_scurrilous_circe_crc_PclmulCrc_freeConfig
+(JNIEnv *, jclass, jlong config) {
+    delete (const crc_fold_config*) config;
+}
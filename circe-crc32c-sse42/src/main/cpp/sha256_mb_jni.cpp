@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+#include "com_scurrilous_circe_crc_MultiBufferSha256.h"
+#include "sha256_mb.hpp"
+#include <new>
+
+extern "C"
+JNIEXPORT jboolean JNICALL Java_com_scurrilous_circe_crc_MultiBufferSha256_nativeSupported
+(JNIEnv *, jclass) {
+    return sha256_mb_initialize();
+}
+
+extern "C"
+JNIEXPORT jint JNICALL Java_com_scurrilous_circe_crc_MultiBufferSha256_nativeLanes
+(JNIEnv *, jclass) {
+    return (jint) sha256_mb_lanes();
+}
+
+enum { batch_stack_count = 64 };
+
+// message pointer and length arrays, on the stack for small batches
+class sha256_batch {
+    const uint8_t *stack_msgs[batch_stack_count];
+    size_t stack_lens[batch_stack_count];
+
+public:
+    const uint8_t **msgs;
+    size_t *lens;
+
+    explicit sha256_batch(jint count) : msgs(stack_msgs), lens(stack_lens) {
+        if (count > batch_stack_count) {
+            msgs = new (std::nothrow) const uint8_t*[count];
+            lens = new (std::nothrow) size_t[count];
+        }
+    }
+
+    ~sha256_batch() {
+        if (msgs != stack_msgs) {
+            delete[] msgs;
+            delete[] lens;
+        }
+    }
+
+    bool allocated(JNIEnv *env) const {
+        if (msgs && lens)
+            return true;
+        env->ThrowNew(env->FindClass("java/lang/OutOfMemoryError"), "batch arrays");
+        return false;
+    }
+
+    void hash(const uint8_t *buf, const jint *offsets, const jint *lengths, jint count,
+              uint8_t *digests, jint lanes) {
+        for (jint i = 0; i < count; ++i) {
+            msgs[i] = buf + offsets[i];
+            lens[i] = (size_t) lengths[i];
+        }
+        sha256_mb(msgs, lens, (size_t) count, digests, (size_t) lanes);
+    }
+};
+
+extern "C"
+JNIEXPORT void JNICALL Java_com_scurrilous_circe_crc_MultiBufferSha256_nativeArrayBatch
+(JNIEnv *env, jclass, jbyteArray input, jint base, jintArray offsets, jintArray lengths,
+ jbyteArray output, jint start, jint count, jint lanes) {
+    sha256_batch batch(count);
+    if (!batch.allocated(env))
+        return;
+    // each failed pin leaves an OutOfMemoryError pending
+    const uint8_t *buf = (const uint8_t *) env->GetPrimitiveArrayCritical(input, 0);
+    if (!buf)
+        return;
+    const jint *offs = (const jint *) env->GetPrimitiveArrayCritical(offsets, 0);
+    if (offs) {
+        const jint *lens = (const jint *) env->GetPrimitiveArrayCritical(lengths, 0);
+        if (lens) {
+            uint8_t *out = (uint8_t *) env->GetPrimitiveArrayCritical(output, 0);
+            if (out) {
+                batch.hash(buf + base, offs + start, lens + start, count, out + start * 32,
+                           lanes);
+                env->ReleasePrimitiveArrayCritical(output, out, 0);
+            }
+            env->ReleasePrimitiveArrayCritical(lengths, (void*) lens, JNI_ABORT);
+        }
+        env->ReleasePrimitiveArrayCritical(offsets, (void*) offs, JNI_ABORT);
+    }
+    env->ReleasePrimitiveArrayCritical(input, (void*) buf, JNI_ABORT);
+}
+
+extern "C"
+JNIEXPORT void JNICALL Java_com_scurrilous_circe_crc_MultiBufferSha256_nativeDirectBufferBatch
+(JNIEnv *env, jclass, jobject input, jintArray offsets, jintArray lengths, jbyteArray output,
+ jint count, jint lanes) {
+    const uint8_t *address = (const uint8_t *) env->GetDirectBufferAddress(input);
+    if (!address) {
+        jclass cls = env->FindClass("java/lang/UnsupportedOperationException");
+        if (cls)
+            env->ThrowNew(cls, "direct buffer address unavailable");
+        return;
+    }
+    // copies the message arrays and digests in blocks rather than pinning
+    // them, so that hashing large off-heap messages does not block garbage
+    // collection
+    sha256_batch batch(batch_stack_count);
+    jint offs[batch_stack_count];
+    jint lens[batch_stack_count];
+    uint8_t digests[batch_stack_count * 32];
+    for (jint start = 0; start < count; start += batch_stack_count) {
+        const jint n = count - start < batch_stack_count ? count - start : batch_stack_count;
+        env->GetIntArrayRegion(offsets, start, n, offs);
+        env->GetIntArrayRegion(lengths, start, n, lens);
+        if (env->ExceptionCheck())
+            return;
+        batch.hash(address, offs, lens, n, digests, lanes);
+        env->SetByteArrayRegion(output, start * 32, n * 32, (const jbyte *) digests);
+    }
+}
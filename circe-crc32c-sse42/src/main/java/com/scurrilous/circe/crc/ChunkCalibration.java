@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.scurrilous.circe.CalibrationSupport;
+import com.scurrilous.circe.CalibrationSupport.Probe;
+import com.scurrilous.circe.params.CrcParameters;
+
+/**
+ * Selects the default chunk layout for {@link Sse42Crc32CProvider}. Unless
+ * calibration is enabled, this is a fixed layout of 32 KB, 4 KB, and 512-byte
+ * chunks. The best layout depends on the latency and throughput of the CRC32
+ * instruction, which vary between processors, so calibration can be enabled
+ * by setting the system property
+ * {@code com.scurrilous.circe.crc.Sse42Crc32CProvider.calibrateChunks} to
+ * {@code true}. Calibration times each candidate layout over a set of
+ * representative input lengths on first use and selects the fastest.
+ * <p>
+ * The result is stored in a properties file keyed by processor, so later JVM
+ * starts on the same machine skip calibration. The file is given by the
+ * system property
+ * {@code com.scurrilous.circe.crc.Sse42Crc32CProvider.calibrationFile}, which
+ * defaults to {@code .circe/sse42-crc32c.properties} in the user's home
+ * directory. Failure to read or write the file only disables caching.
+ */
+final class ChunkCalibration {
+
+    // process in chunks of 32 KB, then 4 KB, then 512 bytes
+    static final int[] DEFAULT_CHUNK_WORDS = new int[] { 4096, 512, 64 };
+
+    static final int[][] CANDIDATES = new int[][] {
+            {},
+            { 4096, 512, 64 },
+            { 2048, 256, 32 },
+            { 1024, 128, 16 },
+            { 512, 64, 8 },
+            { 256, 32 },
+            { 128, 16 },
+            { 64, 8 },
+    };
+
+    private static final int[] CALIBRATION_LENGTHS = { 64, 256, 1024, 4096, 65536 };
+    private static final int CALIBRATION_BYTES = 1 << 18;
+    private static final int CALIBRATION_ROUNDS = 5;
+
+    private static final String PROPERTY_PREFIX = Sse42Crc32CProvider.class.getName();
+
+    private static final class Selected {
+        static final int[] CHUNK_WORDS = select();
+    }
+
+    private ChunkCalibration() {
+    }
+
+    /**
+     * Returns the chunk layout to use when none is specified.
+     * 
+     * @return an array of chunk sizes in 64-bit words
+     */
+    static int[] defaultChunkWords() {
+        return calibrationEnabled() ? Selected.CHUNK_WORDS : DEFAULT_CHUNK_WORDS;
+    }
+
+    private static boolean calibrationEnabled() {
+        try {
+            return Boolean.getBoolean(PROPERTY_PREFIX + ".calibrateChunks");
+        } catch (final SecurityException e) {
+            return false;
+        }
+    }
+
+    private static int[] select() {
+        final File file = cacheFile();
+        final String key = machineKey();
+        int[] chunkWords = file != null ? load(file, key) : null;
+        if (chunkWords == null) {
+            chunkWords = calibrate();
+            if (file != null)
+                store(file, key, chunkWords);
+        }
+        return chunkWords;
+    }
+
+    private static File cacheFile() {
+        return CalibrationSupport.cacheFile(PROPERTY_PREFIX + ".calibrationFile",
+                "sse42-crc32c.properties");
+    }
+
+    /**
+     * Returns a string identifying the processor, so that results calibrated on
+     * one machine are not used on another sharing the same home directory.
+     * 
+     * @return the processor key
+     */
+    static String machineKey() {
+        return CalibrationSupport.machineKey();
+    }
+
+    /**
+     * Reads the calibrated chunk layout for the given processor from the given
+     * file.
+     * 
+     * @param file the calibration cache file
+     * @param key the processor key
+     * @return the cached chunk layout, or null if absent or invalid
+     */
+    static int[] load(File file, String key) {
+        final String value = CalibrationSupport.load(file, key);
+        if (value == null)
+            return null;
+        try {
+            final String[] words = value.isEmpty() ? new String[0] : value.split(",");
+            final int[] chunkWords = new int[words.length];
+            for (int i = 0; i < words.length; ++i)
+                chunkWords[i] = Integer.parseInt(words[i].trim());
+            // validates the layout
+            new ChunkedCrcParameters(CrcParameters.CRC32C, chunkWords);
+            return chunkWords;
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the calibrated chunk layout for the given processor to the given
+     * file, preserving the layouts of other processors.
+     * 
+     * @param file the calibration cache file
+     * @param key the processor key
+     * @param chunkWords the chunk layout
+     */
+    static void store(File file, String key, int[] chunkWords) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < chunkWords.length; ++i) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(chunkWords[i]);
+        }
+        CalibrationSupport.store(file, key, sb.toString(),
+                "Calibrated CRC-32C chunk layouts in 64-bit words");
+    }
+
+    /**
+     * Returns the candidate chunk layout with the lowest total time over the
+     * calibration lengths.
+     * 
+     * @return the fastest chunk layout
+     */
+    static int[] calibrate() {
+        final byte[] input = new byte[CALIBRATION_LENGTHS[CALIBRATION_LENGTHS.length - 1]];
+        final Sse42Crc32C[] crcs = new Sse42Crc32C[CANDIDATES.length];
+        for (int i = 0; i < CANDIDATES.length; ++i)
+            crcs[i] = new Sse42Crc32C(CANDIDATES[i]);
+        // warm up each candidate before timing any of them
+        for (final Sse42Crc32C crc : crcs)
+            time(crc, input, CALIBRATION_LENGTHS[0], 1);
+        int best = 0;
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < CANDIDATES.length; ++i) {
+            long total = 0;
+            for (final int length : CALIBRATION_LENGTHS)
+                total += time(crcs[i], input, length, CALIBRATION_ROUNDS);
+            if (total < bestTime) {
+                best = i;
+                bestTime = total;
+            }
+        }
+        return Arrays.copyOf(CANDIDATES[best], CANDIDATES[best].length);
+    }
+
+    private static long time(final Sse42Crc32C crc, byte[] input, int length, int rounds) {
+        // chains the CRCs so that the calls cannot overlap
+        return CalibrationSupport.time(new Probe() {
+            private int current;
+
+            @Override
+            public long run(byte[] buf, int len) {
+                return current = crc.resume(current, buf, 0, len);
+            }
+        }, input, length, CALIBRATION_BYTES, rounds);
+    }
+}
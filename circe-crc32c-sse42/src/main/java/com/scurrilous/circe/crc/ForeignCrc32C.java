@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Calls the native CRC-32C function through the foreign function and memory
+ * API, which avoids the overhead of JNI and the garbage collection locker for
+ * heap arrays. That API requires JDK 22, so this version always reports that
+ * it is unavailable, and {@link Sse42Crc32C} uses JNI instead. The
+ * multi-release JAR contains a replacement for JDK 22 and later.
+ */
+final class ForeignCrc32C {
+
+    private ForeignCrc32C() {
+    }
+
+    /**
+     * Returns whether foreign function calls are available.
+     * 
+     * @return false in this version
+     */
+    static boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * Resumes the CRC with the given range of an array.
+     * 
+     * @param current the CRC of the input hashed so far
+     * @param input the input array
+     * @param index the starting index of the range
+     * @param length the length of the range
+     * @param config the native chunk configuration, or 0
+     * @return the updated CRC
+     * @throws AssertionError always, since this version is never available
+     */
+    static int resume(int current, byte[] input, int index, int length, long config) {
+        // unreachable: callers check isAvailable(), which is always false here
+        throw new AssertionError();
+    }
+
+    /**
+     * Resumes the CRC with the given range of a direct buffer.
+     * 
+     * @param current the CRC of the input hashed so far
+     * @param input the direct input buffer
+     * @param index the starting index of the range
+     * @param length the length of the range
+     * @param config the native chunk configuration, or 0
+     * @return the updated CRC
+     * @throws AssertionError always, since this version is never available
+     */
+    static int resume(int current, ByteBuffer input, int index, int length, long config) {
+        // unreachable: callers check isAvailable(), which is always false here
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+
+import com.scurrilous.circe.BatchIntHash;
+import com.scurrilous.circe.CombinableIntHash;
+import com.scurrilous.circe.impl.AbstractIncrementalIntHash;
+import com.scurrilous.circe.params.CrcParameters;
+
+/**
+ * CRC-32C implementation that hashes short inputs in pure Java, avoiding the
+ * fixed cost of a native method call, and longer inputs using
+ * {@link Sse42Crc32C}. Both paths compute the same CRC, so results do not
+ * depend on the crossover length.
+ * <p>
+ * The crossover length is given by the system property
+ * {@code com.scurrilous.circe.crc.HybridCrc32C.crossover}, where zero sends all
+ * inputs to native code. If the property is not set, the crossover is
+ * calibrated once per JVM by timing both implementations on increasing input
+ * lengths. Calibration runs in a background thread started on first use, and
+ * a fixed default crossover is used until it completes.
+ */
+final class HybridCrc32C extends AbstractIncrementalIntHash implements BatchIntHash,
+        CombinableIntHash {
+
+    private static final int MIN_CROSSOVER = 8;
+    private static final int MAX_CROSSOVER = 4096;
+    private static final int DEFAULT_CROSSOVER = 64;
+
+    private static final int CALIBRATION_BYTES = 1 << 16;
+    private static final int CALIBRATION_ROUNDS = 5;
+    private static final int WARMUP_CALLS = 20000;
+
+    private static volatile int sink;
+
+    private static final class Crossover {
+        static final AbstractIntCrc JAVA_CRC32C = createJavaCrc();
+        static final int CONFIGURED = getConfigured();
+        static volatile int calibrated = DEFAULT_CROSSOVER;
+
+        static {
+            if (CONFIGURED < 0)
+                calibrateInBackground();
+        }
+
+        private static int getConfigured() {
+            Integer crossover;
+            try {
+                crossover = Integer.getInteger(HybridCrc32C.class.getName() + ".crossover");
+            } catch (final SecurityException e) {
+                crossover = null;
+            }
+            return crossover != null ? Math.max(crossover, 0) : -1;
+        }
+
+        private static void calibrateInBackground() {
+            try {
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        calibrated = calibrate(new Sse42Crc32C(), JAVA_CRC32C);
+                    }
+                }, "circe-crc32c-calibration");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (final SecurityException e) {
+                // keeps the default crossover
+            }
+        }
+    }
+
+    /**
+     * Returns a new pure Java CRC-32C implementation. It is constructed
+     * directly, rather than obtained from a provider, so that it is always a
+     * table-driven {@link AbstractIntCrc} and is not shared through the hash
+     * cache.
+     * 
+     * @return a slicing-by-8 CRC-32C implementation
+     */
+    static AbstractIntCrc createJavaCrc() {
+        final CrcParameters params = CrcParameters.CRC32C;
+        return new SlicedReflectedIntCrc(params.algorithm(), params.bitWidth(),
+                (int) params.polynomial(), (int) params.initial(), (int) params.xorOut(), 8);
+    }
+
+    /**
+     * Returns the smallest power-of-two length for which the native
+     * implementation is at least as fast as the pure Java implementation.
+     * 
+     * @param nativeCrc the native implementation
+     * @param javaCrc the pure Java implementation
+     * @return the calibrated crossover length
+     */
+    static int calibrate(Sse42Crc32C nativeCrc, AbstractIntCrc javaCrc) {
+        final byte[] input = new byte[MAX_CROSSOVER];
+        // give the JIT compiler a chance to compile the pure Java path
+        for (int i = 0; i < WARMUP_CALLS; ++i) {
+            nativeCrc.calculate(input, 0, 64);
+            javaCrc.calculate(input, 0, 64);
+        }
+        for (int length = MIN_CROSSOVER; length < MAX_CROSSOVER; length <<= 1) {
+            if (time(nativeCrc, input, length) <= time(javaCrc, input, length))
+                return length;
+        }
+        return MAX_CROSSOVER;
+    }
+
+    private static long time(AbstractIncrementalIntHash hash, byte[] input, int length) {
+        final int calls = CALIBRATION_BYTES / length;
+        long best = Long.MAX_VALUE;
+        int crc = 0;
+        for (int round = 0; round < CALIBRATION_ROUNDS; ++round) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < calls; ++i)
+                crc = hash.resume(crc, input, 0, length);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        sink = crc;
+        return best;
+    }
+
+    private final Sse42Crc32C nativeCrc;
+    private final AbstractIntCrc javaCrc;
+    // negative to use the calibrated crossover
+    private final int crossover;
+
+    HybridCrc32C(Sse42Crc32C nativeCrc) {
+        this(nativeCrc, Crossover.JAVA_CRC32C, Crossover.CONFIGURED);
+    }
+
+    HybridCrc32C(Sse42Crc32C nativeCrc, AbstractIntCrc javaCrc, int crossover) {
+        this.nativeCrc = nativeCrc;
+        this.javaCrc = javaCrc;
+        this.crossover = crossover;
+    }
+
+    private int crossover() {
+        return crossover >= 0 ? crossover : Crossover.calibrated;
+    }
+
+    @Override
+    public String algorithm() {
+        return nativeCrc.algorithm();
+    }
+
+    @Override
+    public int length() {
+        return 4;
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        return true;
+    }
+
+    @Override
+    public int calculate(long address, long length) {
+        return nativeCrc.calculate(address, length);
+    }
+
+    @Override
+    public int resume(int current, long address, long length) {
+        return nativeCrc.resume(current, address, length);
+    }
+
+    @Override
+    public int combine(int current, int next, long nextLength) {
+        return nativeCrc.combine(current, next, nextLength);
+    }
+
+    @Override
+    protected int initial() {
+        return 0;
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, byte[] input, int index, int length) {
+        if (length < crossover())
+            return javaCrc.resumeUnchecked(current, input, index, length);
+        return nativeCrc.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer input, int index, int length) {
+        if (length < crossover())
+            return javaCrc.resumeUnchecked(current, input, index, length);
+        return nativeCrc.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer[] input, int offset, int count) {
+        long total = 0;
+        for (int i = offset; i < offset + count; ++i)
+            total += input[i].remaining();
+        if (total < crossover())
+            return super.resumeUnchecked(current, input, offset, count);
+        return nativeCrc.resumeUnchecked(current, input, offset, count);
+    }
+
+    // batches amortize the native call over all records
+
+    @Override
+    protected void calculateBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            int[] output, int count) {
+        nativeCrc.calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(byte[] input, int index, int stride, int[] output,
+            int count) {
+        nativeCrc.calculateBatchUnchecked(input, index, stride, output, count);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            int[] output, int count) {
+        nativeCrc.calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(ByteBuffer input, int index, int stride,
+            int[] output, int count) {
+        nativeCrc.calculateBatchUnchecked(input, index, stride, output, count);
+    }
+
+    @Override
+    protected int verifyBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            int[] expected, int count) {
+        return nativeCrc.verifyBatchUnchecked(input, offsets, lengths, expected, count);
+    }
+
+    @Override
+    protected int verifyBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            int[] expected, int count) {
+        return nativeCrc.verifyBatchUnchecked(input, offsets, lengths, expected, count);
+    }
+}
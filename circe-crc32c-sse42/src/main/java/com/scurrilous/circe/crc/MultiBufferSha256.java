@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.scurrilous.circe.StatefulHash;
+import com.scurrilous.circe.digest.DigestHash;
+import com.scurrilous.circe.impl.AbstractBatchHash;
+import com.scurrilous.circe.params.SimpleHashParameters;
+
+/**
+ * Multi-buffer implementation of SHA-256, which hashes independent messages in
+ * the SIMD lanes of SSE2 (4 lanes) or AVX2 (8 lanes) registers. Each lane is
+ * refilled with the next message as soon as its current message is finished,
+ * so batches of messages with differing lengths keep all lanes busy.
+ * <p>
+ * Like {@link Sse42Crc32C}, batches of array messages are split so that each
+ * native call covers at most one slice length of input, or a single message if
+ * it is longer. Separate input arrays are copied together into slices before
+ * hashing. Batches in direct buffers copy the message offsets, lengths, and
+ * digests in small blocks, so they do not block garbage collection. The
+ * stateful form of this hash uses the platform
+ * {@link MessageDigest}.
+ */
+final class MultiBufferSha256 extends AbstractBatchHash {
+
+    private static final boolean SUPPORTED = checkSupported();
+
+    private static boolean checkSupported() {
+        try {
+            return NativeLibrary.load() && nativeSupported();
+        } catch (final Exception | UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether multi-buffer SHA-256 is supported on this system.
+     * 
+     * @return true if this class is supported, false if not
+     */
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Returns the widest number of lanes supported on this system.
+     * 
+     * @return 8 if AVX2 is supported, otherwise 4
+     */
+    static int maxLanes() {
+        return nativeLanes();
+    }
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private final int lanes;
+
+    MultiBufferSha256(int lanes) {
+        this.lanes = lanes;
+    }
+
+    @Override
+    public String algorithm() {
+        return SimpleHashParameters.SHA256.algorithm();
+    }
+
+    @Override
+    public int length() {
+        return DIGEST_LENGTH;
+    }
+
+    @Override
+    public StatefulHash createStateful() {
+        try {
+            return new DigestHash(MessageDigest.getInstance(algorithm()));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException(e);
+        }
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            byte[] output, int count) {
+        batchArray(input, 0, offsets, lengths, output, count, Sse42Crc32C.SLICE_LENGTH);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(byte[][] inputs, byte[] output, int count) {
+        final int sliceLength = Sse42Crc32C.SLICE_LENGTH;
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        for (int i = 0; i < count; ++i)
+            lengths[i] = inputs[i].length;
+
+        byte[] slice = null;
+        int start = 0;
+        while (start < count) {
+            int end = start;
+            long bytes = lengths[end++];
+            while (end < count && bytes + lengths[end] <= sliceLength)
+                bytes += lengths[end++];
+            if (end - start == 1) {
+                nativeArrayBatch(inputs[start], 0, offsets, lengths, output, start, 1, lanes);
+            } else {
+                if (slice == null || slice.length < bytes)
+                    slice = new byte[(int) bytes];
+                int offset = 0;
+                for (int i = start; i < end; ++i) {
+                    System.arraycopy(inputs[i], 0, slice, offset, lengths[i]);
+                    offsets[i] = offset;
+                    offset += lengths[i];
+                }
+                nativeArrayBatch(slice, 0, offsets, lengths, output, start, end - start, lanes);
+            }
+            start = end;
+        }
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            byte[] output, int count) {
+        if (input.isDirect()) {
+            nativeDirectBufferBatch(input, offsets, lengths, output, count, lanes);
+        } else if (input.hasArray()) {
+            batchArray(input.array(), input.arrayOffset(), offsets, lengths, output, count,
+                    Sse42Crc32C.SLICE_LENGTH);
+        } else {
+            super.calculateBatchUnchecked(input, offsets, lengths, output, count);
+        }
+    }
+
+    void batchArray(byte[] input, int base, int[] offsets, int[] lengths, byte[] output,
+            int count, int sliceLength) {
+        int start = 0;
+        while (start < count) {
+            int end = start;
+            long bytes = lengths[end++];
+            while (end < count && bytes + lengths[end] <= sliceLength)
+                bytes += lengths[end++];
+            nativeArrayBatch(input, base, offsets, lengths, output, start, end - start, lanes);
+            start = end;
+        }
+    }
+
+    private static native boolean nativeSupported();
+
+    private static native int nativeLanes();
+
+    private static native void nativeArrayBatch(byte[] input, int base, int[] offsets,
+            int[] lengths, byte[] output, int start, int count, int lanes);
+
+    private static native void nativeDirectBufferBatch(ByteBuffer input, int[] offsets,
+            int[] lengths, byte[] output, int count, int lanes);
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.util.EnumSet;
+
+import com.scurrilous.circe.BatchHashProvider;
+import com.scurrilous.circe.Hash;
+import com.scurrilous.circe.HashParameters;
+import com.scurrilous.circe.HashSupport;
+import com.scurrilous.circe.StatelessHash;
+import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
+import com.scurrilous.circe.params.SimpleHashParameters;
+
+/**
+ * Provides a native multi-buffer SHA-256 implementation, which hashes 4
+ * messages at once using SSE2, or 8 using AVX2 when supported by hardware.
+ * Obtain it using {@link com.scurrilous.circe.Hashes#getBatch Hashes.getBatch}
+ * to hash many independent messages in a single call. The stateful form of
+ * the hash function uses the platform
+ * {@link java.security.MessageDigest MessageDigest}, so this provider reports
+ * only batch support, and other kinds of SHA-256 hash functions are left to
+ * other providers.
+ * <p>
+ * The native library is loaded as described for {@link Sse42Crc32CProvider}.
+ */
+@ProviderIndex(parameters = HashParameters.class, algorithms = "SHA-256")
+public final class MultiBufferSha256Provider extends AbstractHashProvider<HashParameters>
+        implements BatchHashProvider {
+
+    /**
+     * Constructs a new {@link MultiBufferSha256Provider}.
+     */
+    public MultiBufferSha256Provider() {
+        super(HashParameters.class);
+        NativeLibrary.loadInBackground();
+    }
+
+    @Override
+    public boolean supportsBatch(HashParameters params) {
+        return isSha256(params) && NativeLibrary.isAvailable() && MultiBufferSha256.isSupported();
+    }
+
+    @Override
+    protected EnumSet<HashSupport> querySupportTyped(HashParameters params) {
+        return EnumSet.noneOf(HashSupport.class);
+    }
+
+    @Override
+    protected Hash get(HashParameters params, EnumSet<HashSupport> required) {
+        if (isSha256(params) && MultiBufferSha256.isSupported())
+            return getCacheable(params, required);
+        throw new UnsupportedOperationException();
+    }
+
+    private static boolean isSha256(HashParameters params) {
+        return SimpleHashParameters.SHA256.algorithm().equals(params.algorithm());
+    }
+
+    @Override
+    protected StatelessHash createCacheable(HashParameters params, EnumSet<HashSupport> required) {
+        return new MultiBufferSha256(MultiBufferSha256.maxLanes());
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide registry of native configuration structures, which interns one
+ * structure per distinct key and shares it among all of its owners. Each
+ * owner is tracked by a phantom reference, and a structure is freed as soon as
+ * its last owner has been reclaimed. Reclaimed owners are released by a
+ * daemon thread, or by the next acquisition if the thread cannot be started.
+ * Unlike finalization, this does not slow down the allocation of owners or
+ * delay their reclamation.
+ * 
+ * @param <K> the type of key describing a configuration
+ */
+abstract class NativeConfigRegistry<K> {
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final boolean CLEANER_STARTED = startCleaner();
+
+    private static boolean startCleaner() {
+        try {
+            final Thread thread = new Thread("circe-native-config-cleaner") {
+                @Override
+                public void run() {
+                    for (;;) {
+                        try {
+                            ((OwnerReference) QUEUE.remove()).release();
+                        } catch (final InterruptedException e) {
+                            // keep cleaning; the thread lives as long as the JVM
+                        }
+                    }
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+            return true;
+        } catch (final SecurityException e) {
+            return false;
+        }
+    }
+
+    private static void expunge() {
+        Reference<?> ref;
+        while ((ref = QUEUE.poll()) != null)
+            ((OwnerReference) ref).release();
+    }
+
+    private final Map<K, Entry> entries = new HashMap<>();
+    // keeps the phantom references reachable until they are enqueued
+    private final Set<OwnerReference> owners = new HashSet<>();
+
+    /**
+     * Returns the native configuration for the given key, allocating it if no
+     * other owner currently holds it. The configuration remains valid until
+     * the owner becomes phantom reachable.
+     * 
+     * @param key the configuration key
+     * @param owner the object using the configuration
+     * @return the address of the native configuration
+     * @throws RuntimeException if the configuration could not be allocated
+     */
+    long acquire(K key, Object owner) {
+        if (!CLEANER_STARTED)
+            expunge();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                final long config = allocate(key);
+                if (config == 0)
+                    throw new RuntimeException("Native configuration allocation failed");
+                entry = new Entry(key, config);
+                entries.put(key, entry);
+            }
+            ++entry.refCount;
+            owners.add(new OwnerReference(owner, this, entry));
+            return entry.config;
+        }
+    }
+
+    /**
+     * Returns the number of distinct configurations currently allocated.
+     * 
+     * @return the number of live configurations
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void release(OwnerReference ref) {
+        owners.remove(ref);
+        final Entry entry = ref.entry;
+        if (--entry.refCount == 0) {
+            entries.remove(entry.key);
+            free(entry.config);
+        }
+    }
+
+    /**
+     * Allocates the native configuration for the given key.
+     * 
+     * @param key the configuration key
+     * @return the address of the native configuration, or 0 on failure
+     */
+    protected abstract long allocate(K key);
+
+    /**
+     * Frees a native configuration returned by {@link #allocate}.
+     * 
+     * @param config the address of the native configuration
+     */
+    protected abstract void free(long config);
+
+    private static final class Entry {
+        final Object key;
+        final long config;
+        int refCount;
+
+        Entry(Object key, long config) {
+            this.key = key;
+            this.config = config;
+        }
+    }
+
+    private static final class OwnerReference extends PhantomReference<Object> {
+        final NativeConfigRegistry<?> registry;
+        final Entry entry;
+
+        OwnerReference(Object owner, NativeConfigRegistry<?> registry, Entry entry) {
+            super(owner, QUEUE);
+            this.registry = registry;
+            this.entry = entry;
+        }
+
+        void release() {
+            registry.release(this);
+        }
+    }
+}
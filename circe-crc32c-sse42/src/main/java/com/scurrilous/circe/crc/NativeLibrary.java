@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.scurrilous.circe.HashProviders;
+
+/**
+ * Loads the Circe native library. The provider JAR bundles the library built
+ * for its platform in the NAR layout ({@code lib/<aol>/jni/<library>}). A
+ * bundled library is extracted to a per-user cache directory, in a
+ * subdirectory named by the SHA-256 hash of its contents. Later JVM starts
+ * verify the cached file against that hash and load it without extracting it
+ * again. If no library is bundled for the current platform, or the bundled
+ * library cannot be loaded, the library is loaded from
+ * {@code java.library.path} by {@link NarSystem}.
+ * <p>
+ * The cache directory is given by the system property
+ * {@code com.scurrilous.circe.crc.NativeLibrary.cacheDir}, which defaults to
+ * {@code .circe/native} in the user's home directory; an empty value disables
+ * extraction.
+ * <p>
+ * Constructing a native provider starts loading the library in a background
+ * thread. Until the library is ready, the native providers report no
+ * support, so that hash searches fall back to pure Java implementations
+ * instead of waiting, and the memoized provider resolutions are discarded
+ * once loading completes. If the system property
+ * {@code com.scurrilous.circe.crc.NativeLibrary.lazy} is {@code false}, the
+ * first use of a native provider instead waits for the load to complete.
+ */
+final class NativeLibrary {
+
+    private static final String PROPERTY_PREFIX = NativeLibrary.class.getName();
+    private static final String NAR_PROPERTIES =
+            "/META-INF/nar/com.scurrilous/circe-crc32c-sse42/nar.properties";
+
+    private static final boolean LAZY = getLazy();
+
+    private static final FutureTask<Boolean> LOADER = new FutureTask<Boolean>(
+            new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return loadLibrary();
+                }
+            }) {
+        @Override
+        protected void done() {
+            // searches made while loading resolved to the fallback providers
+            if (LAZY)
+                HashProviders.clearCache();
+        }
+    };
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+
+    private NativeLibrary() {
+    }
+
+    private static boolean getLazy() {
+        try {
+            return !"false".equalsIgnoreCase(System.getProperty(PROPERTY_PREFIX + ".lazy"));
+        } catch (final SecurityException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Starts loading the library in a background thread, if it has not
+     * already been started.
+     */
+    static void loadInBackground() {
+        if (STARTED.compareAndSet(false, true)) {
+            try {
+                final Thread thread = new Thread(LOADER, "circe-native-loader");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (final SecurityException e) {
+                LOADER.run();
+            }
+        }
+    }
+
+    /**
+     * Loads the library if necessary, waiting for any load in progress.
+     * 
+     * @return true if the library is loaded, false if it could not be loaded
+     */
+    static boolean load() {
+        // does nothing if another thread has already started the task
+        LOADER.run();
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return LOADER.get();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                } catch (final ExecutionException e) {
+                    return false;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns whether the native providers should report support now. In lazy
+     * mode, this returns false without waiting until the background load has
+     * completed successfully; otherwise, it waits for the library to load.
+     * 
+     * @return true if the library is loaded
+     */
+    static boolean isAvailable() {
+        if (LAZY && !LOADER.isDone()) {
+            loadInBackground();
+            return false;
+        }
+        return load();
+    }
+
+    private static boolean loadLibrary() {
+        try {
+            final File file = extractBundled();
+            if (file != null) {
+                try {
+                    System.load(file.getPath());
+                    return true;
+                } catch (final UnsatisfiedLinkError e) {
+                    // such as a cache directory mounted noexec
+                }
+            }
+            NarSystem.loadLibrary();
+            return true;
+        } catch (final Exception | UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    private static File extractBundled() {
+        final File cacheDir = cacheDir();
+        if (cacheDir == null)
+            return null;
+        final String aol = aol();
+        final String output = libraryOutput(aol);
+        if (output == null)
+            return null;
+        final String fileName = System.mapLibraryName(output);
+        final byte[] content;
+        try (final InputStream in = NativeLibrary.class.getResourceAsStream("/lib/" + aol +
+                "/jni/" + fileName)) {
+            if (in == null)
+                return null;
+            content = readFully(in);
+        } catch (final IOException e) {
+            return null;
+        }
+        try {
+            return extract(content, fileName, cacheDir);
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the directory to which bundled libraries are extracted.
+     * 
+     * @return the cache directory, or null if extraction is disabled
+     */
+    static File cacheDir() {
+        try {
+            final String path = System.getProperty(PROPERTY_PREFIX + ".cacheDir");
+            if (path != null)
+                return path.isEmpty() ? null : new File(path);
+            return new File(System.getProperty("user.home"), ".circe" + File.separator +
+                    "native");
+        } catch (final SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the NAR architecture-OS-linker identifier for this platform,
+     * such as {@code amd64-Linux-gpp}.
+     * 
+     * @return the AOL identifier
+     */
+    static String aol() {
+        final String arch = System.getProperty("os.arch");
+        final String name = System.getProperty("os.name");
+        final String os;
+        final String linker;
+        if (name.startsWith("Windows")) {
+            os = "Windows";
+            linker = "msvc";
+        } else if (name.startsWith("Mac")) {
+            os = "MacOSX";
+            linker = "gpp";
+        } else {
+            os = name.replace(" ", "");
+            linker = "gpp";
+        }
+        return arch + '-' + os + '-' + linker;
+    }
+
+    /**
+     * Returns the base name of the library built for the given platform, as
+     * recorded in the NAR properties on the class path.
+     * 
+     * @param aol the AOL identifier
+     * @return the library name, or null if the NAR properties are missing
+     */
+    static String libraryOutput(String aol) {
+        final Properties props = new Properties();
+        try (final InputStream in = NativeLibrary.class.getResourceAsStream(NAR_PROPERTIES)) {
+            if (in == null)
+                return null;
+            props.load(in);
+        } catch (final IOException e) {
+            return null;
+        }
+        return props.getProperty(aol + ".output", props.getProperty("output"));
+    }
+
+    /**
+     * Returns the cached copy of the given library content, writing it to the
+     * cache directory unless an intact copy is already present.
+     * 
+     * @param content the library content
+     * @param fileName the platform-specific library file name
+     * @param cacheDir the cache directory
+     * @return the cached library file
+     * @throws IOException if the file could not be written
+     */
+    static File extract(byte[] content, String fileName, File cacheDir) throws IOException {
+        final byte[] hash = sha256(content);
+        final File dir = new File(cacheDir, toHex(hash));
+        final File file = new File(dir, fileName);
+        if (file.isFile() && file.length() == content.length && Arrays.equals(hash, hash(file)))
+            return file;
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+            throw new IOException("Cannot create " + dir);
+        // rename into place, so that concurrent loaders never see a partial file
+        final File temp = File.createTempFile(fileName, ".tmp", dir);
+        try {
+            try (final OutputStream out = new FileOutputStream(temp)) {
+                out.write(content);
+            }
+            if (!temp.renameTo(file)) {
+                // another process may have won the race, as on Windows
+                if (!Arrays.equals(hash, hash(file))) {
+                    file.delete();
+                    if (!temp.renameTo(file))
+                        throw new IOException("Cannot rename " + temp + " to " + file);
+                }
+            }
+        } finally {
+            temp.delete();
+        }
+        return file;
+    }
+
+    private static byte[] hash(File file) throws IOException {
+        try (final InputStream in = new FileInputStream(file)) {
+            return sha256(readFully(in));
+        } catch (final IOException e) {
+            if (file.exists())
+                throw e;
+            return null;
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (final NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) >= 0)
+            out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Native CRC engine for any width up to 64 bits, which folds the input using
+ * the PCLMULQDQ carry-less multiplication instruction. The engine operates on
+ * raw CRC registers, which are right-aligned and, for reflected CRCs, also
+ * reflected. It is used by {@link PclmulIntCrc} and {@link PclmulLongCrc}.
+ */
+final class PclmulCrc {
+
+    private static final boolean SUPPORTED = checkSupported();
+
+    private static boolean checkSupported() {
+        try {
+            return NativeLibrary.load() && nativeSupported();
+        } catch (final Exception | UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether carry-less multiplication is supported on this system.
+     * 
+     * @return true if this class is supported, false if not
+     */
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    // fold configurations are shared by all engines for the same CRC
+    private static final NativeConfigRegistry<List<Object>> CONFIGS =
+            new NativeConfigRegistry<List<Object>>() {
+                @Override
+                protected long allocate(List<Object> key) {
+                    return allocConfig((Integer) key.get(0), (Long) key.get(1),
+                            (Boolean) key.get(2));
+                }
+
+                @Override
+                protected void free(long config) {
+                    freeConfig(config);
+                }
+            };
+
+    private final long config;
+
+    PclmulCrc(int bitWidth, long poly, boolean reflected) {
+        config = CONFIGS.acquire(Arrays.<Object> asList(bitWidth, poly, reflected), this);
+    }
+
+    long update(long crc, byte[] input, int index, int length) {
+        // release the array between slices to bound garbage collection pauses
+        while (length > Sse42Crc32C.SLICE_LENGTH) {
+            crc = nativeArray(crc, input, index, Sse42Crc32C.SLICE_LENGTH, config);
+            index += Sse42Crc32C.SLICE_LENGTH;
+            length -= Sse42Crc32C.SLICE_LENGTH;
+        }
+        return nativeArray(crc, input, index, length, config);
+    }
+
+    long update(long crc, ByteBuffer input, int index, int length) {
+        if (input.isDirect())
+            return nativeDirectBuffer(crc, input, index, length, config);
+        final byte[] array = new byte[length];
+        final ByteBuffer source = input.duplicate();
+        source.position(index);
+        source.get(array);
+        return nativeArray(crc, array, 0, length, config);
+    }
+
+    long update(long crc, long address, long length) {
+        return nativeUnsafe(crc, address, length, config);
+    }
+
+    private static native boolean nativeSupported();
+
+    private static native long nativeArray(long current, byte[] input, int index, int length,
+            long config);
+
+    private static native long nativeDirectBuffer(long current, ByteBuffer input, int index,
+            int length, long config);
+
+    private static native long nativeUnsafe(long current, long address, long length,
+            long config);
+
+    private static native long allocConfig(int bitWidth, long poly, boolean reflected);
+
+    private static native void freeConfig(long config);
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.util.EnumSet;
+
+import com.scurrilous.circe.Hash;
+import com.scurrilous.circe.HashSupport;
+import com.scurrilous.circe.StatelessHash;
+import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
+import com.scurrilous.circe.params.CrcParameters;
+
+/**
+ * Provides native CRC implementations of any width up to 64 bits, which fold
+ * the input using the PCLMULQDQ carry-less multiplication instruction, when
+ * supported by hardware. The fold constants and byte table are derived from
+ * the CRC parameters when an implementation is created. CRC-32C is left to
+ * {@link Sse42Crc32CProvider}, which uses the dedicated CRC instruction, and
+ * CRC-32 is left to {@link StandardCrcProvider}, which uses
+ * {@link java.util.zip.CRC32} and is intrinsified by the JVM.
+ * <p>
+ * Inputs shorter than a crossover length are hashed by the sliced pure Java
+ * implementations, which are faster than a native call for short inputs. The
+ * crossover length is given by the system property
+ * {@code com.scurrilous.circe.crc.PclmulCrcProvider.crossover}, which defaults
+ * to 256 bytes; zero sends all inputs to native code.
+ * <p>
+ * Like {@link Sse42Crc32C}, byte arrays are processed in slices whose length
+ * is given by the system property
+ * {@code com.scurrilous.circe.crc.Sse42Crc32C.sliceMegabytes}. The native
+ * library is also loaded as described for {@link Sse42Crc32CProvider}.
+ */
+@ProviderIndex(parameters = CrcParameters.class)
+public final class PclmulCrcProvider extends AbstractHashProvider<CrcParameters> {
+
+    // below this length, the native engine uses a byte table rather than
+    // folding, which is slower than the sliced Java implementations
+    private static final int DEFAULT_CROSSOVER = 256;
+    private static final int CROSSOVER = getCrossover();
+
+    private static int getCrossover() {
+        try {
+            return Math.max(Integer.getInteger(PclmulCrcProvider.class.getName() + ".crossover",
+                    DEFAULT_CROSSOVER), 0);
+        } catch (final SecurityException e) {
+            return DEFAULT_CROSSOVER;
+        }
+    }
+
+    /**
+     * Constructs a new {@link PclmulCrcProvider}.
+     */
+    public PclmulCrcProvider() {
+        super(CrcParameters.class);
+        NativeLibrary.loadInBackground();
+    }
+
+    @Override
+    protected EnumSet<HashSupport> querySupportTyped(CrcParameters params) {
+        if (!NativeLibrary.isAvailable() || !isSupported(params))
+            return EnumSet.noneOf(HashSupport.class);
+        final EnumSet<HashSupport> result = EnumSet.of(HashSupport.HARDWARE_INCREMENTAL,
+                HashSupport.HARDWARE, HashSupport.NATIVE_INCREMENTAL, HashSupport.NATIVE,
+                HashSupport.UNSAFE_INCREMENTAL, HashSupport.STATELESS_INCREMENTAL,
+                HashSupport.INCREMENTAL, HashSupport.STATEFUL, HashSupport.LONG_SIZED);
+        if (params.bitWidth() <= 32)
+            result.add(HashSupport.INT_SIZED);
+        return result;
+    }
+
+    private static boolean isSupported(CrcParameters params) {
+        return PclmulCrc.isSupported() && !params.equals(CrcParameters.CRC32C) &&
+                !params.equals(CrcParameters.CRC32);
+    }
+
+    @Override
+    protected Hash get(CrcParameters params, EnumSet<HashSupport> required) {
+        if (!isSupported(params))
+            throw new UnsupportedOperationException();
+        return getCacheable(params, required);
+    }
+
+    @Override
+    protected StatelessHash createCacheable(CrcParameters params, EnumSet<HashSupport> required) {
+        final int bitWidth = params.bitWidth();
+        if (bitWidth > 32 || required.contains(HashSupport.LONG_SIZED)) {
+            if (required.contains(HashSupport.INT_SIZED))
+                throw new UnsupportedOperationException();
+            return new PclmulLongCrc(params.algorithm(), bitWidth, params.polynomial(),
+                    params.initial(), params.xorOut(), params.reflected(), CROSSOVER);
+        }
+        return new PclmulIntCrc(params.algorithm(), bitWidth, (int) params.polynomial(),
+                (int) params.initial(), (int) params.xorOut(), params.reflected(), CROSSOVER);
+    }
+}
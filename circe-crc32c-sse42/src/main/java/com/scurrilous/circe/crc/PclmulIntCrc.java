@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implements a CRC of up to 32 bits as an incremental stateless hash function
+ * using the native {@link PclmulCrc} engine. Inputs shorter than a crossover
+ * length are hashed by a sliced pure Java implementation instead, which is
+ * faster than a native call for short inputs.
+ */
+final class PclmulIntCrc extends AbstractIntCrc {
+
+    private final boolean reflected;
+    private final PclmulCrc engine;
+    private final AbstractIntCrc javaCrc;
+    private final int crossover;
+
+    PclmulIntCrc(String algorithm, int bitWidth, int poly, int init, int xorOut,
+            boolean reflected, int crossover) {
+        super(algorithm, bitWidth, init, xorOut);
+        this.reflected = reflected;
+        engine = new PclmulCrc(bitWidth, poly, reflected);
+        javaCrc = reflected ? new SlicedReflectedIntCrc(algorithm, bitWidth, poly, init, xorOut,
+                8) : new SlicedNormalIntCrc(algorithm, bitWidth, poly, init, xorOut, 8);
+        this.crossover = crossover;
+    }
+
+    @Override
+    protected int initial() {
+        return reflected ? reflect(super.initial()) : super.initial();
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, byte[] input, int index, int length) {
+        if (length < crossover)
+            return javaCrc.resumeUnchecked(current, input, index, length);
+        return super.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer input, int index, int length) {
+        if (length < crossover)
+            return javaCrc.resumeUnchecked(current, input, index, length);
+        return super.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        // the native engine reads memory directly
+        return true;
+    }
+
+    @Override
+    public int resume(int current, long address, long length) {
+        if (length < crossover && javaCrc.supportsUnsafe())
+            return javaCrc.resume(current, address, length);
+        return super.resume(current, address, length);
+    }
+
+    @Override
+    protected int resumeRaw(int crc, byte[] input, int index, int length) {
+        return (int) engine.update(crc & 0xffffffffL, input, index, length);
+    }
+
+    @Override
+    protected int resumeRaw(int crc, ByteBuffer input, int index, int length) {
+        return (int) engine.update(crc & 0xffffffffL, input, index, length);
+    }
+
+    @Override
+    protected int resumeRaw(int crc, long address, long length) {
+        return (int) engine.update(crc & 0xffffffffL, address, length);
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implements a CRC of up to 64 bits as an incremental stateless hash function
+ * using the native {@link PclmulCrc} engine. Inputs shorter than a crossover
+ * length are hashed by a sliced pure Java implementation instead, except for
+ * non-reflected CRCs narrower than 8 bits, which have no long-width Java
+ * implementation.
+ */
+final class PclmulLongCrc extends AbstractLongCrc {
+
+    private final boolean reflected;
+    private final PclmulCrc engine;
+    private final AbstractLongCrc javaCrc;
+    private final int crossover;
+
+    PclmulLongCrc(String algorithm, int bitWidth, long poly, long init, long xorOut,
+            boolean reflected, int crossover) {
+        super(algorithm, bitWidth, init, xorOut);
+        this.reflected = reflected;
+        engine = new PclmulCrc(bitWidth, poly, reflected);
+        if (reflected)
+            javaCrc = new SlicedReflectedLongCrc(algorithm, bitWidth, poly, init, xorOut, 8);
+        else if (bitWidth >= 8)
+            javaCrc = new SlicedNormalLongCrc(algorithm, bitWidth, poly, init, xorOut, 8);
+        else
+            javaCrc = null;
+        this.crossover = javaCrc != null ? crossover : 0;
+    }
+
+    @Override
+    protected long initial() {
+        return reflected ? reflect(super.initial()) : super.initial();
+    }
+
+    @Override
+    protected long resumeUnchecked(long current, byte[] input, int index, int length) {
+        if (length < crossover)
+            return javaCrc.resumeUnchecked(current, input, index, length);
+        return super.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    protected long resumeUnchecked(long current, ByteBuffer input, int index, int length) {
+        if (length < crossover)
+            return javaCrc.resumeUnchecked(current, input, index, length);
+        return super.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        // the native engine reads memory directly
+        return true;
+    }
+
+    @Override
+    public long resume(long current, long address, long length) {
+        if (length < crossover && javaCrc.supportsUnsafe())
+            return javaCrc.resume(current, address, length);
+        return super.resume(current, address, length);
+    }
+
+    @Override
+    protected long resumeRaw(long crc, byte[] input, int index, int length) {
+        return engine.update(crc, input, index, length);
+    }
+
+    @Override
+    protected long resumeRaw(long crc, ByteBuffer input, int index, int length) {
+        return engine.update(crc, input, index, length);
+    }
+
+    @Override
+    protected long resumeRaw(long crc, long address, long length) {
+        return engine.update(crc, address, length);
+    }
+}
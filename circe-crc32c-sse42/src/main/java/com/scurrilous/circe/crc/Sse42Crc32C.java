@@ -16,22 +16,47 @@
 package com.scurrilous.circe.crc;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
-import com.scurrilous.circe.IncrementalIntHash;
+import com.scurrilous.circe.BatchIntHash;
+import com.scurrilous.circe.CombinableIntHash;
 import com.scurrilous.circe.impl.AbstractIncrementalIntHash;
 import com.scurrilous.circe.params.CrcParameters;
 
 /**
  * Implementation of CRC-32C using the SSE 4.2 CRC instruction.
+ * <p>
+ * Byte arrays are accessed in place by native code, which blocks garbage
+ * collection while in progress. To bound these pauses, arrays longer than a
+ * slice length are processed one slice at a time. The slice length in
+ * megabytes is given by the system property
+ * {@code com.scurrilous.circe.crc.Sse42Crc32C.sliceMegabytes}, which defaults
+ * to 1; zero disables slicing.
+ * <p>
+ * Batch operations process many records per native call, which amortizes the
+ * cost of the native method transition over small records. Batches of array
+ * records are split so that each call covers at most one slice length of
+ * input, or a single record if it is longer. Batches of direct buffer records
+ * copy the record offsets, lengths, and CRCs in small blocks instead of
+ * accessing those arrays in place, so they do not block garbage collection.
+ * <p>
+ * On JDK 22 and later, single inputs are hashed through the foreign function
+ * and memory API unless native access is denied, which has lower call overhead
+ * than JNI and accesses heap arrays without the garbage collection locker.
+ * <p>
+ * Gathering from an array of direct buffers takes a single native call for all
+ * of the buffers, carrying the CRC register across buffer boundaries without
+ * finalizing it in between.
  */
-public final class Sse42Crc32C extends AbstractIncrementalIntHash implements IncrementalIntHash {
+public final class Sse42Crc32C extends AbstractIncrementalIntHash implements BatchIntHash,
+        CombinableIntHash {
 
     private static final boolean SUPPORTED = checkSupported();
 
     private static boolean checkSupported() {
         try {
-            NarSystem.loadLibrary();
-            return nativeSupported();
+            return NativeLibrary.load() && nativeSupported();
         } catch (final Exception | UnsatisfiedLinkError e) {
             return false;
         }
@@ -46,6 +71,39 @@ public final class Sse42Crc32C extends AbstractIncrementalIntHash implements Inc
         return SUPPORTED;
     }
 
+    private static final int DEFAULT_SLICE_MEGABYTES = 1;
+    static final int SLICE_LENGTH = getSliceLength();
+
+    private static int getSliceLength() {
+        int megabytes;
+        try {
+            megabytes = Integer.getInteger(Sse42Crc32C.class.getName() + ".sliceMegabytes",
+                    DEFAULT_SLICE_MEGABYTES);
+        } catch (final SecurityException e) {
+            megabytes = DEFAULT_SLICE_MEGABYTES;
+        }
+        if (megabytes <= 0 || megabytes >= 2048)
+            return Integer.MAX_VALUE;
+        return megabytes << 20;
+    }
+
+    // chunk configurations are shared by all instances with the same layout
+    static final NativeConfigRegistry<List<Integer>> CONFIGS =
+            new NativeConfigRegistry<List<Integer>>() {
+                @Override
+                protected long allocate(List<Integer> chunkWords) {
+                    final int[] array = new int[chunkWords.size()];
+                    for (int i = 0; i < array.length; ++i)
+                        array[i] = chunkWords.get(i);
+                    return allocConfig(array);
+                }
+
+                @Override
+                protected void free(long config) {
+                    freeConfig(config);
+                }
+            };
+
     private final long config;
 
     Sse42Crc32C() {
@@ -56,18 +114,13 @@ public final class Sse42Crc32C extends AbstractIncrementalIntHash implements Inc
         if (chunkWords.length == 0) {
             config = 0;
         } else {
-            config = allocConfig(chunkWords);
-            if (config == 0)
-                throw new RuntimeException("CRC32C configuration allocation failed");
+            final List<Integer> key = new ArrayList<>(chunkWords.length);
+            for (final int words : chunkWords)
+                key.add(words);
+            config = CONFIGS.acquire(key, this);
         }
     }
 
-    @Override
-    protected void finalize() {
-        if (config != 0)
-            freeConfig(config);
-    }
-
     @Override
     public String algorithm() {
         return CrcParameters.CRC32C.algorithm();
@@ -89,20 +142,15 @@ public final class Sse42Crc32C extends AbstractIncrementalIntHash implements Inc
     }
 
     @Override
-    public int resume(int current, ByteBuffer input) {
-        if (input.isDirect()) {
-            final int result = nativeDirectBuffer(current, input, input.position(),
-                    input.remaining(), config);
-            input.position(input.limit());
-            return result;
-        }
-
-        return super.resume(current, input);
+    public int resume(int current, long address, long length) {
+        return nativeUnsafe(current, address, length, config);
     }
 
     @Override
-    public int resume(int current, long address, long length) {
-        return nativeUnsafe(current, address, length, config);
+    public int combine(int current, int next, long nextLength) {
+        if (nextLength < 0)
+            throw new IllegalArgumentException();
+        return nativeCombine(current, next, nextLength);
     }
 
     @Override
@@ -112,9 +160,133 @@ public final class Sse42Crc32C extends AbstractIncrementalIntHash implements Inc
 
     @Override
     protected int resumeUnchecked(int current, byte[] input, int index, int length) {
+        return resumeArray(current, input, index, length, SLICE_LENGTH);
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer input, int index, int length) {
+        if (input.isDirect()) {
+            if (ForeignCrc32C.isAvailable())
+                return ForeignCrc32C.resume(current, input, index, length, config);
+            return nativeDirectBuffer(current, input, index, length, config);
+        }
+        return super.resumeUnchecked(current, input, index, length);
+    }
+
+    @Override
+    protected int resumeUnchecked(int current, ByteBuffer[] input, int offset, int count) {
+        final int[] positions = new int[count];
+        final int[] lengths = new int[count];
+        for (int i = 0; i < count; ++i) {
+            final ByteBuffer buffer = input[offset + i];
+            if (!buffer.isDirect())
+                return super.resumeUnchecked(current, input, offset, count);
+            positions[i] = buffer.position();
+            lengths[i] = buffer.remaining();
+        }
+        current = nativeDirectBuffers(current, input, offset, positions, lengths, count, config);
+        for (int i = 0; i < count; ++i) {
+            final ByteBuffer buffer = input[offset + i];
+            buffer.position(buffer.limit());
+        }
+        return current;
+    }
+
+    int resumeArray(int current, byte[] input, int index, int length, int sliceLength) {
+        while (length > sliceLength) {
+            current = resumeSlice(current, input, index, sliceLength);
+            index += sliceLength;
+            length -= sliceLength;
+        }
+        return resumeSlice(current, input, index, length);
+    }
+
+    private int resumeSlice(int current, byte[] input, int index, int length) {
+        if (ForeignCrc32C.isAvailable())
+            return ForeignCrc32C.resume(current, input, index, length, config);
         return nativeArray(current, input, index, length, config);
     }
 
+    @Override
+    protected void calculateBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            int[] output, int count) {
+        batchArray(input, 0, offsets, lengths, output, count, false, SLICE_LENGTH);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(byte[] input, int index, int stride, int[] output,
+            int count) {
+        stridedArray(input, index, stride, output, count, SLICE_LENGTH);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            int[] output, int count) {
+        if (input.isDirect())
+            nativeDirectBufferBatch(input, offsets, lengths, output, count, false, config);
+        else if (input.hasArray())
+            batchArray(input.array(), input.arrayOffset(), offsets, lengths, output, count,
+                    false, SLICE_LENGTH);
+        else
+            super.calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    @Override
+    protected void calculateBatchUnchecked(ByteBuffer input, int index, int stride,
+            int[] output, int count) {
+        if (input.isDirect())
+            nativeDirectBufferStrided(input, index, stride, output, count, config);
+        else if (input.hasArray())
+            stridedArray(input.array(), input.arrayOffset() + index, stride, output, count,
+                    SLICE_LENGTH);
+        else
+            super.calculateBatchUnchecked(input, index, stride, output, count);
+    }
+
+    @Override
+    protected int verifyBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            int[] expected, int count) {
+        return batchArray(input, 0, offsets, lengths, expected, count, true, SLICE_LENGTH);
+    }
+
+    @Override
+    protected int verifyBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            int[] expected, int count) {
+        if (input.isDirect())
+            return nativeDirectBufferBatch(input, offsets, lengths, expected, count, true,
+                    config);
+        if (input.hasArray())
+            return batchArray(input.array(), input.arrayOffset(), offsets, lengths, expected,
+                    count, true, SLICE_LENGTH);
+        return super.verifyBatchUnchecked(input, offsets, lengths, expected, count);
+    }
+
+    int batchArray(byte[] input, int base, int[] offsets, int[] lengths, int[] crcs, int count,
+            boolean verify, int sliceLength) {
+        int start = 0;
+        while (start < count) {
+            int end = start;
+            long bytes = lengths[end++];
+            while (end < count && bytes + lengths[end] <= sliceLength)
+                bytes += lengths[end++];
+            final int result = nativeArrayBatch(input, base, offsets, lengths, crcs, start,
+                    end - start, verify, config);
+            if (result >= 0)
+                return result;
+            start = end;
+        }
+        return -1;
+    }
+
+    void stridedArray(byte[] input, int index, int stride, int[] output, int count,
+            int sliceLength) {
+        final int sliceCount = stride > 0 ? Math.max(sliceLength / stride, 1) : count;
+        for (int start = 0; start < count; start += sliceCount) {
+            final int n = Math.min(sliceCount, count - start);
+            nativeArrayStrided(input, index + start * stride, stride, output, start, n, config);
+        }
+    }
+
     private static native boolean nativeSupported();
 
     private static native int nativeArray(int current, byte[] input, int index, int length,
@@ -123,8 +295,25 @@ public final class Sse42Crc32C extends AbstractIncrementalIntHash implements Inc
     private static native int nativeDirectBuffer(int current, ByteBuffer input, int offset,
             int length, long config);
 
+    private static native int nativeDirectBuffers(int current, ByteBuffer[] input, int offset,
+            int[] positions, int[] lengths, int count, long config);
+
     private static native int nativeUnsafe(int current, long address, long length, long config);
 
+    private static native int nativeArrayBatch(byte[] input, int base, int[] offsets,
+            int[] lengths, int[] crcs, int start, int count, boolean verify, long config);
+
+    private static native void nativeArrayStrided(byte[] input, int index, int stride,
+            int[] output, int start, int count, long config);
+
+    private static native int nativeDirectBufferBatch(ByteBuffer input, int[] offsets,
+            int[] lengths, int[] crcs, int count, boolean verify, long config);
+
+    private static native void nativeDirectBufferStrided(ByteBuffer input, int index,
+            int stride, int[] output, int count, long config);
+
+    private static native int nativeCombine(int current, int next, long nextLength);
+
     private static native long allocConfig(int[] chunkWords);
 
     private static native void freeConfig(long config);
@@ -22,27 +22,47 @@ import com.scurrilous.circe.HashParameters;
 import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.StatelessHash;
 import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
 import com.scurrilous.circe.params.CrcParameters;
 
 /**
  * Provides new instances of the SSE 4.2 CRC-32C hash function, when supported
  * by hardware.
+ * <p>
+ * Inputs shorter than a crossover length are hashed in pure Java, which is
+ * faster than calling native code for them. The crossover length can be set
+ * using the system property
+ * {@code com.scurrilous.circe.crc.HybridCrc32C.crossover}; otherwise, it is
+ * calibrated once in a background thread.
+ * <p>
+ * Unless {@link ChunkedCrcParameters} specify otherwise, input is processed in
+ * chunks of 32 KB, then 4 KB, then 512 bytes. Setting the system property
+ * {@code com.scurrilous.circe.crc.Sse42Crc32CProvider.calibrateChunks} to
+ * {@code true} instead selects the fastest of several chunk layouts on first
+ * use, caching the result in the file given by the system property
+ * {@code com.scurrilous.circe.crc.Sse42Crc32CProvider.calibrationFile}, or
+ * {@code ~/.circe/sse42-crc32c.properties} by default.
+ * <p>
+ * Constructing this provider starts loading the native library in the
+ * background, and this provider reports no support until the library has
+ * loaded. If the system property
+ * {@code com.scurrilous.circe.crc.NativeLibrary.lazy} is {@code false}, it
+ * waits for the library instead.
  */
+@ProviderIndex(parameters = { CrcParameters.class, ChunkedCrcParameters.class })
 public final class Sse42Crc32CProvider extends AbstractHashProvider<HashParameters> {
 
-    // process in chunks of 32 KB, then 4 KB, then 512 bytes
-    private static final int[] DEFAULT_CHUNK_WORDS = new int[] { 4096, 512, 64 };
-
     /**
      * Constructs a new {@link Sse42Crc32CProvider}.
      */
     public Sse42Crc32CProvider() {
         super(HashParameters.class);
+        NativeLibrary.loadInBackground();
     }
 
     @Override
     protected EnumSet<HashSupport> querySupportTyped(HashParameters params) {
-        if (isCrc32C(params) && Sse42Crc32C.isSupported())
+        if (isCrc32C(params) && NativeLibrary.isAvailable() && Sse42Crc32C.isSupported())
             return EnumSet.allOf(HashSupport.class);
         return EnumSet.noneOf(HashSupport.class);
     }
@@ -66,7 +86,7 @@ public final class Sse42Crc32CProvider extends AbstractHashProvider<HashParamete
         if (params instanceof ChunkedCrcParameters)
             chunkWords = ((ChunkedCrcParameters) params).chunkWords();
         else
-            chunkWords = DEFAULT_CHUNK_WORDS;
-        return new Sse42Crc32C(chunkWords);
+            chunkWords = ChunkCalibration.defaultChunkWords();
+        return new HybridCrc32C(new Sse42Crc32C(chunkWords));
     }
 }
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+
+/**
+ * Calls the native CRC-32C function through the foreign function and memory
+ * API, which avoids the overhead of JNI and the garbage collection locker for
+ * heap arrays. The downcalls are critical, so heap arrays are passed in place
+ * without pinning. To avoid a warning, native access should be enabled for
+ * the module containing this class, such as with
+ * {@code --enable-native-access=ALL-UNNAMED}. If native access is denied, or
+ * if the native library lacks the entry point, {@link Sse42Crc32C} uses JNI
+ * instead.
+ */
+final class ForeignCrc32C {
+
+    private static final String SYMBOL = "circe_crc32c";
+
+    // uint32_t circe_crc32c(uint32_t init, const void *buf, size_t len, int64_t config)
+    private static final MethodHandle SEGMENT_HANDLE = downcall(ADDRESS);
+    private static final MethodHandle ADDRESS_HANDLE = downcall(JAVA_LONG);
+    private static final boolean AVAILABLE = SEGMENT_HANDLE != null && ADDRESS_HANDLE != null;
+
+    private static MethodHandle downcall(MemoryLayout bufLayout) {
+        try {
+            if (!Sse42Crc32C.isSupported())
+                return null;
+            final MemorySegment symbol = SymbolLookup.loaderLookup().find(SYMBOL).orElse(null);
+            if (symbol == null)
+                return null;
+            return Linker.nativeLinker().downcallHandle(symbol,
+                    FunctionDescriptor.of(JAVA_INT, JAVA_INT, bufLayout, JAVA_LONG, JAVA_LONG),
+                    Linker.Option.critical(true));
+        } catch (final RuntimeException e) {
+            // such as IllegalCallerException if native access is disabled
+            return null;
+        }
+    }
+
+    private ForeignCrc32C() {
+    }
+
+    /**
+     * Returns whether foreign function calls are available.
+     * 
+     * @return true if the native function can be called directly
+     */
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Resumes the CRC with the given range of an array.
+     * 
+     * @param current the CRC of the input hashed so far
+     * @param input the input array
+     * @param index the starting index of the range
+     * @param length the length of the range
+     * @param config the native chunk configuration, or 0
+     * @return the updated CRC
+     */
+    static int resume(int current, byte[] input, int index, int length, long config) {
+        final MemorySegment segment = MemorySegment.ofArray(input).asSlice(index, length);
+        try {
+            return (int) SEGMENT_HANDLE.invokeExact(current, segment, (long) length, config);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Resumes the CRC with the given range of a direct buffer.
+     * 
+     * @param current the CRC of the input hashed so far
+     * @param input the direct input buffer
+     * @param index the starting index of the range
+     * @param length the length of the range
+     * @param config the native chunk configuration, or 0
+     * @return the updated CRC
+     */
+    static int resume(int current, ByteBuffer input, int index, int length, long config) {
+        // the segment of a buffer starts at its position
+        final long address = MemorySegment.ofBuffer(input).address() - input.position() + index;
+        try {
+            return (int) ADDRESS_HANDLE.invokeExact(current, address, (long) length, config);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException)
+            return (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ChunkCalibrationTest {
+
+    @Test
+    public void testCalibrate() {
+        assumeTrue(Sse42Crc32C.isSupported());
+        final int[] chunkWords = ChunkCalibration.calibrate();
+        boolean found = false;
+        for (final int[] candidate : ChunkCalibration.CANDIDATES)
+            found |= Arrays.equals(candidate, chunkWords);
+        assertTrue(found);
+    }
+
+    @Test
+    public void testStoreLoad() throws IOException {
+        final File file = File.createTempFile("circe", ".properties");
+        try {
+            assertTrue(file.delete());
+            assertNull(ChunkCalibration.load(file, "a"));
+            ChunkCalibration.store(file, "a", new int[] { 1024, 128, 16 });
+            ChunkCalibration.store(file, "b", new int[0]);
+            assertArrayEquals(new int[] { 1024, 128, 16 }, ChunkCalibration.load(file, "a"));
+            assertArrayEquals(new int[0], ChunkCalibration.load(file, "b"));
+            assertNull(ChunkCalibration.load(file, "c"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLoadInvalid() throws IOException {
+        final File file = File.createTempFile("circe", ".properties");
+        try {
+            try (final OutputStream out = new FileOutputStream(file)) {
+                out.write("a=64,128\nb=x\nc=2\n".getBytes(Charset.forName("ISO-8859-1")));
+            }
+            assertNull(ChunkCalibration.load(file, "a"));
+            assertNull(ChunkCalibration.load(file, "b"));
+            assertNull(ChunkCalibration.load(file, "c"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMachineKey() {
+        final String key = ChunkCalibration.machineKey();
+        assertFalse(key.isEmpty());
+        assertFalse(key.contains(" "));
+    }
+}
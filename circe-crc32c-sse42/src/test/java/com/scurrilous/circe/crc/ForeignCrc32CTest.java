@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static com.scurrilous.circe.params.CrcParameters.CRC32C;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scurrilous.circe.IncrementalIntHash;
+
+@SuppressWarnings("javadoc")
+public class ForeignCrc32CTest {
+
+    // set by the java22 profile, which tests the multi-release JAR
+    private static final boolean REQUIRED = Boolean.getBoolean(ForeignCrc32CTest.class
+            .getName() + ".required");
+
+    private static final IncrementalIntHash REFERENCE = new StandardCrcProvider()
+            .getIncrementalInt(CRC32C);
+
+    private static final int[] LENGTHS = { 0, 1, 15, 255, 256, 257, 1000, 4096, 65537 };
+
+    private final byte[] bytes = new byte[65600];
+
+    @Before
+    public void setUp() {
+        assumeTrue(Sse42Crc32C.isSupported());
+        if (REQUIRED)
+            assertTrue(ForeignCrc32C.isAvailable());
+        else
+            assumeTrue(ForeignCrc32C.isAvailable());
+        new Random(1).nextBytes(bytes);
+    }
+
+    @Test
+    public void testArray() {
+        final int current = REFERENCE.calculate(bytes, 0, 7);
+        for (final int len : LENGTHS)
+            assertEquals(REFERENCE.resume(current, bytes, 3, len),
+                    ForeignCrc32C.resume(current, bytes, 3, len, 0));
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(5);
+        final int current = REFERENCE.calculate(bytes, 0, 7);
+        for (final int len : LENGTHS)
+            assertEquals(REFERENCE.resume(current, bytes, 3, len),
+                    ForeignCrc32C.resume(current, direct, 3, len, 0));
+        assertEquals(5, direct.position());
+    }
+
+    @Test
+    public void testChunked() {
+        final Sse42Crc32C crc = new Sse42Crc32C(
+                new int[] { ChunkedCrcParameters.MIN_CHUNK_WORDS + 11 });
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        final int expected = REFERENCE.calculate(bytes);
+        assertEquals(expected, crc.calculate(bytes));
+        assertEquals(expected, crc.calculate(direct));
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scurrilous.circe.BatchHash;
+import com.scurrilous.circe.HashProviders;
+import com.scurrilous.circe.Hashes;
+import com.scurrilous.circe.params.SimpleHashParameters;
+
+@SuppressWarnings("javadoc")
+public class MultiBufferSha256Test {
+
+    // covers the one and two block padding boundaries
+    private static final int[] LENGTHS = { 0, 1, 3, 55, 56, 63, 64, 65, 119, 120, 127, 128, 200,
+            1000, 4096, 65537, 5, 17 };
+
+    private final byte[] bytes = new byte[200000];
+    private final int[] offsets = new int[LENGTHS.length];
+    private byte[] expected;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(MultiBufferSha256.isSupported());
+        new Random(1).nextBytes(bytes);
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        expected = new byte[LENGTHS.length * 32];
+        for (int i = 0, offset = 3; i < LENGTHS.length; offset += LENGTHS[i++] + 7) {
+            offsets[i] = offset;
+            digest.update(bytes, offset, LENGTHS[i]);
+            System.arraycopy(digest.digest(), 0, expected, i * 32, 32);
+        }
+    }
+
+    private int[] lanes() {
+        final int max = MultiBufferSha256.maxLanes();
+        return max > 4 ? new int[] { 4, max } : new int[] { 4 };
+    }
+
+    @Test
+    public void testArray() {
+        for (final int lanes : lanes()) {
+            final byte[] output = new byte[expected.length];
+            new MultiBufferSha256(lanes).calculateBatch(bytes, offsets, LENGTHS, output,
+                    LENGTHS.length);
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void testArraySliced() {
+        for (final int lanes : lanes()) {
+            final byte[] output = new byte[expected.length];
+            new MultiBufferSha256(lanes).batchArray(bytes, 0, offsets, LENGTHS, output,
+                    LENGTHS.length, 300);
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void testArrays() {
+        final byte[][] inputs = new byte[LENGTHS.length][];
+        for (int i = 0; i < inputs.length; ++i)
+            inputs[i] = Arrays.copyOfRange(bytes, offsets[i], offsets[i] + LENGTHS[i]);
+        for (final int lanes : lanes()) {
+            final byte[] output = new byte[expected.length];
+            new MultiBufferSha256(lanes).calculateBatch(inputs, output, inputs.length);
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void testBuffers() {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        final ByteBuffer heap = ByteBuffer.wrap(new byte[bytes.length + 10], 10, bytes.length)
+                .slice();
+        heap.put(bytes).flip();
+        for (final int lanes : lanes()) {
+            for (final ByteBuffer buffer : new ByteBuffer[] { direct, heap,
+                    heap.asReadOnlyBuffer() }) {
+                final byte[] output = new byte[expected.length];
+                new MultiBufferSha256(lanes).calculateBatch(buffer, offsets, LENGTHS, output,
+                        LENGTHS.length);
+                assertArrayEquals(expected, output);
+                assertEquals(0, buffer.position());
+            }
+        }
+    }
+
+    @Test
+    public void testManyMessages() throws Exception {
+        final int count = 1000;
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        final byte[] expected = new byte[count * 32];
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        final Random random = new Random(2);
+        for (int i = 0; i < count; ++i) {
+            offsets[i] = random.nextInt(bytes.length - 300);
+            lengths[i] = random.nextInt(300);
+            digest.update(bytes, offsets[i], lengths[i]);
+            System.arraycopy(digest.digest(), 0, expected, i * 32, 32);
+        }
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        for (final int lanes : lanes()) {
+            byte[] output = new byte[expected.length];
+            new MultiBufferSha256(lanes).calculateBatch(bytes, offsets, lengths, output, count);
+            assertArrayEquals(expected, output);
+            output = new byte[expected.length];
+            new MultiBufferSha256(lanes).calculateBatch(direct, offsets, lengths, output, count);
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void testProvider() {
+        // only batches of SHA-256 are native
+        assertFalse(HashProviders.best(SimpleHashParameters.SHA256) instanceof
+                MultiBufferSha256Provider);
+        assertTrue(HashProviders.bestBatch(SimpleHashParameters.SHA256) instanceof
+                MultiBufferSha256Provider);
+        final BatchHash hash = Hashes.getBatch(SimpleHashParameters.SHA256);
+        assertTrue(hash instanceof MultiBufferSha256);
+        assertEquals("SHA-256", hash.createStateful().algorithm());
+        final byte[] output = new byte[expected.length];
+        hash.calculateBatch(bytes, offsets, LENGTHS, output, LENGTHS.length);
+        assertArrayEquals(expected, output);
+    }
+}
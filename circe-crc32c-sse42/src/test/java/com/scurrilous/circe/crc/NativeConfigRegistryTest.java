@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class NativeConfigRegistryTest {
+
+    private static final class CountingRegistry extends NativeConfigRegistry<String> {
+        final List<Long> freed = new ArrayList<>();
+        int allocated;
+
+        @Override
+        protected long allocate(String key) {
+            return ++allocated;
+        }
+
+        @Override
+        protected synchronized void free(long config) {
+            freed.add(config);
+        }
+
+        synchronized int freedCount() {
+            return freed.size();
+        }
+    }
+
+    @Test
+    public void testShared() {
+        final CountingRegistry registry = new CountingRegistry();
+        final Object owner1 = new Object();
+        final Object owner2 = new Object();
+        final Object owner3 = new Object();
+        final long a1 = registry.acquire("a", owner1);
+        final long a2 = registry.acquire("a", owner2);
+        final long b = registry.acquire("b", owner3);
+        assertEquals(a1, a2);
+        assertNotEquals(a1, b);
+        assertEquals(2, registry.allocated);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testReleased() throws InterruptedException {
+        final CountingRegistry registry = new CountingRegistry();
+        Object owner1 = new Object();
+        Object owner2 = new Object();
+        final long config = registry.acquire("a", owner1);
+        registry.acquire("a", owner2);
+        owner1 = null;
+        collect();
+        assertEquals(1, registry.size());
+        assertEquals(0, registry.freedCount());
+        owner2 = null;
+        awaitFree(registry, 1);
+        assertEquals(0, registry.size());
+        assertEquals(config, (long) registry.freed.get(0));
+
+        // a released key is allocated afresh
+        final Object owner3 = new Object();
+        assertNotEquals(config, registry.acquire("a", owner3));
+    }
+
+    private static void collect() throws InterruptedException {
+        // gives the cleaner a chance to release a reclaimed owner
+        for (int i = 0; i < 10; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitFree(CountingRegistry registry, int freed)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && registry.freedCount() < freed; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(registry.freedCount() >= freed);
+    }
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class NativeLibraryTest {
+
+    private File cacheDir;
+
+    @Before
+    public void createCacheDir() throws IOException {
+        cacheDir = File.createTempFile("circe", "");
+        assertTrue(cacheDir.delete());
+    }
+
+    @After
+    public void deleteCacheDir() {
+        delete(cacheDir);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null)
+            for (final File child : children)
+                delete(child);
+        file.delete();
+    }
+
+    @Test
+    public void testExtract() throws IOException {
+        final byte[] content = new byte[10000];
+        new Random(1).nextBytes(content);
+        final File file = NativeLibrary.extract(content, "libtest.so", cacheDir);
+        assertEquals("libtest.so", file.getName());
+        assertEquals(64, file.getParentFile().getName().length());
+        assertArrayEquals(content, read(file));
+
+        // an intact copy is reused as is
+        assertTrue(file.setLastModified(1000000000L));
+        assertEquals(file, NativeLibrary.extract(content, "libtest.so", cacheDir));
+        assertEquals(1000000000L, file.lastModified());
+
+        // a corrupt copy is replaced
+        try (final OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[content.length]);
+        }
+        assertEquals(file, NativeLibrary.extract(content, "libtest.so", cacheDir));
+        assertArrayEquals(content, read(file));
+
+        // different content is cached separately
+        content[0] ^= 1;
+        final File other = NativeLibrary.extract(content, "libtest.so", cacheDir);
+        assertNotEquals(file, other);
+        assertEquals(1, file.getParentFile().list().length);
+    }
+
+    @Test
+    public void testAol() {
+        assertTrue(NativeLibrary.aol().matches("[^-\\s]+-[^-\\s]+-(gpp|msvc)"));
+    }
+
+    @Test
+    public void testLoad() {
+        assertTrue(NativeLibrary.load() || !Sse42Crc32C.isSupported());
+    }
+
+    @Test
+    public void testLoadBundled() throws IOException {
+        final String output = NativeLibrary.libraryOutput(NativeLibrary.aol());
+        assertNotNull(output);
+        final String fileName = System.mapLibraryName(output);
+        final byte[] content;
+        try (final InputStream in = NativeLibrary.class.getResourceAsStream("/lib/" +
+                NativeLibrary.aol() + "/jni/" + fileName)) {
+            assertNotNull("library not bundled", in);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) >= 0)
+                out.write(buffer, 0, n);
+            content = out.toByteArray();
+        }
+        assertTrue(NativeLibrary.load());
+
+        // the bundled library was extracted to the cache rather than skipped
+        final File dir = NativeLibrary.cacheDir();
+        assertNotNull(dir);
+        boolean found = false;
+        final File[] children = dir.listFiles();
+        if (children != null)
+            for (final File child : children) {
+                final File file = new File(child, fileName);
+                if (file.isFile() && Arrays.equals(content, read(file)))
+                    found = true;
+            }
+        assertTrue("library not extracted to " + dir, found);
+    }
+
+    private static byte[] read(File file) throws IOException {
+        final byte[] bytes = new byte[(int) file.length()];
+        try (final InputStream in = new FileInputStream(file)) {
+            int n = 0;
+            while (n < bytes.length)
+                n += in.read(bytes, n, bytes.length - n);
+        }
+        return bytes;
+    }
+}
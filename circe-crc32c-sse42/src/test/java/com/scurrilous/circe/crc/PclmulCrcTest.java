@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.crc;
+
+import static com.scurrilous.circe.params.CrcParameters.CRC16;
+import static com.scurrilous.circe.params.CrcParameters.CRC16_CCITT;
+import static com.scurrilous.circe.params.CrcParameters.CRC16_XMODEM;
+import static com.scurrilous.circe.params.CrcParameters.CRC32;
+import static com.scurrilous.circe.params.CrcParameters.CRC32C;
+import static com.scurrilous.circe.params.CrcParameters.CRC32_BZIP2;
+import static com.scurrilous.circe.params.CrcParameters.CRC32_MPEG2;
+import static com.scurrilous.circe.params.CrcParameters.CRC32_POSIX;
+import static com.scurrilous.circe.params.CrcParameters.CRC64;
+import static com.scurrilous.circe.params.CrcParameters.CRC64_XZ;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scurrilous.circe.CombinableIntHash;
+import com.scurrilous.circe.HashProvider;
+import com.scurrilous.circe.HashProviders;
+import com.scurrilous.circe.HashSupport;
+import com.scurrilous.circe.Hashes;
+import com.scurrilous.circe.IncrementalIntHash;
+import com.scurrilous.circe.IncrementalLongHash;
+import com.scurrilous.circe.impl.DirectByteBufferAccessLoader;
+import com.scurrilous.circe.params.CrcParameters;
+
+@SuppressWarnings("javadoc")
+public class PclmulCrcTest {
+
+    private static final HashProvider PROVIDER = new PclmulCrcProvider();
+
+    private static final CrcParameters[] PARAMS = {
+            new CrcParameters("CRC-3/ROHC", 3, 0x3, 0x7, 0, true),
+            new CrcParameters("CRC-5/EPC", 5, 0x09, 0x09, 0, false),
+            new CrcParameters("CRC-8", 8, 0x07, 0, 0, false),
+            new CrcParameters("CRC-12/3GPP", 12, 0x80f, 0, 0, false),
+            CRC16, CRC16_CCITT, CRC16_XMODEM,
+            new CrcParameters("CRC-24", 24, 0x864cfb, 0xb704ce, 0, false),
+            CRC32_BZIP2, CRC32_MPEG2, CRC32_POSIX,
+            new CrcParameters("CRC-40/GSM", 40, 0x0004820009L, 0, 0xffffffffffL, false),
+            CRC64, CRC64_XZ };
+
+    private static final int[] LENGTHS = { 0, 1, 15, 255, 256, 257, 300, 1000, 4096, 65537 };
+
+    private static final int[] CROSSOVERS = { 0, 256, Integer.MAX_VALUE };
+
+    private final byte[] bytes = new byte[65600];
+
+    // constructed directly, since providers may share cached instances
+    private static IncrementalLongHash longReference(CrcParameters params) {
+        if (params.reflected())
+            return new ReflectedLongCrc(params.algorithm(), params.bitWidth(),
+                    params.polynomial(), params.initial(), params.xorOut());
+        return new NormalLongCrc(params.algorithm(), params.bitWidth(), params.polynomial(),
+                params.initial(), params.xorOut());
+    }
+
+    private static IncrementalIntHash intReference(CrcParameters params) {
+        final int bitWidth = params.bitWidth();
+        final int poly = (int) params.polynomial();
+        final int init = (int) params.initial();
+        final int xorOut = (int) params.xorOut();
+        if (params.reflected())
+            return new ReflectedIntCrc(params.algorithm(), bitWidth, poly, init, xorOut);
+        if (bitWidth > 8)
+            return new NormalIntCrc(params.algorithm(), bitWidth, poly, init, xorOut);
+        return new NormalByteCrc(params.algorithm(), bitWidth, poly, init, xorOut);
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue(PclmulCrc.isSupported());
+        new Random(1).nextBytes(bytes);
+    }
+
+    @Test
+    public void testLong() {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        final long address = DirectByteBufferAccessLoader.getAddress(direct);
+        for (final CrcParameters params : PARAMS) {
+            if (params.bitWidth() < 8) // no long reference implementation
+                continue;
+            final IncrementalLongHash hash = PROVIDER.getIncrementalLong(params);
+            assertTrue(hash instanceof PclmulLongCrc);
+            assertTrue(hash.supportsUnsafe());
+            final IncrementalLongHash reference = longReference(params);
+            final long current = reference.calculate(bytes, 0, 7);
+            for (final int len : LENGTHS) {
+                final long expected = reference.resume(current, bytes, 3, len);
+                assertEquals(params.algorithm(), expected, hash.resume(current, bytes, 3, len));
+                direct.clear();
+                direct.put(bytes, 3, len).flip();
+                assertEquals(params.algorithm(), expected, hash.resume(current, direct));
+                // the native engine needs no unsafe access to read the address
+                if (address != 0)
+                    assertEquals(params.algorithm(), expected,
+                            hash.resume(current, address, len));
+            }
+        }
+    }
+
+    @Test
+    public void testInt() {
+        for (final CrcParameters params : PARAMS) {
+            if (params.bitWidth() > 32)
+                continue;
+            final IncrementalIntHash hash = PROVIDER.getIncrementalInt(params);
+            assertTrue(hash instanceof PclmulIntCrc);
+            final IncrementalIntHash reference = intReference(params);
+            final int current = reference.calculate(bytes, 0, 7);
+            for (final int len : LENGTHS) {
+                final int expected = reference.resume(current, bytes, 1, len);
+                assertEquals(params.algorithm(), expected, hash.resume(current, bytes, 1, len));
+            }
+            assertEquals(params.algorithm(), reference.calculate(bytes),
+                    ((CombinableIntHash) hash).combine(hash.calculate(bytes, 0, 1000),
+                            hash.calculate(bytes, 1000, bytes.length - 1000),
+                            bytes.length - 1000));
+        }
+    }
+
+    @Test
+    public void testCrossover() {
+        for (final CrcParameters params : new CrcParameters[] { CRC16, CRC32, CRC32_BZIP2,
+                CRC64_XZ, CRC64 }) {
+            final IncrementalLongHash reference = longReference(params);
+            for (final int crossover : CROSSOVERS) {
+                final String name = params.algorithm() + "/" + crossover;
+                final IncrementalLongHash longCrc = new PclmulLongCrc(params.algorithm(),
+                        params.bitWidth(), params.polynomial(), params.initial(),
+                        params.xorOut(), params.reflected(), crossover);
+                for (final int len : LENGTHS)
+                    assertEquals(name, reference.calculate(bytes, 3, len),
+                            longCrc.calculate(bytes, 3, len));
+                if (params.bitWidth() > 32)
+                    continue;
+                final IncrementalIntHash intCrc = new PclmulIntCrc(params.algorithm(),
+                        params.bitWidth(), (int) params.polynomial(), (int) params.initial(),
+                        (int) params.xorOut(), params.reflected(), crossover);
+                for (final int len : LENGTHS)
+                    assertEquals(name, (int) reference.calculate(bytes, 3, len),
+                            intCrc.calculate(bytes, 3, len));
+            }
+        }
+    }
+
+    @Test
+    public void testBest() {
+        assertTrue(HashProviders.best(CRC64_XZ) instanceof PclmulCrcProvider);
+        assertTrue(PROVIDER.querySupport(CRC32_BZIP2).contains(
+                HashSupport.HARDWARE_INCREMENTAL));
+        assertTrue(PROVIDER.querySupport(CRC32C).isEmpty());
+    }
+
+    @Test
+    public void testBestCrc32() {
+        // the JDK's intrinsified CRC-32 is faster than PCLMULQDQ folding
+        assertTrue(PROVIDER.querySupport(CRC32).isEmpty());
+        assertTrue(HashProviders.best(CRC32) instanceof StandardCrcProvider);
+        assertTrue(HashProviders.best(CRC32, EnumSet.of(HashSupport.STATELESS_INCREMENTAL,
+                HashSupport.INT_SIZED)) instanceof StandardCrcProvider);
+        assertFalse(Hashes.getIncrementalInt(CRC32) instanceof PclmulIntCrc);
+    }
+}
@@ -37,7 +37,7 @@ public class Sse42Crc32CProviderTest {
     public void test() {
         assumeTrue(Sse42Crc32C.isSupported());
         final SortedMap<EnumSet<HashSupport>, HashProvider> map = HashProviders.search(CRC32C);
-        assertEquals(2, map.size());
+        assertEquals(JavaCrc32CProvider.isSupported() ? 3 : 2, map.size());
         final Entry<EnumSet<HashSupport>, HashProvider> entry = map.entrySet().iterator().next();
         assertTrue(entry.getValue() instanceof Sse42Crc32CProvider);
         assertEquals(EnumSet.allOf(HashSupport.class), entry.getKey());
@@ -16,17 +16,21 @@
 package com.scurrilous.circe.crc;
 
 import static com.scurrilous.circe.params.CrcParameters.CRC32C;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.scurrilous.circe.IncrementalIntHash;
+import com.scurrilous.circe.impl.AbstractIncrementalIntHash;
 
 @SuppressWarnings("javadoc")
 public class Sse42Crc32CTest {
@@ -34,12 +38,12 @@ public class Sse42Crc32CTest {
     private static final Charset ASCII = Charset.forName("ASCII");
     private static final Sse42Crc32CProvider PROVIDER = new Sse42Crc32CProvider();
 
-    private IncrementalIntHash NATIVE_CRC32C;
+    private Sse42Crc32C NATIVE_CRC32C;
 
     @Before
     public void checkSupported() {
         assumeTrue(Sse42Crc32C.isSupported());
-        NATIVE_CRC32C = PROVIDER.getIncrementalInt(CRC32C);
+        NATIVE_CRC32C = new Sse42Crc32C();
     }
 
     @Test
@@ -86,6 +90,165 @@ public class Sse42Crc32CTest {
         assertEquals(0xbfe92a83, NATIVE_CRC32C.calculate(bytes, 1, 8));
     }
 
+    @Test
+    public void testCombine() {
+        final byte[] bytes = new byte[100000];
+        for (int i = 0; i < bytes.length; ++i)
+            bytes[i] = (byte) (i * 31);
+        final int expected = NATIVE_CRC32C.calculate(bytes);
+        for (final int split : new int[] { 0, 1, 9, 4096, 99999, 100000 }) {
+            final int first = NATIVE_CRC32C.calculate(bytes, 0, split);
+            final int second = NATIVE_CRC32C.calculate(bytes, split, bytes.length - split);
+            assertEquals(expected, NATIVE_CRC32C.combine(first, second, bytes.length - split));
+        }
+    }
+
+    @Test
+    public void testLarge() {
+        // covers the lengths at which folding is used, if supported by the CPU
+        final IncrementalIntHash reference = new StandardCrcProvider().getIncrementalInt(CRC32C);
+        final byte[] bytes = new byte[70000];
+        new Random(1).nextBytes(bytes);
+        for (final int len : new int[] { 700, 767, 768, 769, 1023, 1024, 4096, 65536 }) {
+            for (int offset = 0; offset < 8; ++offset) {
+                final int expected = reference.resume(0x12345678, bytes, offset, len);
+                assertEquals(expected, NATIVE_CRC32C.resume(0x12345678, bytes, offset, len));
+            }
+        }
+    }
+
+    @Test
+    public void testSlicing() {
+        final byte[] bytes = new byte[10000];
+        new Random(2).nextBytes(bytes);
+        final Sse42Crc32C crc = new Sse42Crc32C();
+        final int expected = crc.resume(0x12345678, bytes, 3, 9990);
+        for (final int sliceLength : new int[] { 1, 7, 8, 1000, 9989, 9990 })
+            assertEquals(expected, crc.resumeArray(0x12345678, bytes, 3, 9990, sliceLength));
+    }
+
+    @Test
+    public void testBatch() {
+        final IncrementalIntHash reference = new StandardCrcProvider().getIncrementalInt(CRC32C);
+        final byte[] bytes = new byte[5000];
+        new Random(3).nextBytes(bytes);
+        // spans several blocks of records in the direct buffer batch
+        final int count = 600;
+        final int[] offsets = new int[count];
+        final int[] lengths = new int[count];
+        final int[] expected = new int[count];
+        for (int i = 0; i < count; ++i) {
+            offsets[i] = i * 211 % 4800;
+            lengths[i] = i * 37 % 200;
+            expected[i] = reference.calculate(bytes, offsets[i], lengths[i]);
+        }
+        final Sse42Crc32C crc = new Sse42Crc32C();
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        for (final ByteBuffer buffer : new ByteBuffer[] { direct, ByteBuffer.wrap(bytes) }) {
+            final int[] output = new int[count];
+            crc.calculateBatch(buffer, offsets, lengths, output, count);
+            assertArrayEquals(expected, output);
+            assertEquals(-1, crc.verifyBatch(buffer, offsets, lengths, expected, count));
+        }
+        for (final int sliceLength : new int[] { 1, 300, Integer.MAX_VALUE }) {
+            final int[] output = new int[count];
+            crc.batchArray(bytes, 0, offsets, lengths, output, count, false, sliceLength);
+            assertArrayEquals(expected, output);
+            assertEquals(-1,
+                    crc.batchArray(bytes, 0, offsets, lengths, expected, count, true, sliceLength));
+        }
+        expected[413] ^= 1;
+        assertEquals(413, crc.verifyBatch(bytes, offsets, lengths, expected, count));
+        assertEquals(413, crc.verifyBatch(direct, offsets, lengths, expected, count));
+    }
+
+    @Test
+    public void testBatchStrided() {
+        final IncrementalIntHash reference = new StandardCrcProvider().getIncrementalInt(CRC32C);
+        final byte[] bytes = new byte[5000];
+        new Random(4).nextBytes(bytes);
+        final int stride = 8;
+        final int count = 600;
+        final int[] expected = new int[count];
+        for (int i = 0; i < count; ++i)
+            expected[i] = reference.calculate(bytes, 7 + i * stride, stride);
+        final Sse42Crc32C crc = new Sse42Crc32C();
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        for (final ByteBuffer buffer : new ByteBuffer[] { direct, ByteBuffer.wrap(bytes) }) {
+            final int[] output = new int[count];
+            crc.calculateBatch(buffer, 7, stride, output, count);
+            assertArrayEquals(expected, output);
+        }
+        for (final int sliceLength : new int[] { 1, 350, Integer.MAX_VALUE }) {
+            final int[] output = new int[count];
+            crc.stridedArray(bytes, 7, stride, output, count, sliceLength);
+            assertArrayEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void testGather() {
+        final IncrementalIntHash reference = new StandardCrcProvider().getIncrementalInt(CRC32C);
+        final byte[] bytes = new byte[100000];
+        new Random(6).nextBytes(bytes);
+        final AbstractIntCrc javaCrc = HybridCrc32C.createJavaCrc();
+        final AbstractIncrementalIntHash[] impls = { new Sse42Crc32C(),
+                new HybridCrc32C(new Sse42Crc32C(), javaCrc, 64) };
+        // more than 64 segments exceeds the native stack arrays
+        for (final int count : new int[] { 0, 1, 6, 100 }) {
+            for (final boolean mixed : new boolean[] { false, true }) {
+                final ByteBuffer[] buffers = new ByteBuffer[count + 2];
+                int pos = 0;
+                for (int i = 0; i < count; ++i) {
+                    final int len = i * 97 % 1500;
+                    final ByteBuffer buffer = mixed && i % 2 != 0 ? ByteBuffer
+                            .allocate(len + 3) : ByteBuffer.allocateDirect(len + 3);
+                    buffer.position(3);
+                    buffer.put(bytes, pos, len);
+                    buffer.position(3);
+                    buffers[i + 1] = buffer;
+                    pos += len;
+                }
+                final int expected = reference.resume(0x12345678, bytes, 0, pos);
+                for (final AbstractIncrementalIntHash impl : impls) {
+                    for (int i = 1; i <= count; ++i)
+                        buffers[i].position(3);
+                    assertEquals(expected, impl.resume(0x12345678, buffers, 1, count));
+                    for (int i = 1; i <= count; ++i)
+                        assertEquals(buffers[i].limit(), buffers[i].position());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHybrid() {
+        final IncrementalIntHash reference = new StandardCrcProvider().getIncrementalInt(CRC32C);
+        final AbstractIntCrc javaCrc = HybridCrc32C.createJavaCrc();
+        final byte[] bytes = new byte[300];
+        new Random(5).nextBytes(bytes);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        for (final int crossover : new int[] { 0, 64, Integer.MAX_VALUE }) {
+            final HybridCrc32C hybrid = new HybridCrc32C(new Sse42Crc32C(), javaCrc, crossover);
+            for (int len = 0; len <= bytes.length; len += 13) {
+                final int expected = reference.resume(0x12345678, bytes, 0, len);
+                assertEquals(expected, hybrid.resume(0x12345678, bytes, 0, len));
+                direct.clear();
+                direct.put(bytes, 0, len).flip();
+                assertEquals(expected, hybrid.resume(0x12345678, direct));
+            }
+        }
+    }
+
+    @Test
+    public void testCalibrate() {
+        final int crossover = HybridCrc32C.calibrate(new Sse42Crc32C(),
+                HybridCrc32C.createJavaCrc());
+        assertTrue(crossover >= 8 && crossover <= 4096);
+    }
+
     @Test
     public void testChunking() {
         final int minWords = ChunkedCrcParameters.MIN_CHUNK_WORDS;
@@ -100,6 +263,17 @@ public class Sse42Crc32CTest {
         }
     }
 
+    @Test
+    public void testSharedConfig() {
+        final int[] chunkWords = { ChunkedCrcParameters.MIN_CHUNK_WORDS + 11 };
+        final Sse42Crc32C crc1 = new Sse42Crc32C(chunkWords);
+        final int size = Sse42Crc32C.CONFIGS.size();
+        final Sse42Crc32C crc2 = new Sse42Crc32C(chunkWords.clone());
+        assertEquals(size, Sse42Crc32C.CONFIGS.size());
+        final byte[] bytes = new byte[1000];
+        assertEquals(crc1.calculate(bytes), crc2.calculate(bytes));
+    }
+
     @Test
     public void testCRC32CIncremental() {
         final String data = "data";
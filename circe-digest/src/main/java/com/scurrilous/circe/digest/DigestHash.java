@@ -58,6 +58,14 @@ public final class DigestHash implements StatefulHash {
 
     @Override
     public StatefulHash createNew() {
+        // cloning avoids looking up the algorithm in the provider each time
+        try {
+            final MessageDigest clone = (MessageDigest) digest.clone();
+            clone.reset();
+            return new DigestHash(clone);
+        } catch (final CloneNotSupportedException e) {
+            // fall back to a new instance from the same provider
+        }
         try {
             return new DigestHash(MessageDigest.getInstance(digest.getAlgorithm(),
                     digest.getProvider()));
@@ -23,10 +23,12 @@ import com.scurrilous.circe.Hash;
 import com.scurrilous.circe.HashParameters;
 import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
 
 /**
  * Provides {@link DigestHash} instances based on an algorithm name.
  */
+@ProviderIndex(parameters = HashParameters.class)
 public final class DigestHashProvider extends AbstractHashProvider<HashParameters> {
 
     /**
@@ -17,14 +17,17 @@ package com.scurrilous.circe.digest;
 
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.isA;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.security.MessageDigest;
 import java.util.EnumSet;
 
 import org.junit.Test;
 
+import com.scurrilous.circe.BatchHash;
 import com.scurrilous.circe.HashProviders;
 import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.params.SimpleHashParameters;
@@ -54,4 +57,27 @@ public class DigestHashProviderTest {
     public void testDiscovery() {
         assertThat(HashProviders.search(MD5).values(), hasItem(isA(DigestHashProvider.class)));
     }
+
+    @Test
+    public void testGetBatch() throws Exception {
+        final BatchHash hash = PROVIDER.getBatch(MD5);
+        assertEquals(MD5.algorithm(), hash.algorithm());
+        final byte[] input = "abcdefghij".getBytes("US-ASCII");
+        final byte[] output = new byte[3 * 16];
+        hash.calculateBatch(input, new int[] { 0, 2, 10 }, new int[] { 2, 8, 0 }, output, 3);
+        final MessageDigest digest = MessageDigest.getInstance("MD5");
+        final byte[] expected = new byte[output.length];
+        digest.update(input, 0, 2);
+        System.arraycopy(digest.digest(), 0, expected, 0, 16);
+        digest.update(input, 2, 8);
+        System.arraycopy(digest.digest(), 0, expected, 16, 16);
+        System.arraycopy(digest.digest(), 0, expected, 32, 16);
+        assertArrayEquals(expected, output);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetBatchOutOfBounds() {
+        PROVIDER.getBatch(MD5).calculateBatch(new byte[10], new int[] { 0, 2 },
+                new int[] { 2, 9 }, new byte[32], 2);
+    }
 }
@@ -57,6 +57,15 @@ public class DigestHashTest {
         assertEquals(0xd0ee1ee0bb3bb65eL, hash.getLong());
     }
 
+    @Test
+    public void testCreateNewWhileUpdating() {
+        hash.update(DATA, 0, 5);
+        final StatefulHash other = hash.createNew();
+        assertEquals(0x04b2008fd98c1dd4L, other.getLong());
+        hash.update(DATA, 5, DATA.length - 5);
+        assertEquals(0xd0ee1ee0bb3bb65eL, hash.getLong());
+    }
+
     @Test
     public void testReset() {
         hash.update(DATA);
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.lang.reflect.Field;
+
+import sun.misc.Unsafe;
+
+/**
+ * Implementation of {@link NativeMemoryAccess} that uses
+ * {@code sun.misc.Unsafe}. Constructing it fails if {@code Unsafe} is not
+ * available, in which case {@link NativeMemoryAccessLoader} reports no
+ * support.
+ */
+@SuppressWarnings("restriction")
+public final class UnsafeMemoryAccess implements NativeMemoryAccess {
+
+    private static final Unsafe UNSAFE = getUnsafe();
+
+    private static Unsafe getUnsafe() {
+        try {
+            final Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (final Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Constructs a new {@link UnsafeMemoryAccess}.
+     * 
+     * @throws UnsupportedOperationException if {@code Unsafe} is not available
+     */
+    public UnsafeMemoryAccess() {
+        if (UNSAFE == null)
+            throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public byte getByte(long address) {
+        return UNSAFE.getByte(address);
+    }
+
+    @Override
+    public long getLong(long address) {
+        return UNSAFE.getLong(address);
+    }
+}
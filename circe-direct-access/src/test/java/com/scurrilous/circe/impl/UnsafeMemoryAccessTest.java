@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class UnsafeMemoryAccessTest {
+
+    @Test
+    public void testGet() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder());
+        buffer.put(3, (byte) 0x5a);
+        buffer.putLong(5, 0x0102030405060708L);
+        final long address = new DirectBufferAccess().getAddress(buffer);
+        final NativeMemoryAccess access = new UnsafeMemoryAccess();
+        assertEquals(0x5a, access.getByte(address + 3));
+        assertEquals(0x0102030405060708L, access.getLong(address + 5));
+    }
+
+    @Test
+    public void testLoader() {
+        assertTrue(NativeMemoryAccessLoader.isSupported());
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder());
+        buffer.putLong(1, -2L);
+        final long address = DirectByteBufferAccessLoader.getAddress(buffer);
+        assertEquals(-2L, NativeMemoryAccessLoader.getLong(address + 1));
+    }
+}
@@ -22,12 +22,14 @@ import com.scurrilous.circe.Hash;
 import com.scurrilous.circe.HashParameters;
 import com.scurrilous.circe.HashSupport;
 import com.scurrilous.circe.impl.AbstractHashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
 import com.scurrilous.circe.params.MurmurHash3Parameters;
 import com.scurrilous.circe.params.SipHash24Parameters;
 
 /**
  * Provides hash function instances implemented in Guava.
  */
+@ProviderIndex(parameters = { MurmurHash3Parameters.class, SipHash24Parameters.class })
 public final class GuavaHashProvider extends AbstractHashProvider<HashParameters> {
 
     /**
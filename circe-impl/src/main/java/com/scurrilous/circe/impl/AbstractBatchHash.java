@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.nio.ByteBuffer;
+
+import com.scurrilous.circe.BatchHash;
+import com.scurrilous.circe.StatefulHash;
+
+/**
+ * Base implementation for batch hash functions. Batch operations are
+ * implemented by hashing each message in turn using a new instance of the
+ * {@linkplain #createStateful stateful} form of the hash function; subclasses
+ * may override the unchecked batch methods to process a batch more
+ * efficiently.
+ */
+public abstract class AbstractBatchHash implements BatchHash {
+
+    @Override
+    public boolean supportsUnsafe() {
+        return false;
+    }
+
+    @Override
+    public void calculateBatch(byte[] input, int[] offsets, int[] lengths, byte[] output,
+            int count) {
+        checkBatch(input.length, offsets, lengths, output, count);
+        calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    @Override
+    public void calculateBatch(byte[][] inputs, byte[] output, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException();
+        if (count > inputs.length || (long) count * length() > output.length)
+            throw new IndexOutOfBoundsException();
+        calculateBatchUnchecked(inputs, output, count);
+    }
+
+    @Override
+    public void calculateBatch(ByteBuffer input, int[] offsets, int[] lengths, byte[] output,
+            int count) {
+        checkBatch(input.limit(), offsets, lengths, output, count);
+        calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    private void checkBatch(int size, int[] offsets, int[] lengths, byte[] output, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException();
+        if (count > offsets.length || count > lengths.length ||
+                (long) count * length() > output.length)
+            throw new IndexOutOfBoundsException();
+        for (int i = 0; i < count; ++i) {
+            final int offset = offsets[i];
+            final int length = lengths[i];
+            if (length < 0)
+                throw new IllegalArgumentException();
+            if (offset < 0 || offset > size - length)
+                throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Calculates the hash of each of the given ranges of the given input
+     * array. The arguments have already been validated.
+     * 
+     * @param input the input array
+     * @param offsets the starting index of each message
+     * @param lengths the length of each message
+     * @param output the array receiving the hash output of each message
+     * @param count the number of messages
+     */
+    protected void calculateBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            byte[] output, int count) {
+        final StatefulHash stateful = createStateful();
+        final int length = length();
+        for (int i = 0; i < count; ++i) {
+            stateful.reset();
+            stateful.update(input, offsets[i], lengths[i]);
+            stateful.getBytes(output, i * length, length);
+        }
+    }
+
+    /**
+     * Calculates the hash of each of the given input arrays. The arguments
+     * have already been validated.
+     * 
+     * @param inputs the input arrays, one per message
+     * @param output the array receiving the hash output of each message
+     * @param count the number of messages
+     */
+    protected void calculateBatchUnchecked(byte[][] inputs, byte[] output, int count) {
+        final StatefulHash stateful = createStateful();
+        final int length = length();
+        for (int i = 0; i < count; ++i) {
+            stateful.reset();
+            stateful.update(inputs[i]);
+            stateful.getBytes(output, i * length, length);
+        }
+    }
+
+    /**
+     * Calculates the hash of each of the given ranges of the given input
+     * buffer. The arguments have already been validated.
+     * 
+     * @param input the input buffer
+     * @param offsets the absolute index of the start of each message
+     * @param lengths the length of each message
+     * @param output the array receiving the hash output of each message
+     * @param count the number of messages
+     */
+    protected void calculateBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            byte[] output, int count) {
+        final StatefulHash stateful = createStateful();
+        final ByteBuffer message = input.duplicate();
+        final int length = length();
+        for (int i = 0; i < count; ++i) {
+            message.limit(offsets[i] + lengths[i]);
+            message.position(offsets[i]);
+            stateful.reset();
+            stateful.update(message);
+            stateful.getBytes(output, i * length, length);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.EnumSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
+import com.scurrilous.circe.BatchHash;
 import com.scurrilous.circe.Hash;
 import com.scurrilous.circe.HashParameters;
 import com.scurrilous.circe.HashProvider;
@@ -39,6 +40,42 @@ import com.scurrilous.circe.StatelessLongHash;
  */
 public abstract class AbstractHashProvider<P extends HashParameters> implements HashProvider {
 
+    /**
+     * Cache key for a provider's hash functions. The cache is shared by all
+     * providers, and each provider creates its own implementations for the
+     * same parameters, so the key includes the provider class.
+     */
+    private static final class CacheKey implements HashParameters {
+
+        private final Class<?> provider;
+        private final HashParameters params;
+
+        CacheKey(Class<?> provider, HashParameters params) {
+            this.provider = provider;
+            this.params = params;
+        }
+
+        @Override
+        public String algorithm() {
+            return params.algorithm();
+        }
+
+        @Override
+        public int hashCode() {
+            return provider.hashCode() * 31 + params.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof CacheKey))
+                return false;
+            final CacheKey other = (CacheKey) obj;
+            return provider == other.provider && params.equals(other.params);
+        }
+    }
+
     private final Class<P> parametersClass;
 
     /**
@@ -102,12 +139,13 @@ public abstract class AbstractHashProvider<P extends HashParameters> implements
         if (HashCacheLoader.hasCache()) {
             final HashCache cache = HashCacheLoader.getCache();
             try {
-                return cache.get(params, required, new Callable<Hash>() {
-                    @Override
-                    public Hash call() throws Exception {
-                        return createCacheable(params, required);
-                    }
-                });
+                return cache.get(new CacheKey(getClass(), params), required,
+                        new Callable<Hash>() {
+                            @Override
+                            public Hash call() throws Exception {
+                                return createCacheable(params, required);
+                            }
+                        });
             } catch (ExecutionException e) {
                 final Throwable cause = e.getCause();
                 if (cause instanceof RuntimeException)
@@ -190,4 +228,16 @@ public abstract class AbstractHashProvider<P extends HashParameters> implements
             return (IncrementalLongHash) hash;
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public BatchHash getBatch(HashParameters params) {
+        final Hash hash = castAndGet(params, EnumSet.of(HashSupport.STATEFUL));
+        if (hash instanceof BatchHash)
+            return (BatchHash) hash;
+        if (hash instanceof StatefulHash)
+            return new StatefulBatchHash((StatefulHash) hash);
+        if (hash instanceof StatelessHash)
+            return new StatefulBatchHash(((StatelessHash) hash).createStateful());
+        throw new UnsupportedOperationException();
+    }
 }
@@ -17,13 +17,15 @@ package com.scurrilous.circe.impl;
 
 import java.nio.ByteBuffer;
 
-import com.scurrilous.circe.IncrementalIntHash;
+import com.scurrilous.circe.BatchIntHash;
 import com.scurrilous.circe.StatefulIntHash;
 
 /**
- * Base implementation for incremental stateless integer hash functions.
+ * Base implementation for incremental stateless integer hash functions. Batch
+ * operations are implemented by hashing each record in turn; subclasses may
+ * override the unchecked batch methods to process a batch more efficiently.
  */
-public abstract class AbstractIncrementalIntHash implements IncrementalIntHash {
+public abstract class AbstractIncrementalIntHash implements BatchIntHash {
 
     @Override
     public boolean supportsUnsafe() {
@@ -71,19 +73,38 @@ public abstract class AbstractIncrementalIntHash implements IncrementalIntHash {
 
     @Override
     public int resume(int current, ByteBuffer input) {
-        final byte[] array;
-        final int index;
         final int length = input.remaining();
-        if (input.hasArray()) {
-            array = input.array();
-            index = input.arrayOffset() + input.position();
-            input.position(input.limit());
-        } else {
-            array = new byte[length];
-            index = 0;
-            input.get(array);
-        }
-        return resumeUnchecked(current, array, index, length);
+        final int result;
+        if (input.hasArray())
+            result = resumeUnchecked(current, input.array(),
+                    input.arrayOffset() + input.position(), length);
+        else
+            result = resumeUnchecked(current, input, input.position(), length);
+        input.position(input.limit());
+        return result;
+    }
+
+    /**
+     * Evaluates this hash function as if the remaining contents of the given
+     * input buffers, in order, were appended to the previously hashed input.
+     * This is equivalent to calling {@link #resume(int, ByteBuffer)} for each
+     * buffer, but may be more efficient, such as by processing all of the
+     * buffers in a single native call. This method leaves the position of each
+     * buffer at its limit.
+     * 
+     * @param current the hash output for input hashed so far
+     * @param input the array of input buffers
+     * @param offset the index of the first buffer in the array
+     * @param count the number of buffers
+     * @return the output of the hash function for the concatenated input
+     * @throws IndexOutOfBoundsException if {@code offset} or {@code count} is
+     *             negative or {@code offset + count} is greater than the array
+     *             length
+     */
+    public int resume(int current, ByteBuffer[] input, int offset, int count) {
+        if (offset < 0 || count < 0 || offset > input.length - count)
+            throw new IndexOutOfBoundsException();
+        return resumeUnchecked(current, input, offset, count);
     }
 
     @Override
@@ -91,6 +112,68 @@ public abstract class AbstractIncrementalIntHash implements IncrementalIntHash {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void calculateBatch(byte[] input, int[] offsets, int[] lengths, int[] output,
+            int count) {
+        checkBatch(input.length, offsets, lengths, output, count);
+        calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    @Override
+    public void calculateBatch(byte[] input, int index, int stride, int[] output, int count) {
+        checkBatch(input.length, index, stride, output, count);
+        calculateBatchUnchecked(input, index, stride, output, count);
+    }
+
+    @Override
+    public void calculateBatch(ByteBuffer input, int[] offsets, int[] lengths, int[] output,
+            int count) {
+        checkBatch(input.limit(), offsets, lengths, output, count);
+        calculateBatchUnchecked(input, offsets, lengths, output, count);
+    }
+
+    @Override
+    public void calculateBatch(ByteBuffer input, int index, int stride, int[] output, int count) {
+        checkBatch(input.limit(), index, stride, output, count);
+        calculateBatchUnchecked(input, index, stride, output, count);
+    }
+
+    @Override
+    public int verifyBatch(byte[] input, int[] offsets, int[] lengths, int[] expected, int count) {
+        checkBatch(input.length, offsets, lengths, expected, count);
+        return verifyBatchUnchecked(input, offsets, lengths, expected, count);
+    }
+
+    @Override
+    public int verifyBatch(ByteBuffer input, int[] offsets, int[] lengths, int[] expected,
+            int count) {
+        checkBatch(input.limit(), offsets, lengths, expected, count);
+        return verifyBatchUnchecked(input, offsets, lengths, expected, count);
+    }
+
+    private static void checkBatch(int size, int[] offsets, int[] lengths, int[] output,
+            int count) {
+        if (count < 0)
+            throw new IllegalArgumentException();
+        if (count > offsets.length || count > lengths.length || count > output.length)
+            throw new IndexOutOfBoundsException();
+        for (int i = 0; i < count; ++i) {
+            final int offset = offsets[i];
+            final int length = lengths[i];
+            if (length < 0)
+                throw new IllegalArgumentException();
+            if (offset < 0 || offset > size - length)
+                throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private static void checkBatch(int size, int index, int stride, int[] output, int count) {
+        if (stride < 0 || count < 0)
+            throw new IllegalArgumentException();
+        if (count > output.length || index < 0 || index + (long) stride * count > size)
+            throw new IndexOutOfBoundsException();
+    }
+
     /**
      * The initial state of the hash function, which is the same as the output
      * value for an empty input sequence.
@@ -111,4 +194,166 @@ public abstract class AbstractIncrementalIntHash implements IncrementalIntHash {
      * @return the output of the hash function for the concatenated input
      */
     protected abstract int resumeUnchecked(int current, byte[] input, int index, int length);
+
+    /**
+     * Evaluates this hash function as if the given range of the given input
+     * buffer were appended to the previously hashed input. The range is
+     * specified using absolute indexes, and the position and limit of the
+     * buffer are neither used nor modified. This method is called for buffers
+     * without an accessible backing array, such as direct buffers. The default
+     * implementation copies the range into a temporary array; subclasses that
+     * can read the buffer in place should override it.
+     * 
+     * @param current the hash output for input hashed so far
+     * @param input the input buffer
+     * @param index the absolute index of the first input byte
+     * @param length the length of the input range
+     * @return the output of the hash function for the concatenated input
+     */
+    protected int resumeUnchecked(int current, ByteBuffer input, int index, int length) {
+        final byte[] array = new byte[length];
+        final ByteBuffer source = input.duplicate();
+        source.position(index);
+        source.get(array);
+        return resumeUnchecked(current, array, 0, length);
+    }
+
+    /**
+     * Evaluates this hash function as if the remaining contents of the given
+     * input buffers were appended to the previously hashed input, leaving the
+     * position of each buffer at its limit. The offset and count parameters
+     * have already been validated. The default implementation resumes the hash
+     * with each buffer in turn.
+     * 
+     * @param current the hash output for input hashed so far
+     * @param input the array of input buffers
+     * @param offset the index of the first buffer in the array
+     * @param count the number of buffers
+     * @return the output of the hash function for the concatenated input
+     */
+    protected int resumeUnchecked(int current, ByteBuffer[] input, int offset, int count) {
+        for (int i = offset; i < offset + count; ++i)
+            current = resume(current, input[i]);
+        return current;
+    }
+
+    /**
+     * Calculates the hash of each of the given ranges of the given input
+     * array. The arguments have already been validated.
+     * 
+     * @param input the input array
+     * @param offsets the starting index of each record
+     * @param lengths the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     */
+    protected void calculateBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            int[] output, int count) {
+        final int initial = initial();
+        for (int i = 0; i < count; ++i)
+            output[i] = resumeUnchecked(initial, input, offsets[i], lengths[i]);
+    }
+
+    /**
+     * Calculates the hash of each of the given number of consecutive
+     * fixed-length records in the given input array. The arguments have
+     * already been validated.
+     * 
+     * @param input the input array
+     * @param index the starting index of the first record
+     * @param stride the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     */
+    protected void calculateBatchUnchecked(byte[] input, int index, int stride, int[] output,
+            int count) {
+        final int initial = initial();
+        for (int i = 0; i < count; ++i, index += stride)
+            output[i] = resumeUnchecked(initial, input, index, stride);
+    }
+
+    /**
+     * Calculates the hash of each of the given ranges of the given input
+     * buffer. The arguments have already been validated.
+     * 
+     * @param input the input buffer
+     * @param offsets the absolute index of the start of each record
+     * @param lengths the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     */
+    protected void calculateBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            int[] output, int count) {
+        final int initial = initial();
+        for (int i = 0; i < count; ++i)
+            output[i] = resumeBufferUnchecked(initial, input, offsets[i], lengths[i]);
+    }
+
+    /**
+     * Calculates the hash of each of the given number of consecutive
+     * fixed-length records in the given input buffer. The arguments have
+     * already been validated.
+     * 
+     * @param input the input buffer
+     * @param index the absolute index of the start of the first record
+     * @param stride the length of each record
+     * @param output the array receiving the hash output of each record
+     * @param count the number of records
+     */
+    protected void calculateBatchUnchecked(ByteBuffer input, int index, int stride,
+            int[] output, int count) {
+        final int initial = initial();
+        for (int i = 0; i < count; ++i, index += stride)
+            output[i] = resumeBufferUnchecked(initial, input, index, stride);
+    }
+
+    /**
+     * Verifies the hash of each of the given ranges of the given input array
+     * against an expected value, stopping at the first mismatch. The arguments
+     * have already been validated.
+     * 
+     * @param input the input array
+     * @param offsets the starting index of each record
+     * @param lengths the length of each record
+     * @param expected the expected hash output of each record
+     * @param count the number of records
+     * @return the index of the first record whose hash does not match, or -1
+     *         if all records match
+     */
+    protected int verifyBatchUnchecked(byte[] input, int[] offsets, int[] lengths,
+            int[] expected, int count) {
+        final int initial = initial();
+        for (int i = 0; i < count; ++i)
+            if (resumeUnchecked(initial, input, offsets[i], lengths[i]) != expected[i])
+                return i;
+        return -1;
+    }
+
+    /**
+     * Verifies the hash of each of the given ranges of the given input buffer
+     * against an expected value, stopping at the first mismatch. The arguments
+     * have already been validated.
+     * 
+     * @param input the input buffer
+     * @param offsets the absolute index of the start of each record
+     * @param lengths the length of each record
+     * @param expected the expected hash output of each record
+     * @param count the number of records
+     * @return the index of the first record whose hash does not match, or -1
+     *         if all records match
+     */
+    protected int verifyBatchUnchecked(ByteBuffer input, int[] offsets, int[] lengths,
+            int[] expected, int count) {
+        final int initial = initial();
+        for (int i = 0; i < count; ++i)
+            if (resumeBufferUnchecked(initial, input, offsets[i], lengths[i]) != expected[i])
+                return i;
+        return -1;
+    }
+
+    private int resumeBufferUnchecked(int current, ByteBuffer input, int index, int length) {
+        if (input.hasArray())
+            return resumeUnchecked(current, input.array(), input.arrayOffset() + index, length);
+        return resumeUnchecked(current, input, index, length);
+    }
 }
@@ -71,19 +71,38 @@ public abstract class AbstractIncrementalLongHash implements IncrementalLongHash
 
     @Override
     public long resume(long current, ByteBuffer input) {
-        final byte[] array;
-        final int index;
         final int length = input.remaining();
-        if (input.hasArray()) {
-            array = input.array();
-            index = input.arrayOffset() + input.position();
-            input.position(input.limit());
-        } else {
-            array = new byte[length];
-            index = 0;
-            input.get(array);
-        }
-        return resumeUnchecked(current, array, index, length);
+        final long result;
+        if (input.hasArray())
+            result = resumeUnchecked(current, input.array(),
+                    input.arrayOffset() + input.position(), length);
+        else
+            result = resumeUnchecked(current, input, input.position(), length);
+        input.position(input.limit());
+        return result;
+    }
+
+    /**
+     * Evaluates this hash function as if the remaining contents of the given
+     * input buffers, in order, were appended to the previously hashed input.
+     * This is equivalent to calling {@link #resume(long, ByteBuffer)} for each
+     * buffer, but may be more efficient, such as by processing all of the
+     * buffers in a single native call. This method leaves the position of each
+     * buffer at its limit.
+     * 
+     * @param current the hash output for input hashed so far
+     * @param input the array of input buffers
+     * @param offset the index of the first buffer in the array
+     * @param count the number of buffers
+     * @return the output of the hash function for the concatenated input
+     * @throws IndexOutOfBoundsException if {@code offset} or {@code count} is
+     *             negative or {@code offset + count} is greater than the array
+     *             length
+     */
+    public long resume(long current, ByteBuffer[] input, int offset, int count) {
+        if (offset < 0 || count < 0 || offset > input.length - count)
+            throw new IndexOutOfBoundsException();
+        return resumeUnchecked(current, input, offset, count);
     }
 
     @Override
@@ -111,4 +130,46 @@ public abstract class AbstractIncrementalLongHash implements IncrementalLongHash
      * @return the output of the hash function for the concatenated input
      */
     protected abstract long resumeUnchecked(long current, byte[] input, int index, int length);
+
+    /**
+     * Evaluates this hash function as if the given range of the given input
+     * buffer were appended to the previously hashed input. The range is
+     * specified using absolute indexes, and the position and limit of the
+     * buffer are neither used nor modified. This method is called for buffers
+     * without an accessible backing array, such as direct buffers. The default
+     * implementation copies the range into a temporary array; subclasses that
+     * can read the buffer in place should override it.
+     * 
+     * @param current the hash output for input hashed so far
+     * @param input the input buffer
+     * @param index the absolute index of the first input byte
+     * @param length the length of the input range
+     * @return the output of the hash function for the concatenated input
+     */
+    protected long resumeUnchecked(long current, ByteBuffer input, int index, int length) {
+        final byte[] array = new byte[length];
+        final ByteBuffer source = input.duplicate();
+        source.position(index);
+        source.get(array);
+        return resumeUnchecked(current, array, 0, length);
+    }
+
+    /**
+     * Evaluates this hash function as if the remaining contents of the given
+     * input buffers were appended to the previously hashed input, leaving the
+     * position of each buffer at its limit. The offset and count parameters
+     * have already been validated. The default implementation resumes the hash
+     * with each buffer in turn.
+     * 
+     * @param current the hash output for input hashed so far
+     * @param input the array of input buffers
+     * @param offset the index of the first buffer in the array
+     * @param count the number of buffers
+     * @return the output of the hash function for the concatenated input
+     */
+    protected long resumeUnchecked(long current, ByteBuffer[] input, int offset, int count) {
+        for (int i = offset; i < offset + count; ++i)
+            current = resume(current, input[i]);
+        return current;
+    }
 }
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import com.scurrilous.circe.Hash;
+import com.scurrilous.circe.HashParameters;
+import com.scurrilous.circe.HashSupport;
+
+/**
+ * Dependency-free implementation of {@link HashCache}, used by
+ * {@link HashCacheLoader} when the registered cache implementation cannot be
+ * loaded. It can also be registered as the cache service directly.
+ * <p>
+ * Hash functions are held by strong references in a {@link ConcurrentHashMap}
+ * keyed by the hash parameters, so lookups are lock-free and allocate nothing.
+ * Each parameters entry holds an immutable array of the support flags and
+ * hash functions loaded for it, which is replaced when a function is added. A
+ * cached function satisfies a request if it was loaded with at least the
+ * requested support flags.
+ * <p>
+ * By default, the cache is unbounded, which suits the small number of distinct
+ * hash functions used by most applications. The system property
+ * {@code com.scurrilous.circe.impl.ConcurrentHashCache.maximumSize} limits the
+ * number of distinct parameters cached, evicting an arbitrary entry when the
+ * limit is exceeded.
+ */
+public final class ConcurrentHashCache implements HashCache {
+
+    private static final class Entry {
+
+        final EnumSet<HashSupport> support;
+        final Hash hash;
+
+        Entry(EnumSet<HashSupport> support, Hash hash) {
+            this.support = support;
+            this.hash = hash;
+        }
+    }
+
+    private final ConcurrentMap<HashParameters, Entry[]> map = new ConcurrentHashMap<>();
+    private final int maximumSize;
+
+    /**
+     * Constructs a new {@link ConcurrentHashCache} with the maximum size given
+     * by the system property, if any.
+     */
+    public ConcurrentHashCache() {
+        this(getMaximumSize());
+    }
+
+    /**
+     * Constructs a new {@link ConcurrentHashCache} with the given maximum
+     * number of distinct hash parameters.
+     * 
+     * @param maximumSize the maximum number of parameters cached, or zero for
+     *            an unbounded cache
+     */
+    public ConcurrentHashCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    private static int getMaximumSize() {
+        try {
+            return Integer.getInteger(ConcurrentHashCache.class.getName() + ".maximumSize", 0);
+        } catch (final SecurityException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public Hash get(HashParameters params, EnumSet<HashSupport> required, Callable<Hash> loader)
+            throws ExecutionException {
+        Hash loaded = null;
+        for (;;) {
+            final Entry[] entries = map.get(params);
+            final Hash cached = find(entries, required);
+            if (cached != null)
+                return cached;
+
+            if (loaded == null) {
+                try {
+                    loaded = loader.call();
+                } catch (final Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+
+            final Entry entry = new Entry(EnumSet.copyOf(required), loaded);
+            if (entries == null) {
+                if (map.putIfAbsent(params, new Entry[] { entry }) == null) {
+                    evict();
+                    return loaded;
+                }
+            } else {
+                final Entry[] updated = Arrays.copyOf(entries, entries.length + 1);
+                updated[entries.length] = entry;
+                if (map.replace(params, entries, updated))
+                    return loaded;
+            }
+            // another thread changed the entry; retry, preferring its hash
+        }
+    }
+
+    private static Hash find(Entry[] entries, EnumSet<HashSupport> required) {
+        if (entries != null) {
+            for (final Entry entry : entries)
+                if (entry.support.containsAll(required))
+                    return entry.hash;
+        }
+        return null;
+    }
+
+    private void evict() {
+        if (maximumSize > 0) {
+            final Iterator<HashParameters> iter = map.keySet().iterator();
+            while (map.size() > maximumSize && iter.hasNext()) {
+                iter.next();
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct hash parameters cached.
+     * 
+     * @return the number of cached parameters
+     */
+    public int size() {
+        return map.size();
+    }
+}
@@ -16,19 +16,27 @@
 package com.scurrilous.circe.impl;
 
 import java.util.Iterator;
+import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 
 /**
  * Provides access to a singleton hash function cache, if an implementation is
- * available.
+ * registered as a service, such as by {@code circe-cache}. If the registered
+ * cache cannot be loaded, such as when it requires Guava and Guava is absent,
+ * the built-in {@link ConcurrentHashCache} is used instead.
  */
 public final class HashCacheLoader {
 
-    private static final HashCache HASH_CACHE;
+    private static final HashCache HASH_CACHE = loadCache();
 
-    static {
-        final Iterator<HashCache> iterator = ServiceLoader.load(HashCache.class).iterator();
-        HASH_CACHE = iterator.hasNext() ? iterator.next() : null;
+    private static HashCache loadCache() {
+        try {
+            final Iterator<HashCache> iterator = ServiceLoader.load(HashCache.class).iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        } catch (final ServiceConfigurationError | LinkageError e) {
+            // registered cache is unusable, such as when Guava is absent
+            return new ConcurrentHashCache();
+        }
     }
 
     /**
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+/**
+ * Service used to read native memory at arbitrary addresses, such as for
+ * hashing input given by a memory address. Addresses are not checked in any
+ * way.
+ */
+public interface NativeMemoryAccess {
+
+    /**
+     * Returns the byte at the given address.
+     * 
+     * @param address the native memory address
+     * @return the byte at the given address
+     */
+    byte getByte(long address);
+
+    /**
+     * Returns the {@code long} in native byte order at the given address,
+     * which need not be aligned.
+     * 
+     * @param address the native memory address
+     * @return the 8 bytes at the given address as a long
+     */
+    long getLong(long address);
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Provides access to a singleton {@link NativeMemoryAccess} implementation,
+ * if one is available, such as by {@code circe-direct-access}.
+ */
+public final class NativeMemoryAccessLoader {
+
+    private static final NativeMemoryAccess INSTANCE = loadInstance();
+
+    private static NativeMemoryAccess loadInstance() {
+        try {
+            final Iterator<NativeMemoryAccess> iterator = ServiceLoader.load(
+                    NativeMemoryAccess.class).iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        } catch (final ServiceConfigurationError | LinkageError e) {
+            // registered implementation is unusable on this JVM
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether native memory access is supported.
+     * 
+     * @return true if the other methods of this class may be called
+     */
+    public static boolean isSupported() {
+        return INSTANCE != null;
+    }
+
+    /**
+     * Returns the byte at the given address.
+     * 
+     * @param address the native memory address
+     * @return the byte at the given address
+     * @throws NullPointerException if native memory access is not supported
+     */
+    public static byte getByte(long address) {
+        return INSTANCE.getByte(address);
+    }
+
+    /**
+     * Returns the {@code long} in native byte order at the given address,
+     * which need not be aligned.
+     * 
+     * @param address the native memory address
+     * @return the 8 bytes at the given address as a long
+     * @throws NullPointerException if native memory access is not supported
+     */
+    public static long getLong(long address) {
+        return INSTANCE.getLong(address);
+    }
+
+    private NativeMemoryAccessLoader() {
+    }
+}
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.scurrilous.circe.CombinableLongHash;
+
+/**
+ * Evaluates an incremental stateless long hash function over large inputs
+ * in parallel. The input is divided into slices, which are hashed
+ * independently as tasks in a {@link ForkJoinPool}, and the slice outputs are
+ * then merged using {@link CombinableLongHash#combine combine}. The result is
+ * identical to that of the underlying hash function. Inputs shorter than two
+ * slices are hashed directly on the calling thread.
+ * <p>
+ * Byte buffers, including {@linkplain java.nio.MappedByteBuffer memory-mapped}
+ * buffers, are divided into slices using {@link ByteBuffer#duplicate()}, so
+ * each slice is passed to the underlying hash function without copying when it
+ * supports direct buffers. Arrays of buffers that are all too short to slice
+ * are passed to the underlying hash function in a single call.
+ */
+public final class ParallelIncrementalLongHash extends AbstractIncrementalLongHash implements
+        CombinableLongHash {
+
+    /**
+     * The default number of bytes in each slice of input.
+     */
+    public static final int DEFAULT_SLICE_LENGTH = 256 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final class DefaultPool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+    private final CombinableLongHash hash;
+    private final ForkJoinPool pool;
+    private final int sliceLength;
+    private final long initial;
+
+    /**
+     * Constructs a new {@link ParallelIncrementalLongHash} that delegates to the
+     * given hash function using a shared pool and the default slice length.
+     * 
+     * @param hash the underlying hash function
+     */
+    public ParallelIncrementalLongHash(CombinableLongHash hash) {
+        this(hash, DefaultPool.INSTANCE, DEFAULT_SLICE_LENGTH);
+    }
+
+    /**
+     * Constructs a new {@link ParallelIncrementalLongHash} that delegates to the
+     * given hash function using the given pool and slice length.
+     * 
+     * @param hash the underlying hash function
+     * @param pool the pool used to execute slice tasks
+     * @param sliceLength the number of bytes in each slice of input
+     * @throws IllegalArgumentException if the slice length is not positive
+     */
+    public ParallelIncrementalLongHash(CombinableLongHash hash, ForkJoinPool pool,
+            int sliceLength) {
+        if (sliceLength <= 0)
+            throw new IllegalArgumentException();
+        this.hash = hash;
+        this.pool = pool;
+        this.sliceLength = sliceLength;
+        initial = hash.calculate(EMPTY);
+    }
+
+    @Override
+    public String algorithm() {
+        return hash.algorithm();
+    }
+
+    @Override
+    public int length() {
+        return hash.length();
+    }
+
+    @Override
+    public boolean supportsUnsafe() {
+        return hash.supportsUnsafe();
+    }
+
+    @Override
+    public long resume(long current, ByteBuffer input) {
+        if (input.hasArray())
+            return super.resume(current, input);
+        if (input.remaining() < 2L * sliceLength)
+            return hash.resume(current, input);
+        final int position = input.position();
+        final int length = input.remaining();
+        final long result = pool.invoke(new BufferTask(input, position, length));
+        input.position(input.limit());
+        return hash.combine(current, result, length);
+    }
+
+    @Override
+    public long resume(long current, long address, long length) {
+        if (length < 2L * sliceLength)
+            return hash.resume(current, address, length);
+        if (!hash.supportsUnsafe())
+            throw new UnsupportedOperationException();
+        return hash.combine(current, pool.invoke(new AddressTask(address, length)), length);
+    }
+
+    @Override
+    public long combine(long current, long next, long nextLength) {
+        return hash.combine(current, next, nextLength);
+    }
+
+    @Override
+    protected long initial() {
+        return initial;
+    }
+
+    @Override
+    protected long resumeUnchecked(long current, byte[] input, int index, int length) {
+        if (length < 2L * sliceLength)
+            return hash.resume(current, input, index, length);
+        return hash.combine(current, pool.invoke(new ArrayTask(input, index, length)), length);
+    }
+
+    @Override
+    protected long resumeUnchecked(long current, ByteBuffer[] input, int offset, int count) {
+        if (!(hash instanceof AbstractIncrementalLongHash))
+            return super.resumeUnchecked(current, input, offset, count);
+        // resume one at a time if any buffer is large enough to be sliced
+        for (int i = offset; i < offset + count; ++i)
+            if (input[i].remaining() >= 2L * sliceLength)
+                return super.resumeUnchecked(current, input, offset, count);
+        return ((AbstractIncrementalLongHash) hash).resume(current, input, offset, count);
+    }
+
+    private abstract class SliceTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        final long offset;
+        final long length;
+
+        SliceTask(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        protected Long compute() {
+            if (length < 2L * sliceLength)
+                return calculate();
+            // split on a slice boundary near the middle
+            final long half = Math.max(length / sliceLength / 2, 1) * sliceLength;
+            final SliceTask left = create(offset, half);
+            final SliceTask right = create(offset + half, length - half);
+            left.fork();
+            final long rightResult = right.compute();
+            final long leftResult = left.join();
+            return hash.combine(leftResult, rightResult, length - half);
+        }
+
+        abstract SliceTask create(long offset, long length);
+
+        abstract long calculate();
+    }
+
+    private final class ArrayTask extends SliceTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] input;
+
+        ArrayTask(byte[] input, long offset, long length) {
+            super(offset, length);
+            this.input = input;
+        }
+
+        @Override
+        SliceTask create(long offset, long length) {
+            return new ArrayTask(input, offset, length);
+        }
+
+        @Override
+        long calculate() {
+            return hash.calculate(input, (int) offset, (int) length);
+        }
+    }
+
+    private final class BufferTask extends SliceTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer input;
+
+        BufferTask(ByteBuffer input, long offset, long length) {
+            super(offset, length);
+            this.input = input;
+        }
+
+        @Override
+        SliceTask create(long offset, long length) {
+            return new BufferTask(input, offset, length);
+        }
+
+        @Override
+        long calculate() {
+            final ByteBuffer slice = input.duplicate();
+            slice.limit((int) (offset + length));
+            slice.position((int) offset);
+            return hash.calculate(slice);
+        }
+    }
+
+    private final class AddressTask extends SliceTask {
+
+        private static final long serialVersionUID = 1L;
+
+        AddressTask(long address, long length) {
+            super(address, length);
+        }
+
+        @Override
+        SliceTask create(long offset, long length) {
+            return new AddressTask(offset, length);
+        }
+
+        @Override
+        long calculate() {
+            return hash.calculate(offset, length);
+        }
+    }
+}
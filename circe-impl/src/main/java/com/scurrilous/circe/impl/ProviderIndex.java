@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.scurrilous.circe.HashParameters;
+
+/**
+ * Describes the hash parameters supported by a {@link com.scurrilous.circe.HashProvider
+ * HashProvider}, so that {@link com.scurrilous.circe.HashProviders HashProviders} can
+ * skip instantiating providers that cannot support a request. When a provider
+ * module is compiled, the annotation processor in the
+ * {@code circe-index-processor} artifact records this information for each
+ * provider listed in its
+ * {@code META-INF/services/com.scurrilous.circe.HashProvider} file.
+ * Providers without this annotation are instantiated for every request.
+ * <p>
+ * The description only needs to be conservative: a provider may still report
+ * no support for parameters it matches.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ProviderIndex {
+
+    /**
+     * Returns the hash parameter types supported by the provider. Parameters
+     * that are instances of any of these types match.
+     * 
+     * @return the supported parameter types
+     */
+    Class<? extends HashParameters>[] parameters();
+
+    /**
+     * Returns the names of the algorithms supported by the provider, as
+     * returned by {@link HashParameters#algorithm()}. If empty, parameters of
+     * the supported types match regardless of their algorithm name.
+     * 
+     * @return the supported algorithm names, or an empty array for all
+     */
+    String[] algorithms() default {};
+}
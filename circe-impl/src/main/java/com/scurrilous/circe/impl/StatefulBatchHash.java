@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import com.scurrilous.circe.StatefulHash;
+
+/**
+ * Batch hash function that hashes each message in turn using a new instance of
+ * a given stateful hash function. This adapter allows any hash function to be
+ * used where a {@link com.scurrilous.circe.BatchHash BatchHash} is required.
+ */
+public final class StatefulBatchHash extends AbstractBatchHash {
+
+    private final StatefulHash prototype;
+
+    /**
+     * Constructs a new {@link StatefulBatchHash} that creates instances of the
+     * given stateful hash function.
+     * 
+     * @param prototype the stateful hash function used to create the instances
+     *            that hash each batch
+     */
+    public StatefulBatchHash(StatefulHash prototype) {
+        this.prototype = prototype;
+    }
+
+    @Override
+    public String algorithm() {
+        return prototype.algorithm();
+    }
+
+    @Override
+    public int length() {
+        return prototype.length();
+    }
+
+    @Override
+    public StatefulHash createStateful() {
+        return prototype.createNew();
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scurrilous.circe.HashParameters;
+import com.scurrilous.circe.HashProvider;
+import com.scurrilous.circe.Hashes;
+import com.scurrilous.circe.StatefulHash;
+
+/**
+ * Thread-local pool of {@link StatefulHash} instances, keyed by
+ * {@link HashParameters}. Applications that compute a hash per request can
+ * {@linkplain #acquire acquire} an instance and {@linkplain #release release}
+ * it when done, rather than allocating and initializing a new instance each
+ * time; for some hash functions, such as those based on
+ * {@link java.security.MessageDigest}, initialization includes a provider
+ * lookup that is much more costly than the hashing itself.
+ * <p>
+ * Each thread keeps its own idle instances, so acquiring and releasing do not
+ * synchronize with other threads. Each thread keeps at most a fixed number of
+ * idle instances for each of at most 64 distinct parameters; instances
+ * released beyond those limits are discarded. Because idle instances are
+ * held by each thread for the lifetime of the pool, pools should be
+ * long-lived, such as in a static field, rather than created per task.
+ */
+public final class StatefulHashPool {
+
+    /**
+     * The default maximum number of idle instances each thread keeps for each
+     * set of parameters.
+     */
+    public static final int DEFAULT_MAX_IDLE = 4;
+
+    private static final int MAX_PARAMETERS = 64;
+
+    private final HashProvider provider;
+    private final int maxIdle;
+    private final ConcurrentMap<HashParameters, StatefulHash> prototypes =
+            new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<HashParameters, Idle>> idle =
+            new ThreadLocal<Map<HashParameters, Idle>>() {
+                @Override
+                protected Map<HashParameters, Idle> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    /**
+     * Constructs a pool that obtains hash functions from the best provider for
+     * their parameters, as given by {@link Hashes#createStateful}, and keeps
+     * up to {@link #DEFAULT_MAX_IDLE} idle instances per thread for each set
+     * of parameters.
+     */
+    public StatefulHashPool() {
+        this(null, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Constructs a pool that obtains hash functions from the given provider.
+     * 
+     * @param provider the provider of the pooled hash functions, or null to
+     *            use the best provider for their parameters
+     * @param maxIdle the maximum number of idle instances each thread keeps
+     *            for each set of parameters
+     * @throws IllegalArgumentException if {@code maxIdle} is negative
+     */
+    public StatefulHashPool(HashProvider provider, int maxIdle) {
+        if (maxIdle < 0)
+            throw new IllegalArgumentException();
+        this.provider = provider;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns a reset instance of the hash function with the given
+     * parameters, reusing an idle instance released by the current thread if
+     * one is available.
+     * 
+     * @param params the hash algorithm parameters
+     * @return a stateful hash function in its initial state
+     * @throws UnsupportedOperationException if the provider cannot support
+     *             the given parameters
+     */
+    public StatefulHash acquire(HashParameters params) {
+        final Idle instances = idle.get().get(params);
+        if (instances != null && instances.count > 0) {
+            final StatefulHash hash = instances.hashes[--instances.count];
+            instances.hashes[instances.count] = null;
+            return hash;
+        }
+        StatefulHash prototype = prototypes.get(params);
+        if (prototype == null) {
+            prototype = provider != null ? provider.createStateful(params) : Hashes
+                    .createStateful(params);
+            if (prototypes.size() < MAX_PARAMETERS) {
+                final StatefulHash existing = prototypes.putIfAbsent(params, prototype);
+                if (existing != null)
+                    prototype = existing;
+            }
+        }
+        return prototype.createNew();
+    }
+
+    /**
+     * Resets the given hash function and returns it to the pool of the
+     * current thread. The hash function must have been acquired from this
+     * pool with the same parameters and must not be used after it is
+     * released.
+     * 
+     * @param params the parameters with which the hash function was acquired
+     * @param hash the hash function to release
+     */
+    public void release(HashParameters params, StatefulHash hash) {
+        hash.reset();
+        if (maxIdle == 0)
+            return;
+        final Map<HashParameters, Idle> map = idle.get();
+        Idle instances = map.get(params);
+        if (instances == null) {
+            if (map.size() >= MAX_PARAMETERS)
+                return;
+            instances = new Idle(maxIdle);
+            map.put(params, instances);
+        }
+        if (instances.count < instances.hashes.length)
+            instances.hashes[instances.count++] = hash;
+    }
+
+    private static final class Idle {
+
+        final StatefulHash[] hashes;
+        int count;
+
+        Idle(int maxIdle) {
+            hashes = new StatefulHash[maxIdle];
+        }
+    }
+}
@@ -131,6 +131,20 @@ public class AbstractIncrementalIntHashTest {
         assertEquals(input.limit(), input.position());
     }
 
+    @Test
+    public void testResumeIntDirectByteBuffer() {
+        final ByteBuffer input = ByteBuffer.allocateDirect(20);
+        input.position(5);
+        input.limit(15);
+        new Expectations(hash) {
+            {
+                hash.resumeUnchecked(42, input, 5, 10);
+            }
+        };
+        hash.resume(42, input);
+        assertEquals(input.limit(), input.position());
+    }
+
     @Test
     public void testResumeIntReadOnlyByteBuffer() {
         final ByteBuffer input = ByteBuffer.allocate(20).asReadOnlyBuffer();
@@ -144,4 +158,132 @@ public class AbstractIncrementalIntHashTest {
         hash.resume(42, input);
         assertEquals(input.limit(), input.position());
     }
+
+    @Test
+    public void testResumeIntByteBufferArray() {
+        final ByteBuffer first = ByteBuffer.allocateDirect(4);
+        final ByteBuffer second = ByteBuffer.allocateDirect(5);
+        second.position(2);
+        final ByteBuffer[] input = { null, first, second };
+        new Expectations(hash) {
+            {
+                hash.resumeUnchecked(42, first, 0, 4);
+                result = 7;
+                hash.resumeUnchecked(7, second, 2, 3);
+                result = 9;
+            }
+        };
+        assertEquals(9, hash.resume(42, input, 1, 2));
+        assertEquals(first.limit(), first.position());
+        assertEquals(second.limit(), second.position());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testResumeIntByteBufferArrayOutOfBounds() {
+        new Expectations(hash) {
+            {
+                hash.initial();
+                minTimes = 0;
+            }
+        };
+        hash.resume(42, new ByteBuffer[2], 1, 2);
+    }
+
+    @Test
+    public void testCalculateBatchByteArray() {
+        final byte[] input = new byte[10];
+        final int[] output = new int[2];
+        new Expectations(hash) {
+            {
+                hash.initial();
+                result = 42;
+                hash.resumeUnchecked(42, input, 1, 3);
+                result = 7;
+                hash.resumeUnchecked(42, input, 6, 4);
+                result = 8;
+            }
+        };
+        hash.calculateBatch(input, new int[] { 1, 6 }, new int[] { 3, 4 }, output, 2);
+        assertArrayEquals(new int[] { 7, 8 }, output);
+    }
+
+    @Test
+    public void testCalculateBatchByteArrayStrided() {
+        final byte[] input = new byte[10];
+        final int[] output = new int[3];
+        new Expectations(hash) {
+            {
+                hash.initial();
+                result = 42;
+                hash.resumeUnchecked(42, input, 1, 3);
+                result = 7;
+                hash.resumeUnchecked(42, input, 4, 3);
+                result = 8;
+                hash.resumeUnchecked(42, input, 7, 3);
+                result = 9;
+            }
+        };
+        hash.calculateBatch(input, 1, 3, output, 3);
+        assertArrayEquals(new int[] { 7, 8, 9 }, output);
+    }
+
+    @Test
+    public void testCalculateBatchDirectByteBuffer() {
+        final ByteBuffer input = ByteBuffer.allocateDirect(20);
+        input.position(5);
+        input.limit(15);
+        final int[] output = new int[2];
+        new Expectations(hash) {
+            {
+                hash.initial();
+                result = 42;
+                hash.resumeUnchecked(42, input, 5, 5);
+                result = 7;
+                hash.resumeUnchecked(42, input, 10, 5);
+                result = 8;
+            }
+        };
+        hash.calculateBatch(input, 5, 5, output, 2);
+        assertArrayEquals(new int[] { 7, 8 }, output);
+        assertEquals(5, input.position());
+    }
+
+    @Test
+    public void testVerifyBatchByteBuffer() {
+        final ByteBuffer input = ByteBuffer.allocate(20);
+        new Expectations(hash) {
+            {
+                hash.initial();
+                result = 42;
+                hash.resumeUnchecked(42, input.array(), input.arrayOffset() + 2, 3);
+                result = 7;
+                hash.resumeUnchecked(42, input.array(), input.arrayOffset() + 9, 1);
+                result = 8;
+            }
+        };
+        assertEquals(1, hash.verifyBatch(input, new int[] { 2, 9, 0 }, new int[] { 3, 1, 0 },
+                new int[] { 7, 9, 0 }, 3));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCalculateBatchOutOfBounds() {
+        new Expectations(hash) {
+            {
+                hash.initial();
+                minTimes = 0;
+            }
+        };
+        hash.calculateBatch(new byte[10], new int[] { 0, 8 }, new int[] { 3, 3 }, new int[2], 2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCalculateBatchStridedOutOfBounds() {
+        new Expectations(hash) {
+            {
+                hash.initial();
+                minTimes = 0;
+            }
+        };
+        hash.calculateBatch(ByteBuffer.allocate(10), 1, 3, new int[3], 4);
+    }
 }
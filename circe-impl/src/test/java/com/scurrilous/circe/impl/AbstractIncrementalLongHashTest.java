@@ -131,6 +131,20 @@ public class AbstractIncrementalLongHashTest {
         assertEquals(input.limit(), input.position());
     }
 
+    @Test
+    public void testResumeLongDirectByteBuffer() {
+        final ByteBuffer input = ByteBuffer.allocateDirect(20);
+        input.position(5);
+        input.limit(15);
+        new Expectations(hash) {
+            {
+                hash.resumeUnchecked(0x4200000000L, input, 5, 10);
+            }
+        };
+        hash.resume(0x4200000000L, input);
+        assertEquals(input.limit(), input.position());
+    }
+
     @Test
     public void testResumeLongReadOnlyByteBuffer() {
         final ByteBuffer input = ByteBuffer.allocate(20).asReadOnlyBuffer();
@@ -144,4 +158,34 @@ public class AbstractIncrementalLongHashTest {
         hash.resume(0x4200000000L, input);
         assertEquals(input.limit(), input.position());
     }
+
+    @Test
+    public void testResumeLongByteBufferArray() {
+        final ByteBuffer first = ByteBuffer.allocateDirect(4);
+        final ByteBuffer second = ByteBuffer.allocateDirect(5);
+        second.position(2);
+        final ByteBuffer[] input = { null, first, second };
+        new Expectations(hash) {
+            {
+                hash.resumeUnchecked(42L, first, 0, 4);
+                result = 7L;
+                hash.resumeUnchecked(7L, second, 2, 3);
+                result = 9L;
+            }
+        };
+        assertEquals(9L, hash.resume(42L, input, 1, 2));
+        assertEquals(first.limit(), first.position());
+        assertEquals(second.limit(), second.position());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testResumeLongByteBufferArrayOutOfBounds() {
+        new Expectations(hash) {
+            {
+                hash.initial();
+                minTimes = 0;
+            }
+        };
+        hash.resume(42L, new ByteBuffer[2], 1, 2);
+    }
 }
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import static com.scurrilous.circe.HashSupport.INT_SIZED;
+import static com.scurrilous.circe.HashSupport.NATIVE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.scurrilous.circe.Hash;
+import com.scurrilous.circe.HashParameters;
+
+@SuppressWarnings("javadoc")
+public class ConcurrentHashCacheTest {
+
+    private static class TestParams implements HashParameters {
+
+        @Override
+        public String algorithm() {
+            return null;
+        }
+    }
+
+    private static class TestHash implements Hash {
+
+        @Override
+        public String algorithm() {
+            return null;
+        }
+
+        @Override
+        public int length() {
+            return 0;
+        }
+
+        @Override
+        public boolean supportsUnsafe() {
+            return false;
+        }
+    }
+
+    private class HashLoader implements Callable<Hash> {
+
+        private final Hash loadValue;
+
+        protected HashLoader(Hash loadValue) {
+            this.loadValue = loadValue;
+        }
+
+        @Override
+        public Hash call() throws Exception {
+            return loadValue;
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        final ConcurrentHashCache c = new ConcurrentHashCache();
+        final HashParameters p1 = new TestParams();
+        final Hash h1 = new TestHash();
+        assertEquals(h1, c.get(p1, EnumSet.of(INT_SIZED), new HashLoader(h1)));
+        assertEquals(h1, c.get(p1, EnumSet.of(INT_SIZED), new HashLoader(new TestHash())));
+        final Hash h1n = new TestHash();
+        assertEquals(h1n, c.get(p1, EnumSet.of(INT_SIZED, NATIVE), new HashLoader(h1n)));
+        assertEquals(h1n, c.get(p1, EnumSet.of(NATIVE), new HashLoader(new TestHash())));
+        final HashParameters p2 = new TestParams();
+        final Hash h2 = new TestHash();
+        assertEquals(h2, c.get(p2, EnumSet.of(INT_SIZED), new HashLoader(h2)));
+        assertEquals(h2, c.get(p2, EnumSet.of(INT_SIZED), new HashLoader(new TestHash())));
+        assertEquals(2, c.size());
+    }
+
+    @Test
+    public void testMaximumSize() throws Exception {
+        final ConcurrentHashCache c = new ConcurrentHashCache(2);
+        for (int i = 0; i < 10; ++i)
+            c.get(new TestParams(), EnumSet.of(INT_SIZED), new HashLoader(new TestHash()));
+        assertEquals(2, c.size());
+    }
+
+    @Test
+    public void testLoaderException() throws Exception {
+        final ConcurrentHashCache c = new ConcurrentHashCache();
+        final HashParameters p = new TestParams();
+        final IOException cause = new IOException();
+        try {
+            c.get(p, EnumSet.of(INT_SIZED), new Callable<Hash>() {
+                @Override
+                public Hash call() throws Exception {
+                    throw cause;
+                }
+            });
+            fail();
+        } catch (final ExecutionException e) {
+            assertSame(cause, e.getCause());
+        }
+        final Hash h = new TestHash();
+        assertEquals(h, c.get(p, EnumSet.of(INT_SIZED), new HashLoader(h)));
+    }
+
+    @Test
+    public void testLoader() {
+        // no cache is registered in this module
+        assertFalse(HashCacheLoader.hasCache());
+    }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.impl;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import mockit.Injectable;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+
+import org.junit.Test;
+
+import com.scurrilous.circe.HashParameters;
+import com.scurrilous.circe.HashProvider;
+import com.scurrilous.circe.StatefulHash;
+
+@SuppressWarnings("javadoc")
+public class StatefulHashPoolTest {
+
+    @Injectable
+    private HashProvider provider;
+
+    @Injectable
+    private HashParameters params;
+
+    @Injectable
+    private StatefulHash prototype;
+
+    @Injectable
+    private StatefulHash first;
+
+    @Injectable
+    private StatefulHash second;
+
+    @Injectable
+    private StatefulHash third;
+
+    private void expectCreate() {
+        new NonStrictExpectations() {
+            {
+                provider.createStateful(params);
+                result = prototype;
+                prototype.createNew();
+                returns(first, second, third);
+            }
+        };
+    }
+
+    @Test
+    public void testReuse() {
+        expectCreate();
+        final StatefulHashPool pool = new StatefulHashPool(provider, 2);
+        final StatefulHash hash = pool.acquire(params);
+        assertSame(first, hash);
+        pool.release(params, hash);
+        assertSame(first, pool.acquire(params));
+        assertSame(second, pool.acquire(params));
+        new Verifications() {
+            {
+                provider.createStateful(params);
+                times = 1;
+                first.reset();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void testMaxIdle() {
+        expectCreate();
+        final StatefulHashPool pool = new StatefulHashPool(provider, 1);
+        final StatefulHash hash1 = pool.acquire(params);
+        final StatefulHash hash2 = pool.acquire(params);
+        pool.release(params, hash1);
+        pool.release(params, hash2);
+        assertSame(first, pool.acquire(params));
+        assertSame(third, pool.acquire(params));
+    }
+
+    @Test
+    public void testNoIdle() {
+        expectCreate();
+        final StatefulHashPool pool = new StatefulHashPool(provider, 0);
+        pool.release(params, pool.acquire(params));
+        assertSame(second, pool.acquire(params));
+    }
+
+    @Test
+    public void testPerThread() throws InterruptedException {
+        expectCreate();
+        final StatefulHashPool pool = new StatefulHashPool(provider, 2);
+        pool.release(params, pool.acquire(params));
+        final StatefulHash[] acquired = new StatefulHash[1];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                acquired[0] = pool.acquire(params);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotSame(first, acquired[0]);
+        assertSame(first, pool.acquire(params));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxIdle() {
+        new StatefulHashPool(provider, -1);
+    }
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright 2014 Trevor Robinson
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.scurrilous.circe.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.scurrilous.circe.HashProvider;
+import com.scurrilous.circe.impl.ProviderIndex;
+
+/**
+ * Annotation processor that generates the provider index read by
+ * {@link com.scurrilous.circe.HashProviders HashProviders}. After the last
+ * round of processing, it reads the
+ * {@code META-INF/services/com.scurrilous.circe.HashProvider} file from the
+ * class output directory and writes the {@link ProviderIndex} information of
+ * each listed provider to {@code META-INF/circe/providers.properties}.
+ * <p>
+ * For each indexed provider class, the index contains a
+ * {@code <class>.parameters} property listing the binary names of the
+ * supported parameter types, and a {@code <class>.algorithms} property listing
+ * the supported algorithm names, each separated by commas.
+ * <p>
+ * This processor is only needed to build provider modules, which should list
+ * its artifact in the {@code annotationProcessorPaths} of their compiler
+ * configuration rather than depend on it.
+ */
+@SupportedAnnotationTypes("*")
+public final class ProviderIndexProcessor extends AbstractProcessor {
+
+    // must match the resource names read by HashProviders
+    private static final String SERVICES_RESOURCE = "META-INF/services/" +
+            HashProvider.class.getName();
+    private static final String INDEX_RESOURCE = "META-INF/circe/providers.properties";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            try {
+                final List<String> providers = readProviders();
+                if (!providers.isEmpty())
+                    writeIndex(providers);
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Kind.ERROR,
+                        "Cannot write hash provider index: " + e);
+            }
+        }
+        // never claims the annotations, so other processors still see them
+        return false;
+    }
+
+    private List<String> readProviders() throws IOException {
+        final Set<String> result = new LinkedHashSet<>();
+        final FileObject file;
+        try {
+            file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    SERVICES_RESOURCE);
+        } catch (final IllegalArgumentException e) {
+            return new ArrayList<>(result);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                file.openInputStream(), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                if (comment >= 0)
+                    line = line.substring(0, comment);
+                line = line.trim();
+                if (!line.isEmpty())
+                    result.add(line);
+            }
+        } catch (final IOException e) {
+            // no services file, so nothing to index
+        }
+        return new ArrayList<>(result);
+    }
+
+    private void writeIndex(List<String> providers) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("# Generated by ").append(ProviderIndexProcessor.class.getName()).append('\n');
+        for (final String provider : providers) {
+            final TypeElement type = processingEnv.getElementUtils().getTypeElement(
+                    provider.replace('$', '.'));
+            if (type == null) {
+                processingEnv.getMessager().printMessage(Kind.WARNING,
+                        "Hash provider not found: " + provider);
+                continue;
+            }
+            final AnnotationMirror index = findIndex(type);
+            if (index == null)
+                continue;
+            final List<String> parameters = new ArrayList<>();
+            final List<String> algorithms = new ArrayList<>();
+            for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                    index.getElementValues().entrySet()) {
+                final String name = entry.getKey().getSimpleName().toString();
+                for (final Object value : (List<?>) entry.getValue().getValue()) {
+                    final Object v = ((AnnotationValue) value).getValue();
+                    if (name.equals("parameters"))
+                        parameters.add(processingEnv.getElementUtils()
+                                .getBinaryName((TypeElement) ((DeclaredType) v).asElement())
+                                .toString());
+                    else if (name.equals("algorithms"))
+                        algorithms.add((String) v);
+                }
+            }
+            appendProperty(sb, provider + ".parameters", parameters);
+            appendProperty(sb, provider + ".algorithms", algorithms);
+        }
+
+        final FileObject file = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+        try (Writer writer = new OutputStreamWriter(file.openOutputStream(), "ISO-8859-1")) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private AnnotationMirror findIndex(TypeElement type) {
+        for (final AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            final TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotation.getQualifiedName().contentEquals(ProviderIndex.class.getName()))
+                return mirror;
+        }
+        return null;
+    }
+
+    private static void appendProperty(StringBuilder sb, String key, List<String> values) {
+        appendEscaped(sb, key);
+        sb.append('=');
+        for (int i = 0; i < values.size(); ++i) {
+            if (i > 0)
+                sb.append(',');
+            appendEscaped(sb, values.get(i));
+        }
+        sb.append('\n');
+    }
+
+    // escapes characters special to java.util.Properties
+    private static void appendEscaped(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c == '\\' || c == '=' || c == ':' || c == ' ' || c == '#' || c == '!')
+                sb.append('\\').append(c);
+            else if (c < 0x20 || c > 0x7e)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+    }
+}